@@ -0,0 +1,66 @@
+package io.vertx.git.users;
+
+import io.vertx.core.json.Json;
+import io.vertx.git.users.EncodedResponseCache.EncodedResponse;
+import io.vertx.git.users.github.GithubFixtures;
+import io.vertx.git.users.github.SearchKey;
+import io.vertx.git.users.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of /search responses: plain {@link Json#encode}, full encoding with gzip and ETag,
+ * and the cached path taken when the same users are found again
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodingBenchmark {
+
+    @Param({"30", "100"})
+    private int users;
+
+    private final SearchKey key = SearchKey.of("user", null);
+    private List<User> found;
+    private List<User> foundAgain;
+    private EncodedResponseCache cache;
+
+    @Setup
+    public void setUp() {
+        found = GithubFixtures.users(users);
+        foundAgain = new ArrayList<>(GithubFixtures.users(users));
+        cache = new EncodedResponseCache(1);
+        cache.encode(key, found);
+    }
+
+    @Benchmark
+    public String jsonEncode() {
+        return Json.encode(found);
+    }
+
+    @Benchmark
+    public EncodedResponse encodeWithGzip() {
+        return EncodedResponse.of(found);
+    }
+
+    @Benchmark
+    public EncodedResponse encodeCached() {
+        return cache.encode(key, foundAgain);
+    }
+}
@@ -0,0 +1,94 @@
+package io.vertx.git.users.github;
+
+import io.vertx.core.VertxOptions;
+import io.vertx.core.dns.AddressResolverOptions;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.git.users.model.User;
+import io.vertx.rxjava.core.Vertx;
+import io.vertx.rxjava.core.buffer.Buffer;
+import io.vertx.rxjava.ext.web.client.WebClient;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole {@link GitHubUsersFinder#findUsers} pipeline (search, profile fan-out, decoding) against an in-process
+ * HTTP server answering like GitHub. api.github.com resolves to the stub, caches are disabled,
+ * so every operation makes one search and one profile call per user.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FinderBenchmark {
+
+    private static final String GITHUB_HOST = "api.github.com";
+
+    @Param({"5", "30"})
+    private int users;
+
+    private Vertx vertx;
+    private GitHubUsersFinder finder;
+
+    @Setup
+    public void setUp() {
+        Configurator.setLevel("io.vertx.git.users", Level.WARN);
+        vertx = Vertx.vertx(new VertxOptions().setAddressResolverOptions(new AddressResolverOptions()
+                .setHostsValue(io.vertx.core.buffer.Buffer.buffer("127.0.0.1 " + GITHUB_HOST + "\n"))));
+
+        Buffer search = Buffer.buffer(GithubFixtures.searchResponse(users).encode());
+        Buffer profile = Buffer.buffer(GithubFixtures.profile(1).encode());
+        int port = vertx.createHttpServer()
+                .requestHandler(request -> request.response()
+                        .putHeader("Content-Type", "application/json")
+                        .end(request.path().startsWith("/search") ? search : profile))
+                .rxListen(0)
+                .toBlocking()
+                .value()
+                .actualPort();
+
+        WebClient client = WebClient.create(vertx, new WebClientOptions().setDefaultPort(port).setMaxPoolSize(users));
+        finder = GitHubUsersFinder.builder()
+                .githubClient(new GithubUserWebClient(client, null, null, null, null))
+                .searchCache(new SearchCache(1, 0, 0, 0))
+                .profileConcurrency(users)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        vertx.rxClose().toBlocking().value();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public List<User> throughput() {
+        return findUsers();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<User> latency() {
+        return findUsers();
+    }
+
+    private List<User> findUsers() {
+        return finder.findUsers("user", null).toList().toBlocking().single();
+    }
+}
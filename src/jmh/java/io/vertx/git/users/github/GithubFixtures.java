@@ -0,0 +1,78 @@
+package io.vertx.git.users.github;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.git.users.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * GitHub responses shaped like the real ones, with all the fields the application does not read
+ */
+public final class GithubFixtures {
+
+    private GithubFixtures() {
+    }
+
+    public static JsonObject searchResponse(int items) {
+        JsonArray found = new JsonArray();
+        for (int i = 0; i < items; i++) {
+            found.add(searchItem(i));
+        }
+        return new JsonObject()
+                .put("total_count", 1234)
+                .put("incomplete_results", false)
+                .put("items", found);
+    }
+
+    public static JsonObject searchItem(int id) {
+        String login = "user" + id;
+        String api = "https://api.github.com/users/" + login;
+        return new JsonObject()
+                .put("login", login)
+                .put("id", id)
+                .put("node_id", "MDQ6VXNlcjEwMjIyMjg=")
+                .put("avatar_url", "https://avatars3.githubusercontent.com/u/" + id + "?v=4")
+                .put("gravatar_id", "")
+                .put("url", api)
+                .put("html_url", "https://github.com/" + login)
+                .put("followers_url", api + "/followers")
+                .put("following_url", api + "/following{/other_user}")
+                .put("gists_url", api + "/gists{/gist_id}")
+                .put("starred_url", api + "/starred{/owner}{/repo}")
+                .put("subscriptions_url", api + "/subscriptions")
+                .put("organizations_url", api + "/orgs")
+                .put("repos_url", api + "/repos")
+                .put("events_url", api + "/events{/privacy}")
+                .put("received_events_url", api + "/received_events")
+                .put("type", "User")
+                .put("site_admin", false)
+                .put("score", 42.5);
+    }
+
+    public static JsonObject profile(int id) {
+        return searchItem(id)
+                .put("name", "Some User " + id)
+                .putNull("company")
+                .put("blog", "https://example.com")
+                .put("location", "Kyiv")
+                .putNull("email")
+                .put("hireable", true)
+                .put("bio", "Writes code")
+                .put("public_repos", 25)
+                .put("public_gists", 3)
+                .put("followers", 17 + id)
+                .put("following", 4)
+                .put("created_at", "2011-09-09T10:11:12Z")
+                .put("updated_at", "2018-05-06T07:08:09Z");
+    }
+
+    public static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(profile(i).mapTo(User.class));
+        }
+        return users;
+    }
+}
@@ -0,0 +1,73 @@
+package io.vertx.git.users.github;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.git.users.model.SearchItem;
+import io.vertx.git.users.model.User;
+import io.vertx.rxjava.core.buffer.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of GitHub responses: JSON tree with data binding (how search items were converted into JSON objects and
+ * profiles mapped with {@link JsonObject#mapTo}) against the streaming reader used now.
+ * Run with -prof gc to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParsingBenchmark {
+
+    @Param({"30", "100"})
+    private int searchItems;
+
+    private Buffer search;
+    private Buffer profile;
+
+    @Setup
+    public void setUp() {
+        search = Buffer.buffer(GithubFixtures.searchResponse(searchItems).encode());
+        profile = Buffer.buffer(GithubFixtures.profile(1).encode());
+    }
+
+    @Benchmark
+    public List<JsonObject> searchTree() {
+        JsonArray items = search.toJsonObject().getJsonArray("items");
+        List<JsonObject> converted = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            converted.add(items.getJsonObject(i));
+        }
+        return converted;
+    }
+
+    @Benchmark
+    public List<SearchItem> searchStreaming() {
+        return GithubJsonReader.readSearchItems(search);
+    }
+
+    @Benchmark
+    public User profileMapTo() {
+        return profile.toJsonObject().mapTo(User.class);
+    }
+
+    @Benchmark
+    public User profileStreaming() {
+        return GithubJsonReader.readUser(profile);
+    }
+}
@@ -0,0 +1,246 @@
+package io.vertx.git.users;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.git.users.metrics.Metrics;
+import io.vertx.git.users.metrics.Metrics.Stage;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import rx.Scheduler;
+import rx.Single;
+import rx.SingleSubscriber;
+import rx.subscriptions.Subscriptions;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits number of client requests processed at once. Requests over the limit wait in a bounded queue,
+ * in FIFO order while the queue drains now and then. Once the queue has not been empty for a whole interval
+ * (CoDel), the server is overloaded: the newest requests are served first (LIFO), as their clients are
+ * the most likely to still wait, and queued requests are shed after the short target wait.
+ * Shed requests fail with {@link OverloadedException} right away instead of timing out later.
+ */
+@Slf4j
+public class AdmissionController {
+
+    private final int maxInFlight;
+    private final int maxQueueSize;
+    private final long maxWaitMillis;
+    private final long targetWaitMillis;
+    private final long intervalMillis;
+    private final Scheduler.Worker timer;
+    private final Metrics metrics;
+
+    private final Deque<Waiter> queue = new ArrayDeque<>();
+    private int inFlight;
+    private long lastEmptyAt;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder bypassed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    /**
+     * @param maxWaitMillis    longest wait in the queue while not overloaded
+     * @param targetWaitMillis longest wait in the queue while overloaded
+     * @param intervalMillis   time the queue has to stay non-empty to count as overloaded
+     * @param scheduler        clock and timers of the queue
+     * @param metrics          metrics queue waits are recorded in, may be null
+     */
+    public AdmissionController(int maxInFlight, int maxQueueSize, long maxWaitMillis, long targetWaitMillis,
+                               long intervalMillis, @NonNull Scheduler scheduler, Metrics metrics) {
+        if (maxInFlight < 1 || maxQueueSize < 0) {
+            throw new IllegalArgumentException("maxInFlight should be positive and maxQueueSize not negative");
+        }
+        this.maxInFlight = maxInFlight;
+        this.maxQueueSize = maxQueueSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.targetWaitMillis = Math.min(targetWaitMillis, maxWaitMillis);
+        this.intervalMillis = intervalMillis;
+        this.timer = scheduler.createWorker();
+        this.metrics = metrics;
+        this.lastEmptyAt = timer.now();
+    }
+
+    /**
+     * @param bypass true for requests answered from cache, they are let through without taking a slot
+     * @return permit to be released once the response is sent
+     */
+    public Single<Permit> admit(boolean bypass) {
+        if (bypass) {
+            bypassed.increment();
+            return Single.just(new Permit(null));
+        }
+        return Single.create(subscriber -> {
+            Waiter waiter = new Waiter(subscriber, timer.now());
+            subscriber.add(Subscriptions.create(() -> cancel(waiter)));
+            enqueue(waiter);
+        });
+    }
+
+    private void enqueue(Waiter waiter) {
+        boolean admittedNow = false;
+        boolean queued = false;
+        Waiter dropped = null;
+        synchronized (this) {
+            long now = timer.now();
+            if (inFlight < maxInFlight && queue.isEmpty()) {
+                inFlight++;
+                admittedNow = true;
+            } else if (queue.size() < maxQueueSize) {
+                if (queue.isEmpty()) {
+                    lastEmptyAt = now;
+                }
+                queue.addLast(waiter);
+                queued = true;
+            } else if (isOverloaded(now)) {
+                // the oldest one is the least likely to be served in time
+                dropped = queue.pollFirst();
+                queue.addLast(waiter);
+                queued = true;
+            }
+        }
+        if (dropped != null) {
+            reject(dropped, shed);
+        }
+        if (admittedNow) {
+            start(waiter);
+        } else if (queued) {
+            scheduleCheck(waiter, targetWaitMillis);
+        } else {
+            reject(waiter, rejected);
+        }
+    }
+
+    private void scheduleCheck(Waiter waiter, long delayMillis) {
+        timer.schedule(() -> check(waiter), Math.max(1, delayMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sheds the waiter when it waited longer than allowed in the current state, checks again later otherwise
+     */
+    private void check(Waiter waiter) {
+        long waited;
+        boolean expired;
+        synchronized (this) {
+            if (!queue.contains(waiter)) {
+                return;
+            }
+            long now = timer.now();
+            waited = now - waiter.queuedAt;
+            expired = waited >= maxWaitMillis || isOverloaded(now) && waited >= targetWaitMillis;
+            if (expired) {
+                queue.remove(waiter);
+                if (queue.isEmpty()) {
+                    lastEmptyAt = now;
+                }
+            }
+        }
+        if (expired) {
+            reject(waiter, shed);
+        } else {
+            scheduleCheck(waiter, Math.min(targetWaitMillis, maxWaitMillis - waited));
+        }
+    }
+
+    private boolean isOverloaded(long now) {
+        return !queue.isEmpty() && now - lastEmptyAt >= intervalMillis;
+    }
+
+    private void release() {
+        Waiter next;
+        synchronized (this) {
+            long now = timer.now();
+            next = isOverloaded(now) ? queue.pollLast() : queue.pollFirst();
+            if (next == null) {
+                inFlight--;
+            }
+            if (queue.isEmpty()) {
+                lastEmptyAt = now;
+            }
+        }
+        if (next != null) {
+            start(next);
+        }
+    }
+
+    private void cancel(Waiter waiter) {
+        synchronized (this) {
+            queue.remove(waiter);
+        }
+    }
+
+    private void start(Waiter waiter) {
+        long waitedMillis = timer.now() - waiter.queuedAt;
+        if (metrics != null) {
+            metrics.record(Stage.ADMISSION_WAIT, TimeUnit.MILLISECONDS.toNanos(waitedMillis));
+        }
+        admitted.increment();
+        Permit permit = new Permit(this);
+        if (waiter.subscriber.isUnsubscribed()) {
+            permit.release();
+            return;
+        }
+        waiter.subscriber.onSuccess(permit);
+    }
+
+    private void reject(Waiter waiter, LongAdder counter) {
+        log.debug("Shedding request, {} in flight and {} queued", getInFlight(), getQueueSize());
+        counter.increment();
+        long retryAfterSeconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(intervalMillis + 999));
+        waiter.subscriber.onError(new OverloadedException(retryAfterSeconds));
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * @return requests rejected because the queue was full plus those shed from the queue
+     */
+    public long getShedCount() {
+        return rejected.sum() + shed.sum();
+    }
+
+    public JsonObject stats() {
+        return new JsonObject()
+                .put("inFlight", getInFlight())
+                .put("queued", getQueueSize())
+                .put("admitted", admitted.sum())
+                .put("bypassed", bypassed.sum())
+                .put("rejected", rejected.sum())
+                .put("shed", shed.sum());
+    }
+
+    /**
+     * Slot of an admitted request, releasing it more than once has no effect
+     */
+    public static class Permit {
+        private final AdmissionController controller;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(AdmissionController controller) {
+            this.controller = controller;
+        }
+
+        public void release() {
+            if (controller != null && released.compareAndSet(false, true)) {
+                controller.release();
+            }
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Waiter {
+        private final SingleSubscriber<? super Permit> subscriber;
+        private final long queuedAt;
+    }
+}
@@ -0,0 +1,169 @@
+package io.vertx.git.users;
+
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.git.users.github.SearchKey;
+import io.vertx.git.users.model.User;
+import io.vertx.rxjava.core.buffer.Buffer;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.Value;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoded /search responses ready to be sent as they are, in plain and gzip form, with strong ETags.
+ * A query result is encoded again only when the users found for it changed.
+ * One instance is shared by all verticle instances, so a response is encoded once whichever event loop serves it.
+ */
+class EncodedResponseCache implements Shareable {
+
+    private static final int ETAG_BYTES = 16;
+
+    private final Map<SearchKey, EncodedResponse> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder encodings = new LongAdder();
+
+    EncodedResponseCache(int maxSize) {
+        this.entries = new LinkedHashMap<SearchKey, EncodedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SearchKey, EncodedResponse> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    EncodedResponse encode(@NonNull SearchKey key, @NonNull List<User> users) {
+        EncodedResponse cached = lookup(key);
+        if (cached != null && sameUsers(cached.getUsers(), users)) {
+            hits.increment();
+            return cached;
+        }
+        EncodedResponse encoded = encode(users);
+        store(key, encoded);
+        return encoded;
+    }
+
+    /**
+     * Encodes the result without caching it, e.g. for partial results
+     */
+    EncodedResponse encode(@NonNull List<User> users) {
+        encodings.increment();
+        return EncodedResponse.of(users);
+    }
+
+    private synchronized EncodedResponse lookup(SearchKey key) {
+        return entries.get(key);
+    }
+
+    private synchronized void store(SearchKey key, EncodedResponse response) {
+        entries.put(key, response);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    JsonObject stats() {
+        return new JsonObject()
+                .put("hits", hits.sum())
+                .put("encodings", encodings.sum())
+                .put("size", size());
+    }
+
+    /**
+     * Compares URLs as strings, {@link URL#equals} resolves host names
+     */
+    private static boolean sameUsers(List<User> cached, List<User> fresh) {
+        if (cached.size() != fresh.size()) {
+            return false;
+        }
+        for (int i = 0; i < cached.size(); i++) {
+            User a = cached.get(i);
+            User b = fresh.get(i);
+            if (!Objects.equals(a.getLogin(), b.getLogin())
+                    || !Objects.equals(a.getName(), b.getName())
+                    || a.getFollowers() != b.getFollowers()
+                    || !Objects.equals(externalForm(a.getAvatarUrl()), externalForm(b.getAvatarUrl()))
+                    || !Objects.equals(externalForm(a.getProfileUrl()), externalForm(b.getProfileUrl()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String externalForm(URL url) {
+        return url == null ? null : url.toExternalForm();
+    }
+
+    @Value
+    static class EncodedResponse {
+        private static final String WEAK_PREFIX = "W/";
+
+        private List<User> users;
+        private Buffer plain;
+        private Buffer gzipped;
+        private String etag;
+        private String gzipEtag;
+
+        static EncodedResponse of(List<User> users) {
+            byte[] plain = Json.encode(users).getBytes(StandardCharsets.UTF_8);
+            String tag = digest(plain);
+            return new EncodedResponse(users, buffer(plain), buffer(gzip(plain)),
+                    "\"" + tag + "\"", "\"" + tag + "-gzip\"");
+        }
+
+        /**
+         * @return true when If-None-Match header lists ETag of any representation, weak comparison is used
+         */
+        boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                String candidate = tag.trim();
+                if (candidate.startsWith(WEAK_PREFIX)) {
+                    candidate = candidate.substring(WEAK_PREFIX.length());
+                }
+                if (candidate.equals("*") || candidate.equals(etag) || candidate.equals(gzipEtag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static Buffer buffer(byte[] bytes) {
+            return Buffer.newInstance(io.vertx.core.buffer.Buffer.buffer(bytes));
+        }
+
+        @SneakyThrows
+        private static byte[] gzip(byte[] plain) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(plain.length / 4 + 32);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+                gzip.write(plain);
+            }
+            return bytes.toByteArray();
+        }
+
+        @SneakyThrows
+        private static String digest(byte[] plain) {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(plain);
+            StringBuilder hex = new StringBuilder(ETAG_BYTES * 2);
+            for (int i = 0; i < ETAG_BYTES; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        }
+    }
+}
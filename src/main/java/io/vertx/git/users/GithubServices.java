@@ -0,0 +1,534 @@
+package io.vertx.git.users;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.git.users.github.GitHubUsersFinder;
+import io.vertx.git.users.github.GithubGraphqlClient;
+import io.vertx.git.users.github.GithubUserWebClient;
+import io.vertx.git.users.github.HotQueries;
+import io.vertx.git.users.github.HotQueryRefresher;
+import io.vertx.git.users.github.LoginIndex;
+import io.vertx.git.users.github.PeerCache;
+import io.vertx.git.users.github.PersistentStore;
+import io.vertx.git.users.github.ProfileServiceClient;
+import io.vertx.git.users.github.SearchCache;
+import io.vertx.git.users.github.SearchSpeculation;
+import io.vertx.git.users.github.http.AdaptiveConcurrencyLimiter;
+import io.vertx.git.users.github.http.CircuitBreaker;
+import io.vertx.git.users.github.http.Deadline;
+import io.vertx.git.users.github.http.RateLimitBucket;
+import io.vertx.git.users.github.http.RateLimitScheduler;
+import io.vertx.git.users.github.http.RequestHedger;
+import io.vertx.git.users.github.http.ResponseCache;
+import io.vertx.git.users.github.http.TokenPool;
+import io.vertx.git.users.metrics.Metrics;
+import io.vertx.rxjava.core.RxHelper;
+import io.vertx.rxjava.core.Vertx;
+import io.vertx.rxjava.ext.web.client.WebClient;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import rx.Scheduler;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Builds GitHub facing components out of verticle config.
+ * Caches and limiters created here are meant to be shared by all finders using the same GitHub quota,
+ * including those of all verticle instances deployed on different event loops, see {@link #attach()}.
+ */
+@Slf4j
+public class GithubServices implements Shareable {
+
+    private static final String HTTP_CONFIG = "http";
+    private static final String PROFILE_CACHE_CONFIG = "profileCache";
+    private static final String SEARCH_CACHE_CONFIG = "searchCache";
+    private static final String PROFILE_FETCH_CONFIG = "profileFetch";
+    private static final String RATE_LIMIT_CONFIG = "rateLimit";
+    private static final String DEADLINE_CONFIG = "deadline";
+    private static final String CIRCUIT_BREAKER_CONFIG = "circuitBreaker";
+    private static final String GITHUB_CONFIG = "github";
+    private static final String STORE_CONFIG = "store";
+    private static final String SPECULATION_CONFIG = "searchSpeculation";
+    private static final String LOGIN_INDEX_CONFIG = "loginIndex";
+    private static final String CLUSTER_CONFIG = "cluster";
+    private static final String PROFILE_SERVICE_CONFIG = "profileService";
+    private static final String HOT_QUERIES_CONFIG = "hotQueries";
+
+    /**
+     * Event bus address circuit breaker state changes are published to
+     */
+    public static final String CIRCUIT_BREAKER_ADDRESS = "github.circuit-breaker";
+
+    private static final int DEFAULT_MAX_POOL_SIZE = 20;
+    private static final int DEFAULT_IDLE_TIMEOUT_SECONDS = 60;
+
+    private static final int DEFAULT_PROFILE_CACHE_SIZE = 1000;
+    private static final long DEFAULT_PROFILE_CACHE_TTL_SECONDS = 60;
+
+    private static final int DEFAULT_SEARCH_CACHE_SIZE = 500;
+    private static final long DEFAULT_SEARCH_CACHE_TTL_SECONDS = 60;
+    private static final long DEFAULT_SEARCH_CACHE_STALE_SECONDS = 300;
+    private static final long DEFAULT_SEARCH_CACHE_NEGATIVE_TTL_SECONDS = 30;
+
+    private static final String REST_BACKEND = "rest";
+    private static final String GRAPHQL_BACKEND = "graphql";
+    private static final int DEFAULT_PROFILE_CONCURRENCY_PER_REQUEST = 5;
+    private static final int DEFAULT_PROFILE_INITIAL_LIMIT = 10;
+    private static final int DEFAULT_PROFILE_MIN_LIMIT = 1;
+    private static final int DEFAULT_PROFILE_MAX_LIMIT = 50;
+    private static final long DEFAULT_PROFILE_SLOW_CALL_MILLIS = 2000;
+    private static final double DEFAULT_HEDGE_PERCENTILE = 0.95;
+    private static final int DEFAULT_HEDGE_MIN_SAMPLES = 20;
+    private static final double DEFAULT_HEDGE_MAX_SHARE = 0.1;
+
+    private static final int DEFAULT_LOGIN_INDEX_SIZE = 100_000;
+
+    private static final long DEFAULT_PEER_LOOKUP_TIMEOUT_MILLIS = 100;
+    private static final long DEFAULT_PEER_HEARTBEAT_MILLIS = 1000;
+
+    private static final int DEFAULT_HOT_QUERIES_SIZE = 50;
+    private static final long DEFAULT_HOT_QUERIES_MIN_COUNT = 3;
+    private static final int DEFAULT_HOT_QUERIES_SKETCH_WIDTH = 2048;
+    private static final int DEFAULT_HOT_QUERIES_SKETCH_DEPTH = 4;
+    private static final long DEFAULT_HOT_QUERIES_DECAY_SECONDS = 60;
+    private static final long DEFAULT_HOT_REFRESH_INTERVAL_MILLIS = 1000;
+    private static final long DEFAULT_HOT_REFRESH_AHEAD_SECONDS = 10;
+    private static final double DEFAULT_HOT_REFRESH_RESERVED_SHARE = 0.5;
+    private static final int DEFAULT_HOT_REFRESHES_PER_RUN = 2;
+
+    private static final long DEFAULT_SPECULATION_DELAY_MILLIS = 200;
+    private static final double DEFAULT_SPECULATION_RESERVED_SHARE = 0.5;
+
+    private static final long DEFAULT_RATE_LIMIT_MAX_WAIT_MILLIS = 2000;
+    private static final int DEFAULT_RATE_LIMIT_MAX_QUEUE_SIZE = 100;
+    private static final int DEFAULT_SEARCH_BURST = 5;
+    private static final int DEFAULT_CORE_BURST = 30;
+    private static final int DEFAULT_GRAPHQL_BURST = 5;
+
+    private static final int DEFAULT_BREAKER_WINDOW_SIZE = 20;
+    private static final int DEFAULT_BREAKER_MIN_CALLS = 10;
+    private static final double DEFAULT_BREAKER_FAILURE_RATE = 0.5;
+    private static final double DEFAULT_BREAKER_SLOW_CALL_RATE = 0.8;
+    private static final long DEFAULT_BREAKER_SLOW_CALL_MILLIS = 3000;
+    private static final long DEFAULT_BREAKER_OPEN_MILLIS = 30000;
+    private static final int DEFAULT_BREAKER_HALF_OPEN_CALLS = 3;
+
+    private static final long DEFAULT_STORE_MAX_MEGABYTES = 64;
+    private static final long DEFAULT_STORE_COMPACT_INTERVAL_SECONDS = 600;
+
+    private static final long DEFAULT_DEADLINE_MILLIS = 8000;
+    private static final long DEFAULT_MAX_DEADLINE_MILLIS = 30000;
+
+    private final Vertx vertx;
+    private final JsonObject config;
+    private final Scheduler timerScheduler;
+
+    @Getter
+    private final ResponseCache profileCache;
+    @Getter
+    private final SearchCache searchCache;
+    @Getter
+    private final AdaptiveConcurrencyLimiter profileLimiter;
+    @Getter
+    private final RequestHedger profileHedger;
+    @Getter
+    private final RateLimitScheduler rateLimitScheduler;
+    @Getter
+    private final CircuitBreaker circuitBreaker;
+    @Getter
+    private final Metrics metrics;
+    /**
+     * Tokens GitHub calls are authorized with, null when "github.tokens" is not set
+     */
+    @Getter
+    private final TokenPool tokenPool;
+    /**
+     * Speculative search without language, null when "searchSpeculation" is not enabled
+     */
+    @Getter
+    private final SearchSpeculation searchSpeculation;
+    @Getter
+    private final LoginIndex loginIndex;
+    /**
+     * Store of cache content surviving restarts, null when "store" section has no path
+     */
+    @Getter
+    private final PersistentStore store;
+    /**
+     * Cache and quota sharing with other nodes, null when "cluster" is not enabled
+     */
+    @Getter
+    private final PeerCache peerCache;
+    /**
+     * Most searched pages, null when "hotQueries" is not enabled
+     */
+    @Getter
+    private final HotQueries hotQueries;
+    private volatile HotQueryRefresher hotQueryRefresher;
+    private WebClient refreshClient;
+    private final List<Long> timers = new ArrayList<>();
+
+    private final AtomicInteger instances = new AtomicInteger();
+    private final AtomicInteger nextInstanceId = new AtomicInteger();
+
+    public GithubServices(@NonNull Vertx vertx, @NonNull JsonObject config) {
+        this.vertx = vertx;
+        this.config = config;
+        this.timerScheduler = RxHelper.scheduler(vertx);
+        this.profileCache = buildProfileCache(section(PROFILE_CACHE_CONFIG));
+        this.searchCache = buildSearchCache(section(SEARCH_CACHE_CONFIG));
+        this.profileLimiter = buildProfileLimiter(section(PROFILE_FETCH_CONFIG));
+        this.profileHedger = buildProfileHedger(section(PROFILE_FETCH_CONFIG), timerScheduler);
+        this.rateLimitScheduler = buildRateLimitScheduler(timerScheduler, section(RATE_LIMIT_CONFIG));
+        this.circuitBreaker = buildCircuitBreaker(section(CIRCUIT_BREAKER_CONFIG));
+        this.circuitBreaker.addListener(transition ->
+                vertx.eventBus().publish(CIRCUIT_BREAKER_ADDRESS, transition.toJson()));
+        this.metrics = new Metrics();
+        this.tokenPool = buildTokenPool(section(GITHUB_CONFIG));
+        this.loginIndex = new LoginIndex(section(LOGIN_INDEX_CONFIG).getInteger("maxSize", DEFAULT_LOGIN_INDEX_SIZE));
+        this.searchSpeculation = buildSearchSpeculation(section(SPECULATION_CONFIG), rateLimitScheduler, timerScheduler);
+        this.store = buildStore(vertx, section(STORE_CONFIG), profileCache, searchCache);
+        this.peerCache = buildPeerCache(vertx, section(CLUSTER_CONFIG), profileCache, searchCache, rateLimitScheduler);
+        this.hotQueries = buildHotQueries(section(HOT_QUERIES_CONFIG));
+        registerGauges();
+    }
+
+    /**
+     * Options of the HTTP client used for GitHub calls. Any {@link WebClientOptions} field can be set
+     * in "http" section, e.g. keepAlive, maxPoolSize, pipelining or protocolVersion.
+     */
+    public WebClientOptions webClientOptions() {
+        JsonObject defaults = new JsonObject()
+                .put("keepAlive", true)
+                .put("maxPoolSize", DEFAULT_MAX_POOL_SIZE)
+                .put("idleTimeout", DEFAULT_IDLE_TIMEOUT_SECONDS)
+                .put("tryUseCompression", true);
+        return new WebClientOptions(defaults.mergeIn(section(HTTP_CONFIG)));
+    }
+
+    /**
+     * Finder of the HTTP tier, it fetches profiles through the profile service verticle when "profileService" is enabled
+     */
+    public GitHubUsersFinder createFinder(@NonNull WebClient webClient) {
+        return createFinder(webClient, isProfileServiceEnabled());
+    }
+
+    /**
+     * Finder fetching profiles itself, used by the profile service verticle
+     */
+    public GitHubUsersFinder createProfileFinder(@NonNull WebClient webClient) {
+        return createFinder(webClient, false);
+    }
+
+    public boolean isProfileServiceEnabled() {
+        return section(PROFILE_SERVICE_CONFIG).getBoolean("enabled", false);
+    }
+
+    private GitHubUsersFinder createFinder(WebClient webClient, boolean useProfileService) {
+        String baseUrl = section(GITHUB_CONFIG).getString("baseUrl", GithubUserWebClient.DEFAULT_BASE_URL);
+        return GitHubUsersFinder.builder()
+                .githubClient(GithubUserWebClient.builder()
+                        .client(webClient)
+                        .profileCache(profileCache)
+                        .scheduler(rateLimitScheduler)
+                        .breaker(circuitBreaker)
+                        .metrics(metrics)
+                        .searchUrl(GithubUserWebClient.searchUrl(baseUrl))
+                        .tokens(tokenPool)
+                        .loginIndex(loginIndex)
+                        .profileHedger(profileHedger)
+                        .build())
+                .profileBatchClient(buildProfileBatchClient(webClient, baseUrl))
+                .searchSpeculation(searchSpeculation)
+                .profileService(useProfileService ? new ProfileServiceClient(vertx.eventBus()) : null)
+                .searchCache(searchCache)
+                .profileLimiter(profileLimiter)
+                .profileConcurrency(section(PROFILE_FETCH_CONFIG)
+                        .getInteger("concurrencyPerRequest", DEFAULT_PROFILE_CONCURRENCY_PER_REQUEST))
+                .metrics(metrics)
+                .build();
+    }
+
+    /**
+     * Budget of a client request, taken from "deadline" section when the client did not ask for one
+     *
+     * @param requestedMillis budget asked by the client, may be null; it is capped by maxMillis
+     */
+    public Deadline deadline(Long requestedMillis) {
+        JsonObject deadlineConfig = section(DEADLINE_CONFIG);
+        long millis = requestedMillis != null ? requestedMillis : deadlineConfig.getLong("defaultMillis", DEFAULT_DEADLINE_MILLIS);
+        return Deadline.in(Math.min(millis, deadlineConfig.getLong("maxMillis", DEFAULT_MAX_DEADLINE_MILLIS)), timerScheduler);
+    }
+
+    /**
+     * Registers a verticle instance using these services, the first one starts loading the persistent store
+     * in background, joins the peers and starts refreshing hot pages, if configured
+     *
+     * @return number of the instance, unique among attached ones
+     */
+    public int attach() {
+        if (instances.getAndIncrement() == 0) {
+            if (store != null) {
+                store.start();
+            }
+            if (peerCache != null) {
+                peerCache.start();
+            }
+            if (hotQueries != null) {
+                startHotQueries(section(HOT_QUERIES_CONFIG));
+            }
+        }
+        return nextInstanceId.getAndIncrement();
+    }
+
+    /**
+     * Unregisters a verticle instance, the store is closed, the peers are left and hot pages are no longer refreshed
+     * once the last one is gone
+     *
+     * @return true when it was the last instance
+     */
+    public boolean detach() {
+        if (instances.decrementAndGet() > 0) {
+            return false;
+        }
+        if (store != null) {
+            store.close();
+        }
+        if (peerCache != null) {
+            peerCache.close();
+        }
+        stopHotQueries();
+        return true;
+    }
+
+    public JsonObject stats() {
+        JsonObject stats = new JsonObject()
+                .put(PROFILE_CACHE_CONFIG, profileCache.stats().toJson())
+                .put(SEARCH_CACHE_CONFIG, searchCache.stats().toJson())
+                .put(PROFILE_FETCH_CONFIG, profileLimiter.stats().put("hedging", profileHedger.stats()))
+                .put(RATE_LIMIT_CONFIG, rateLimitScheduler.stats())
+                .put(CIRCUIT_BREAKER_CONFIG, circuitBreaker.stats())
+                .put(LOGIN_INDEX_CONFIG, loginIndex.stats());
+        if (tokenPool != null) {
+            stats.put("tokens", tokenPool.stats());
+        }
+        if (searchSpeculation != null) {
+            stats.put(SPECULATION_CONFIG, searchSpeculation.stats());
+        }
+        if (peerCache != null) {
+            stats.put(CLUSTER_CONFIG, peerCache.stats());
+        }
+        if (hotQueries != null) {
+            HotQueryRefresher refresher = hotQueryRefresher;
+            stats.put(HOT_QUERIES_CONFIG, hotQueries.stats()
+                    .put("refresh", refresher == null ? new JsonObject() : refresher.stats()));
+        }
+        return store == null ? stats : stats.put(STORE_CONFIG, store.stats());
+    }
+
+    private void registerGauges() {
+        for (RateLimitBucket bucket : RateLimitBucket.values()) {
+            String label = "bucket=\"" + bucket.name().toLowerCase(Locale.ROOT) + "\"";
+            metrics.gauge("rate_limit_remaining", "Remaining GitHub calls of the quota, -1 when unknown", label,
+                    () -> rateLimitScheduler.remaining(bucket));
+            metrics.gauge("rate_limit_queue_size", "GitHub calls waiting for quota", label,
+                    () -> rateLimitScheduler.queueSize(bucket));
+        }
+        metrics.gauge("profile_fetch_limit", "Concurrency limit of profile fetches", "", profileLimiter::getLimit);
+        metrics.gauge("profile_fetch_in_flight", "Profile fetches being made", "", profileLimiter::getInFlight);
+        metrics.gauge("profile_fetch_waiting", "Profile fetches waiting for the limiter", "", profileLimiter::getWaiting);
+        metrics.gauge("circuit_breaker_state", "State of GitHub circuit breaker: 0 closed, 1 open, 2 half open", "",
+                () -> circuitBreaker.getState().ordinal());
+        metrics.gauge("cache_size", "Entries in caches", "cache=\"profile\"", profileCache::size);
+        metrics.gauge("cache_size", "Entries in caches", "cache=\"search\"", searchCache::size);
+        metrics.gauge("login_index_size", "Logins known for suggestions", "", loginIndex::size);
+        if (hotQueries != null) {
+            metrics.gauge("hot_queries_size", "Search pages tracked as candidates for hot ones", "", hotQueries::size);
+            metrics.gauge("hot_query_refreshes", "Hot search pages refreshed ahead of expiry since start", "", () -> {
+                HotQueryRefresher refresher = hotQueryRefresher;
+                return refresher == null ? 0 : refresher.refreshedCount();
+            });
+        }
+    }
+
+    /**
+     * Hot pages are refreshed by a finder of their own, on the event loop of the first instance;
+     * counts are decayed every "decaySeconds"
+     */
+    private synchronized void startHotQueries(JsonObject config) {
+        refreshClient = WebClient.create(vertx, webClientOptions());
+        hotQueryRefresher = new HotQueryRefresher(hotQueries, createFinder(refreshClient), rateLimitScheduler,
+                SECONDS.toMillis(config.getLong("refreshAheadSeconds", DEFAULT_HOT_REFRESH_AHEAD_SECONDS)),
+                config.getDouble("reservedQuotaShare", DEFAULT_HOT_REFRESH_RESERVED_SHARE),
+                config.getInteger("maxRefreshesPerRun", DEFAULT_HOT_REFRESHES_PER_RUN),
+                () -> deadline(null));
+        HotQueryRefresher refresher = hotQueryRefresher;
+        timers.add(vertx.setPeriodic(config.getLong("refreshIntervalMillis", DEFAULT_HOT_REFRESH_INTERVAL_MILLIS),
+                id -> refresher.run()));
+        timers.add(vertx.setPeriodic(SECONDS.toMillis(config.getLong("decaySeconds", DEFAULT_HOT_QUERIES_DECAY_SECONDS)),
+                id -> hotQueries.decay()));
+    }
+
+    private synchronized void stopHotQueries() {
+        timers.forEach(vertx::cancelTimer);
+        timers.clear();
+        if (refreshClient != null) {
+            refreshClient.close();
+            refreshClient = null;
+        }
+    }
+
+    private JsonObject section(String name) {
+        return config.getJsonObject(name, new JsonObject());
+    }
+
+    private static ResponseCache buildProfileCache(JsonObject config) {
+        return new ResponseCache(
+                config.getInteger("maxSize", DEFAULT_PROFILE_CACHE_SIZE),
+                SECONDS.toMillis(config.getLong("ttlSeconds", DEFAULT_PROFILE_CACHE_TTL_SECONDS)));
+    }
+
+    private static SearchCache buildSearchCache(JsonObject config) {
+        return new SearchCache(
+                config.getInteger("maxSize", DEFAULT_SEARCH_CACHE_SIZE),
+                SECONDS.toMillis(config.getLong("ttlSeconds", DEFAULT_SEARCH_CACHE_TTL_SECONDS)),
+                SECONDS.toMillis(config.getLong("staleSeconds", DEFAULT_SEARCH_CACHE_STALE_SECONDS)),
+                SECONDS.toMillis(config.getLong("negativeTtlSeconds", DEFAULT_SEARCH_CACHE_NEGATIVE_TTL_SECONDS)));
+    }
+
+    /**
+     * @return GraphQL client when "profileFetch.backend" is "graphql", null for one REST call per profile
+     */
+    private GithubGraphqlClient buildProfileBatchClient(WebClient webClient, String baseUrl) {
+        String backend = section(PROFILE_FETCH_CONFIG).getString("backend", REST_BACKEND);
+        if (REST_BACKEND.equals(backend)) {
+            return null;
+        }
+        if (!GRAPHQL_BACKEND.equals(backend)) {
+            throw new IllegalArgumentException("Unknown profile fetch backend: " + backend);
+        }
+        return new GithubGraphqlClient(webClient, rateLimitScheduler, circuitBreaker, metrics,
+                GithubGraphqlClient.graphqlUrl(baseUrl), tokenPool);
+    }
+
+    /**
+     * @return pool of "tokens" array entries, null when there are none
+     */
+    private static TokenPool buildTokenPool(JsonObject config) {
+        JsonArray tokens = config.getJsonArray("tokens", new JsonArray());
+        if (tokens.isEmpty()) {
+            log.warn("No GitHub tokens configured, calls are made with anonymous rate limits");
+            return null;
+        }
+        List<String> values = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            values.add(tokens.getString(i));
+        }
+        log.info("Authorizing GitHub calls with {} tokens", values.size());
+        return new TokenPool(values);
+    }
+
+    private static PersistentStore buildStore(Vertx vertx, JsonObject config, ResponseCache profileCache,
+                                              SearchCache searchCache) {
+        String path = config.getString("path");
+        if (path == null) {
+            return null;
+        }
+        return new PersistentStore(vertx, path,
+                config.getLong("maxMegabytes", DEFAULT_STORE_MAX_MEGABYTES) * 1024 * 1024,
+                SECONDS.toMillis(config.getLong("compactIntervalSeconds", DEFAULT_STORE_COMPACT_INTERVAL_SECONDS)),
+                profileCache, searchCache);
+    }
+
+    /**
+     * Nodes share caches and quota by default when Vert.x runs clustered, "enabled" turns it on for nodes sharing
+     * the event bus otherwise, e.g. several ones in one JVM
+     */
+    private static PeerCache buildPeerCache(Vertx vertx, JsonObject config, ResponseCache profileCache,
+                                            SearchCache searchCache, RateLimitScheduler rateLimitScheduler) {
+        if (!config.getBoolean("enabled", vertx.isClustered())) {
+            return null;
+        }
+        return new PeerCache(vertx,
+                config.getString("nodeId", UUID.randomUUID().toString()),
+                config.getLong("lookupTimeoutMillis", DEFAULT_PEER_LOOKUP_TIMEOUT_MILLIS),
+                config.getLong("heartbeatMillis", DEFAULT_PEER_HEARTBEAT_MILLIS),
+                profileCache, searchCache, rateLimitScheduler);
+    }
+
+    private static HotQueries buildHotQueries(JsonObject config) {
+        if (!config.getBoolean("enabled", false)) {
+            return null;
+        }
+        return new HotQueries(
+                config.getInteger("size", DEFAULT_HOT_QUERIES_SIZE),
+                config.getLong("minCount", DEFAULT_HOT_QUERIES_MIN_COUNT),
+                config.getInteger("sketchWidth", DEFAULT_HOT_QUERIES_SKETCH_WIDTH),
+                config.getInteger("sketchDepth", DEFAULT_HOT_QUERIES_SKETCH_DEPTH));
+    }
+
+    private static AdaptiveConcurrencyLimiter buildProfileLimiter(JsonObject config) {
+        return new AdaptiveConcurrencyLimiter(
+                config.getInteger("initialLimit", DEFAULT_PROFILE_INITIAL_LIMIT),
+                config.getInteger("minLimit", DEFAULT_PROFILE_MIN_LIMIT),
+                config.getInteger("maxLimit", DEFAULT_PROFILE_MAX_LIMIT),
+                config.getLong("slowCallMillis", DEFAULT_PROFILE_SLOW_CALL_MILLIS));
+    }
+
+    private static RequestHedger buildProfileHedger(JsonObject config, Scheduler scheduler) {
+        return new RequestHedger(
+                config.getDouble("hedgePercentile", DEFAULT_HEDGE_PERCENTILE),
+                config.getInteger("hedgeMinSamples", DEFAULT_HEDGE_MIN_SAMPLES),
+                config.getDouble("hedgeMaxShare", DEFAULT_HEDGE_MAX_SHARE),
+                scheduler);
+    }
+
+    /**
+     * Speculation runs only while more than "reservedQuotaShare" of search quota is left
+     */
+    private static SearchSpeculation buildSearchSpeculation(JsonObject config, RateLimitScheduler rateLimitScheduler,
+                                                            Scheduler scheduler) {
+        if (!config.getBoolean("enabled", false)) {
+            return null;
+        }
+        double reservedShare = config.getDouble("reservedQuotaShare", DEFAULT_SPECULATION_RESERVED_SHARE);
+        return new SearchSpeculation(
+                config.getLong("delayMillis", DEFAULT_SPECULATION_DELAY_MILLIS),
+                () -> rateLimitScheduler.hasSpareBudget(RateLimitBucket.SEARCH, reservedShare),
+                scheduler);
+    }
+
+    private static CircuitBreaker buildCircuitBreaker(JsonObject config) {
+        return new CircuitBreaker(
+                config.getInteger("windowSize", DEFAULT_BREAKER_WINDOW_SIZE),
+                config.getInteger("minCalls", DEFAULT_BREAKER_MIN_CALLS),
+                config.getDouble("failureRateThreshold", DEFAULT_BREAKER_FAILURE_RATE),
+                config.getDouble("slowCallRateThreshold", DEFAULT_BREAKER_SLOW_CALL_RATE),
+                config.getLong("slowCallMillis", DEFAULT_BREAKER_SLOW_CALL_MILLIS),
+                config.getLong("openMillis", DEFAULT_BREAKER_OPEN_MILLIS),
+                config.getInteger("halfOpenCalls", DEFAULT_BREAKER_HALF_OPEN_CALLS));
+    }
+
+    private static RateLimitScheduler buildRateLimitScheduler(Scheduler scheduler, JsonObject config) {
+        Map<RateLimitBucket, Integer> bursts = new EnumMap<>(RateLimitBucket.class);
+        bursts.put(RateLimitBucket.SEARCH, config.getInteger("searchBurst", DEFAULT_SEARCH_BURST));
+        bursts.put(RateLimitBucket.CORE, config.getInteger("coreBurst", DEFAULT_CORE_BURST));
+        bursts.put(RateLimitBucket.GRAPHQL, config.getInteger("graphqlBurst", DEFAULT_GRAPHQL_BURST));
+        return new RateLimitScheduler(
+                scheduler,
+                config.getLong("maxWaitMillis", DEFAULT_RATE_LIMIT_MAX_WAIT_MILLIS),
+                config.getInteger("maxQueueSize", DEFAULT_RATE_LIMIT_MAX_QUEUE_SIZE),
+                bursts);
+    }
+}
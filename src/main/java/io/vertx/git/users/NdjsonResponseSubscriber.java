@@ -0,0 +1,69 @@
+package io.vertx.git.users;
+
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import io.vertx.rxjava.core.http.HttpServerResponse;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import rx.Subscriber;
+
+import java.util.function.Consumer;
+
+/**
+ * Writes every received item as a separate line of newline delimited JSON (application/x-ndjson).
+ * Items are requested one by one and only while response write queue is not full.
+ */
+@Slf4j
+class NdjsonResponseSubscriber<T> extends Subscriber<T> {
+
+    static final String CONTENT_TYPE = "application/x-ndjson";
+
+    private static final String LINE_SEPARATOR = "\n";
+
+    private final HttpServerResponse response;
+    private final Consumer<Throwable> errorBeforeFirstItem;
+
+    /**
+     * @param errorBeforeFirstItem handles errors which happen before anything was written,
+     *                             so the response can still get proper status code
+     */
+    NdjsonResponseSubscriber(@NonNull HttpServerResponse response, @NonNull Consumer<Throwable> errorBeforeFirstItem) {
+        this.response = response;
+        this.errorBeforeFirstItem = errorBeforeFirstItem;
+    }
+
+    @Override
+    public void onStart() {
+        response.setChunked(true).putHeader("Content-Type", CONTENT_TYPE);
+        response.closeHandler(closed -> {
+            log.debug("Client closed the stream");
+            unsubscribe();
+        });
+        request(1);
+    }
+
+    @Override
+    public void onNext(T item) {
+        response.write(Json.encode(item) + LINE_SEPARATOR);
+        if (response.writeQueueFull()) {
+            response.drainHandler(drained -> request(1));
+        } else {
+            request(1);
+        }
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        if (!response.headWritten()) {
+            errorBeforeFirstItem.accept(error);
+            return;
+        }
+        log.warn("Stream interrupted by upstream error", error);
+        response.end(new JsonObject().put("error", String.valueOf(error.getMessage())).encode() + LINE_SEPARATOR);
+    }
+
+    @Override
+    public void onCompleted() {
+        response.end();
+    }
+}
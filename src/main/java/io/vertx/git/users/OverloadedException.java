@@ -0,0 +1,17 @@
+package io.vertx.git.users;
+
+import lombok.Getter;
+
+/**
+ * Request was shed because the server has more work than it can finish in time
+ */
+@Getter
+public class OverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public OverloadedException(long retryAfterSeconds) {
+        super("Server is overloaded, retry in " + retryAfterSeconds + "s");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
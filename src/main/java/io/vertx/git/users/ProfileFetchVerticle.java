@@ -0,0 +1,55 @@
+package io.vertx.git.users;
+
+import io.vertx.core.Future;
+import io.vertx.git.users.github.GitHubUsersFinder;
+import io.vertx.git.users.github.ProfileServiceClient;
+import io.vertx.git.users.github.ProfileServiceClient.Reply;
+import io.vertx.git.users.github.ProfileServiceClient.Request;
+import io.vertx.rxjava.core.AbstractVerticle;
+import io.vertx.rxjava.core.eventbus.Message;
+import io.vertx.rxjava.ext.web.client.WebClient;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collections;
+
+/**
+ * Profile service: fetches profiles of search pages sent to {@link ProfileServiceClient#ADDRESS}.
+ * Instances have their own event loops (or worker threads) and HTTP clients, so profile fetching can be scaled
+ * and isolated apart from request handling; caches, limiters and quota are shared with the HTTP tier.
+ * The service listens locally only: its messages carry the deadline of the request and are never serialized,
+ * so they can not be served by another node of a cluster.
+ */
+@Slf4j
+public class ProfileFetchVerticle extends AbstractVerticle {
+
+    private GithubServices services;
+    private GitHubUsersFinder finder;
+
+    @Override
+    public void start(Future<Void> startFuture) {
+        services = RestVerticle.sharedServices(vertx, config());
+        services.attach();
+        finder = services.createProfileFinder(WebClient.create(vertx, services.webClientOptions()));
+        ProfileServiceClient.registerCodecs(vertx.eventBus());
+        vertx.eventBus().<Request>localConsumer(ProfileServiceClient.ADDRESS, this::handle)
+                .rxCompletionHandler()
+                .subscribe(registered -> startFuture.complete(), startFuture::fail);
+    }
+
+    @Override
+    public void stop() {
+        RestVerticle.detach(vertx, services);
+    }
+
+    private void handle(Message<Request> message) {
+        Request request = message.body();
+        finder.getProfiles(request.getItems(), request.getDeadline(), request.getPriority())
+                .toList()
+                .subscribe(
+                        users -> message.reply(new Reply(users, null)),
+                        error -> {
+                            log.debug("Fetching {} profiles failed", request.getItems().size(), error);
+                            message.reply(new Reply(Collections.emptyList(), error));
+                        });
+    }
+}
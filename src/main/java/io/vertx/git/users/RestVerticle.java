@@ -1,68 +1,575 @@
 package io.vertx.git.users;
 
-import io.vertx.core.json.Json;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.git.users.EncodedResponseCache.EncodedResponse;
+import io.vertx.git.users.github.BatchResult;
 import io.vertx.git.users.github.GitHubUsersFinder;
+import io.vertx.git.users.github.SearchKey;
+import io.vertx.git.users.github.SearchPage;
 import io.vertx.git.users.github.http.ApiLimitReachedException;
+import io.vertx.git.users.github.http.CircuitOpenException;
+import io.vertx.git.users.github.http.Deadline;
+import io.vertx.git.users.metrics.Metrics;
+import io.vertx.git.users.metrics.Metrics.Stage;
 import io.vertx.git.users.model.User;
 import io.vertx.rxjava.core.AbstractVerticle;
+import io.vertx.rxjava.core.RxHelper;
+import io.vertx.rxjava.core.Vertx;
 import io.vertx.rxjava.core.http.HttpServer;
+import io.vertx.rxjava.core.http.HttpServerRequest;
+import io.vertx.rxjava.core.http.HttpServerResponse;
+import io.vertx.rxjava.core.shareddata.LocalMap;
 import io.vertx.rxjava.ext.web.Route;
 import io.vertx.rxjava.ext.web.Router;
 import io.vertx.rxjava.ext.web.RoutingContext;
 import io.vertx.rxjava.ext.web.client.WebClient;
+import io.vertx.rxjava.ext.web.handler.BodyHandler;
 import io.vertx.rxjava.ext.web.handler.ResponseContentTypeHandler;
 
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import rx.Observable;
+import rx.Single;
+
+import javax.xml.ws.http.HTTPException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 
+@Slf4j
 public class RestVerticle extends AbstractVerticle {
 
+    private static final int NOT_MODIFIED_CODE = 304;
+    private static final int BAD_REQUEST_CODE = 400;
     private static final int API_LIMIT_REACHED_CODE = 403;
-    private static final int DEFAULT_STATUS_CODE = 404;
+    private static final int BAD_GATEWAY_CODE = 502;
+    private static final int UNAVAILABLE_CODE = 503;
+    private static final int GATEWAY_TIMEOUT_CODE = 504;
+    private static final int DEFAULT_STATUS_CODE = 500;
 
     private static final String USER_PARAM = "user";
     private static final String LANGUAGE_PARAM = "language";
+    private static final String STREAM_PARAM = "stream";
+    private static final String PER_PAGE_PARAM = "per_page";
+    private static final String CURSOR_PARAM = "cursor";
+    private static final String LIMIT_PARAM = "limit";
+    private static final String TIMEOUT_PARAM = "timeout";
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String TIMEOUT_HEADER = "X-Request-Timeout";
+    private static final String RESULT_COMPLETE_HEADER = "X-Result-Complete";
+    private static final String RESULT_STALE_HEADER = "X-Result-Stale";
+    private static final String WARNING_HEADER = "Warning";
+    private static final String RETRY_AFTER_HEADER = "Retry-After";
+    private static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+    private static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+    private static final String VARY_HEADER = "Vary";
+    private static final String ETAG_HEADER = "ETag";
+    private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    private static final String JSON = "application/json";
+    private static final String GZIP = "gzip";
+    private static final String RESPONSE_CACHE_CONFIG = "responseCache";
+    private static final int DEFAULT_RESPONSE_CACHE_SIZE = 500;
+    private static final String ADMISSION_CONFIG = "admission";
+    private static final int DEFAULT_ADMISSION_MAX_IN_FLIGHT = 100;
+    private static final int DEFAULT_ADMISSION_MAX_QUEUE_SIZE = 100;
+    private static final long DEFAULT_ADMISSION_MAX_WAIT_MILLIS = 1000;
+    private static final long DEFAULT_ADMISSION_TARGET_WAIT_MILLIS = 100;
+    private static final long DEFAULT_ADMISSION_INTERVAL_MILLIS = 500;
+    private static final String ADMISSION_QUEUE_GAUGE = "admission_queue_size";
+    private static final String ADMISSION_SHED_GAUGE = "admission_shed_requests";
     private static final String SEARCH_PATH = "/search";
+    private static final String BATCH_PATH = "/search/batch";
+    private static final String BATCH_CONFIG = "batch";
+    private static final int DEFAULT_BATCH_MAX_QUERIES = 100;
+    private static final int DEFAULT_BATCH_CONCURRENCY = 4;
+    private static final long MAX_BATCH_BODY_BYTES = 1024 * 1024;
+    private static final String STATS_PATH = "/stats";
+    private static final String SUGGEST_PATH = "/suggest";
+    private static final String PREFIX_PARAM = "prefix";
+    private static final int DEFAULT_SUGGEST_LIMIT = 10;
+    private static final int MAX_SUGGEST_LIMIT = 100;
+    private static final String METRICS_PATH = "/metrics";
+    private static final long EVENT_LOOP_PROBE_MILLIS = 100;
+    private static final String SHARED_MAP = "git-users";
+    private static final String SERVICES_KEY = "githubServices";
+    private static final String RESPONSE_CACHE_KEY = "responseCache";
+    private static final String PROFILE_SERVICE_CONFIG = "profileService";
+    private static final int DEFAULT_PROFILE_SERVICE_INSTANCES = 1;
+    private static final String PORT_CONFIG = "port";
+    private static final int DEFAULT_PORT = 8080;
 
+    private GithubServices services;
     private GitHubUsersFinder gitSearchService;
+    private EncodedResponseCache responseCache;
+    private AdmissionController admission;
+    private Metrics metrics;
+    private int instanceId;
 
     @Override
-    public void start() {
+    public void start(Future<Void> startFuture) {
         HttpServer httpServer = vertx.createHttpServer();
         Router router = Router.router(vertx);
 
-        WebClient webClient = WebClient.create(vertx);
-        gitSearchService = new GitHubUsersFinder(webClient);
+        services = sharedServices(vertx, config());
+        instanceId = services.attach();
+        // own client and finder per event loop, caches and limits behind them are shared
+        WebClient webClient = WebClient.create(vertx, services.webClientOptions());
+        gitSearchService = services.createFinder(webClient);
+        metrics = services.getMetrics();
+        metrics.monitorEventLoop(vertx, EVENT_LOOP_PROBE_MILLIS);
+        responseCache = shared(vertx, RESPONSE_CACHE_KEY, () -> new EncodedResponseCache(config()
+                .getJsonObject(RESPONSE_CACHE_CONFIG, new JsonObject())
+                .getInteger("maxSize", DEFAULT_RESPONSE_CACHE_SIZE)));
+        admission = buildAdmissionController(config().getJsonObject(ADMISSION_CONFIG, new JsonObject()));
 
-        Route searchRoute = router.get(SEARCH_PATH).produces("application/json");
+        Route searchRoute = router.get(SEARCH_PATH).produces(JSON).produces(NdjsonResponseSubscriber.CONTENT_TYPE);
         searchRoute.handler(ResponseContentTypeHandler.create()).handler(this::handleRequest);
+        router.post(BATCH_PATH).handler(BodyHandler.create().setBodyLimit(MAX_BATCH_BODY_BYTES))
+                .handler(this::handleBatch);
+        router.get(SUGGEST_PATH).handler(this::handleSuggest);
+        router.get(STATS_PATH).handler(this::handleStats);
+        router.get(METRICS_PATH).handler(this::handleMetrics);
+
+        deployProfileService()
+                .flatMap(deployed -> httpServer.requestHandler(router::accept)
+                        .rxListen(config().getInteger(PORT_CONFIG, DEFAULT_PORT)))
+                .subscribe(server -> startFuture.complete(), startFuture::fail);
+    }
+
+    /**
+     * The first instance deploys the profile service verticles, when enabled. Being its children,
+     * they are undeployed together with it.
+     */
+    private Single<String> deployProfileService() {
+        if (!services.isProfileServiceEnabled() || instanceId != 0) {
+            return Single.just("");
+        }
+        JsonObject serviceConfig = config().getJsonObject(PROFILE_SERVICE_CONFIG, new JsonObject());
+        return vertx.rxDeployVerticle(ProfileFetchVerticle.class.getName(), new DeploymentOptions()
+                .setConfig(config())
+                .setInstances(serviceConfig.getInteger("instances", DEFAULT_PROFILE_SERVICE_INSTANCES))
+                .setWorker(serviceConfig.getBoolean("worker", false)));
+    }
+
+    /**
+     * Services of all verticle instances, see {@link GithubServices#attach()}
+     */
+    static GithubServices sharedServices(Vertx vertx, JsonObject config) {
+        return shared(vertx, SERVICES_KEY, () -> new GithubServices(vertx, config));
+    }
+
+    /**
+     * Instance kept in Vert.x shared data, created by whichever verticle instance asks first
+     */
+    private static <T extends Shareable> T shared(Vertx vertx, String key, Supplier<T> factory) {
+        LocalMap<String, T> map = vertx.sharedData().getLocalMap(SHARED_MAP);
+        synchronized (RestVerticle.class) {
+            T existing = map.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            T created = factory.get();
+            map.put(key, created);
+            return created;
+        }
+    }
 
-        httpServer.requestHandler(router::accept).listen(8080);
+    /**
+     * Admission limits apply per instance, each serves requests of its own event loop
+     */
+    private AdmissionController buildAdmissionController(JsonObject config) {
+        AdmissionController controller = new AdmissionController(
+                config.getInteger("maxInFlight", DEFAULT_ADMISSION_MAX_IN_FLIGHT),
+                config.getInteger("maxQueueSize", DEFAULT_ADMISSION_MAX_QUEUE_SIZE),
+                config.getLong("maxWaitMillis", DEFAULT_ADMISSION_MAX_WAIT_MILLIS),
+                config.getLong("targetWaitMillis", DEFAULT_ADMISSION_TARGET_WAIT_MILLIS),
+                config.getLong("intervalMillis", DEFAULT_ADMISSION_INTERVAL_MILLIS),
+                RxHelper.scheduler(vertx),
+                metrics);
+        metrics.gauge(ADMISSION_QUEUE_GAUGE, "Client requests waiting for admission", instanceLabel(),
+                controller::getQueueSize);
+        metrics.gauge(ADMISSION_SHED_GAUGE, "Client requests rejected or shed since start", instanceLabel(),
+                controller::getShedCount);
+        return controller;
+    }
+
+    private String instanceLabel() {
+        return "instance=\"" + instanceId + "\"";
+    }
+
+    @Override
+    public void stop() {
+        metrics.removeGauge(ADMISSION_QUEUE_GAUGE, instanceLabel());
+        metrics.removeGauge(ADMISSION_SHED_GAUGE, instanceLabel());
+        detach(vertx, services);
+    }
+
+    /**
+     * Leaves the shared services, the last verticle instance drops the shared data
+     */
+    static void detach(Vertx vertx, GithubServices services) {
+        if (services.detach()) {
+            vertx.sharedData().getLocalMap(SHARED_MAP).clear();
+        }
     }
 
     private void handleRequest(RoutingContext context) {
-        String user = context.request().getParam(USER_PARAM);
-        String language = context.request().getParam(LANGUAGE_PARAM);
-        gitSearchService.findUsers(user, language).toList().toSingle()
+        long start = metrics.requestStarted();
+        context.response().endHandler(v -> metrics.requestFinished(start));
+
+        SearchKey key;
+        Integer limit;
+        Deadline deadline;
+        try {
+            key = parseSearchKey(context.request());
+            limit = parseLimit(context.request());
+            deadline = services.deadline(requestedTimeout(context.request()));
+        } catch (IllegalArgumentException e) {
+            handleError(context, e);
+            return;
+        }
+        if (services.getHotQueries() != null) {
+            services.getHotQueries().record(key);
+        }
+
+        admission.admit(gitSearchService.isPageCached(key)).subscribe(permit -> {
+            if (context.response().closed()) {
+                permit.release();
+                return;
+            }
+            // also called when the connection is closed before the response ended
+            context.response().endHandler(v -> {
+                permit.release();
+                metrics.requestFinished(start);
+            });
+            search(context, key, limit, deadline);
+        }, throwable -> handleError(context, throwable));
+    }
+
+    /**
+     * @param limit users streamed from all pages, only the first page is streamed when null
+     */
+    private void search(RoutingContext context, SearchKey key, Integer limit, Deadline deadline) {
+        if (isStreamRequested(context)) {
+            Observable<User> users = limit == null
+                    ? gitSearchService.findPage(key, deadline).flatMapObservable(page -> {
+                        markStale(context, page);
+                        return gitSearchService.getUsers(page, deadline);
+                    })
+                    : gitSearchService.findAllUsers(key, deadline).take(limit);
+            context.response().putHeader("Trailer", RESULT_COMPLETE_HEADER);
+            users.doOnCompleted(() -> context.response().putTrailer(RESULT_COMPLETE_HEADER, isComplete(deadline)))
+                    .subscribe(new NdjsonResponseSubscriber<>(context.response(), throwable -> handleError(context, throwable)));
+            return;
+        }
+
+        gitSearchService.findPage(key, deadline)
+                .doOnSuccess(page -> markStale(context, page))
+                .flatMap(page -> gitSearchService.getUsers(page, deadline).toList().toSingle()
+                        .doOnSuccess(users -> addNextPageLink(context, page)))
                 .subscribe(
-                        json -> context.response().end(convertToJson(json)),
+                        users -> sendUsers(context, encode(key, users, deadline), deadline),
                         throwable -> handleError(context, throwable)
                 );
     }
 
-    private void handleError(RoutingContext context, Throwable exception) {
-        context.response().putHeader("Content-Type", "text/plain");
+    /**
+     * Many searches in one request, answered with one NDJSON line per search as soon as it completes.
+     * The request takes one admission slot, a profile found by several searches is fetched once.
+     */
+    private void handleBatch(RoutingContext context) {
+        long start = metrics.requestStarted();
+        context.response().endHandler(v -> metrics.requestFinished(start));
 
-        if (ApiLimitReachedException.class.isInstance(exception)) {
-            context.response().setStatusCode(API_LIMIT_REACHED_CODE)
-                    .end("Github API limit reached. Please, wait for reset");
+        JsonObject config = config().getJsonObject(BATCH_CONFIG, new JsonObject());
+        List<SearchKey> keys;
+        Deadline deadline;
+        try {
+            keys = parseBatch(context, config.getInteger("maxQueries", DEFAULT_BATCH_MAX_QUERIES));
+            deadline = services.deadline(requestedTimeout(context.request()));
+        } catch (IllegalArgumentException e) {
+            handleError(context, e);
             return;
         }
 
-        context.response().setStatusCode(DEFAULT_STATUS_CODE).end();
+        admission.admit(false).subscribe(permit -> {
+            if (context.response().closed()) {
+                permit.release();
+                return;
+            }
+            context.response().endHandler(v -> {
+                permit.release();
+                metrics.requestFinished(start);
+            });
+            context.response().putHeader("Trailer", RESULT_COMPLETE_HEADER);
+            gitSearchService.findUsersInBatch(keys, deadline, config.getInteger("concurrency", DEFAULT_BATCH_CONCURRENCY))
+                    .map(BatchLine::of)
+                    .doOnCompleted(() -> context.response().putTrailer(RESULT_COMPLETE_HEADER, isComplete(deadline)))
+                    .subscribe(new NdjsonResponseSubscriber<>(context.response(), throwable -> handleError(context, throwable)));
+        }, throwable -> handleError(context, throwable));
+    }
+
+    /**
+     * Body is a JSON array of searches like {"user": "octo", "language": "java", "per_page": 30}
+     */
+    private static List<SearchKey> parseBatch(RoutingContext context, int maxQueries) {
+        JsonArray queries;
+        try {
+            queries = context.getBodyAsJsonArray();
+        } catch (DecodeException | ClassCastException e) {
+            throw new IllegalArgumentException("body should be a JSON array of searches");
+        }
+        if (queries == null || queries.isEmpty()) {
+            throw new IllegalArgumentException("at least one search should be provided");
+        }
+        if (queries.size() > maxQueries) {
+            throw new IllegalArgumentException("at most " + maxQueries + " searches are allowed in a batch");
+        }
+        List<SearchKey> keys = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            try {
+                JsonObject query = queries.getJsonObject(i);
+                String user = query == null ? null : query.getString(USER_PARAM);
+                if (user == null || user.isEmpty()) {
+                    throw new IllegalArgumentException("userName should be provided in search " + i);
+                }
+                keys.add(SearchKey.of(user, query.getString(LANGUAGE_PARAM), SearchKey.FIRST_PAGE,
+                        query.getInteger(PER_PAGE_PARAM, SearchKey.DEFAULT_PER_PAGE)));
+            } catch (ClassCastException e) {
+                throw new IllegalArgumentException("search " + i + " should be an object with string user and language");
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Partial results are encoded but not cached, the next request may find more
+     */
+    private EncodedResponse encode(SearchKey key, List<User> users, Deadline deadline) {
+        long start = System.nanoTime();
+        EncodedResponse encoded = deadline.isPartial() ? responseCache.encode(users) : responseCache.encode(key, users);
+        metrics.record(Stage.ENCODING, System.nanoTime() - start);
+        return encoded;
+    }
+
+    private static void markStale(RoutingContext context, SearchPage page) {
+        if (page.isStale()) {
+            context.response()
+                    .putHeader(RESULT_STALE_HEADER, "true")
+                    .putHeader(WARNING_HEADER, "110 - \"Response is Stale\"");
+        }
+    }
+
+    private static void sendUsers(RoutingContext context, EncodedResponse encoded, Deadline deadline) {
+        boolean gzip = acceptsGzip(context.request().getHeader(ACCEPT_ENCODING_HEADER));
+        HttpServerResponse response = context.response()
+                .putHeader(RESULT_COMPLETE_HEADER, isComplete(deadline))
+                .putHeader(VARY_HEADER, ACCEPT_ENCODING_HEADER)
+                .putHeader(ETAG_HEADER, gzip ? encoded.getGzipEtag() : encoded.getEtag());
+
+        if (encoded.matches(context.request().getHeader(IF_NONE_MATCH_HEADER))) {
+            response.setStatusCode(NOT_MODIFIED_CODE).end();
+        } else if (gzip) {
+            response.putHeader(CONTENT_ENCODING_HEADER, GZIP).end(encoded.getGzipped());
+        } else {
+            response.end(encoded.getPlain());
+        }
     }
 
-    private static String convertToJson(List<User> json) {
-        return Json.encode(json);
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (GZIP.equalsIgnoreCase(parts[0].trim())) {
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static Long requestedTimeout(HttpServerRequest request) {
+        String timeout = request.getParam(TIMEOUT_PARAM);
+        if (timeout == null) {
+            timeout = request.getHeader(TIMEOUT_HEADER);
+        }
+        return timeout == null ? null : Long.valueOf(timeout);
+    }
+
+    private static String isComplete(Deadline deadline) {
+        return String.valueOf(!deadline.isPartial());
+    }
+
+    private static SearchKey parseSearchKey(HttpServerRequest request) {
+        String cursor = request.getParam(CURSOR_PARAM);
+        if (cursor != null) {
+            return SearchCursor.decode(cursor);
+        }
+
+        String user = request.getParam(USER_PARAM);
+        if (user == null || user.isEmpty()) {
+            throw new IllegalArgumentException("userName should be provided");
+        }
+        String perPage = request.getParam(PER_PAGE_PARAM);
+        return SearchKey.of(user, request.getParam(LANGUAGE_PARAM), SearchKey.FIRST_PAGE,
+                perPage == null ? SearchKey.DEFAULT_PER_PAGE : Integer.parseInt(perPage));
+    }
+
+    /**
+     * @return maximum number of streamed users, null when not limited
+     */
+    private static Integer parseLimit(HttpServerRequest request) {
+        String limit = request.getParam(LIMIT_PARAM);
+        if (limit == null) {
+            return null;
+        }
+        int parsed = Integer.parseInt(limit);
+        if (parsed < 1) {
+            throw new IllegalArgumentException("limit should be positive");
+        }
+        return parsed;
+    }
+
+    private static void addNextPageLink(RoutingContext context, SearchPage page) {
+        if (!page.hasNext()) {
+            return;
+        }
+        String cursor = SearchCursor.encode(page.getKey().next());
+        context.response()
+                .putHeader(NEXT_CURSOR_HEADER, cursor)
+                .putHeader("Link", "<" + SEARCH_PATH + "?" + CURSOR_PARAM + "=" + cursor + ">; rel=\"next\"");
+    }
+
+    private static boolean isStreamRequested(RoutingContext context) {
+        return NdjsonResponseSubscriber.CONTENT_TYPE.equals(context.getAcceptableContentType())
+                || Boolean.parseBoolean(context.request().getParam(STREAM_PARAM));
+    }
+
+    /**
+     * Logins starting with the prefix among those already seen in GitHub responses, no GitHub call is made
+     */
+    private void handleSuggest(RoutingContext context) {
+        HttpServerRequest request = context.request();
+        String prefix = request.getParam(PREFIX_PARAM);
+        int limit;
+        try {
+            if (prefix == null || prefix.isEmpty()) {
+                throw new IllegalArgumentException("prefix should be provided");
+            }
+            String limitParam = request.getParam(LIMIT_PARAM);
+            limit = limitParam == null ? DEFAULT_SUGGEST_LIMIT : Math.min(MAX_SUGGEST_LIMIT, Integer.parseInt(limitParam));
+            if (limit < 1) {
+                throw new IllegalArgumentException("limit should be positive");
+            }
+        } catch (IllegalArgumentException e) {
+            handleError(context, e);
+            return;
+        }
+        JsonArray suggestions = new JsonArray();
+        services.getLoginIndex().suggest(prefix, request.getParam(LANGUAGE_PARAM), limit)
+                .forEach(entry -> suggestions.add(entry.toJson()));
+        context.response().putHeader("Content-Type", JSON).end(suggestions.encode());
+    }
+
+    private void handleStats(RoutingContext context) {
+        JsonObject stats = services.stats()
+                .put(RESPONSE_CACHE_CONFIG, responseCache.stats())
+                .put("coalescedRequests", gitSearchService.coalescedCount())
+                .put("profileBatchFallbacks", gitSearchService.batchFallbackCount())
+                .put(ADMISSION_CONFIG, admission.stats().put("instance", instanceId));
+        context.response().putHeader("Content-Type", "application/json").end(stats.encode());
+    }
+
+    private void handleMetrics(RoutingContext context) {
+        context.response().putHeader("Content-Type", Metrics.CONTENT_TYPE).end(metrics.scrape());
+    }
+
+    /**
+     * Status code of a failed search, of a single one as well as of one of a batch
+     */
+    private static int statusOf(Throwable exception) {
+        if (ApiLimitReachedException.class.isInstance(exception)) {
+            return API_LIMIT_REACHED_CODE;
+        }
+        if (OverloadedException.class.isInstance(exception) || CircuitOpenException.class.isInstance(exception)) {
+            return UNAVAILABLE_CODE;
+        }
+        if (IllegalArgumentException.class.isInstance(exception)) {
+            return BAD_REQUEST_CODE;
+        }
+        if (TimeoutException.class.isInstance(exception)) {
+            return GATEWAY_TIMEOUT_CODE;
+        }
+        if (HTTPException.class.isInstance(exception)) {
+            return BAD_GATEWAY_CODE;
+        }
+        return DEFAULT_STATUS_CODE;
+    }
+
+    private void handleError(RoutingContext context, Throwable exception) {
+        int status = statusOf(exception);
+        HttpServerResponse response = context.response()
+                .putHeader("Content-Type", "text/plain")
+                .setStatusCode(status);
+
+        if (ApiLimitReachedException.class.isInstance(exception)) {
+            long retryAfter = ((ApiLimitReachedException) exception).getRetryAfterSeconds();
+            if (retryAfter > 0) {
+                response.putHeader(RETRY_AFTER_HEADER, String.valueOf(retryAfter));
+            }
+            response.end("Github API limit reached. Please, wait for reset");
+        } else if (OverloadedException.class.isInstance(exception)) {
+            response.putHeader(RETRY_AFTER_HEADER, String.valueOf(((OverloadedException) exception).getRetryAfterSeconds()))
+                    .end("Server is overloaded. Please, retry later");
+        } else if (CircuitOpenException.class.isInstance(exception)) {
+            long retryAfterMillis = ((CircuitOpenException) exception).getRetryAfterMillis();
+            response.putHeader(RETRY_AFTER_HEADER, String.valueOf(Math.max(1, MILLISECONDS.toSeconds(retryAfterMillis + 999))))
+                    .end("Github is unavailable. Please, retry later");
+        } else if (status == BAD_REQUEST_CODE) {
+            response.end(String.valueOf(exception.getMessage()));
+        } else {
+            if (status == DEFAULT_STATUS_CODE) {
+                log.error("Search failed", exception);
+            }
+            response.end();
+        }
+    }
+
+    /**
+     * One line of batch response
+     */
+    @Value
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    static class BatchLine {
+        private int index;
+        private String user;
+        private String language;
+        private List<User> users;
+        private Integer status;
+        private String error;
+
+        static BatchLine of(BatchResult result) {
+            SearchKey key = result.getKey();
+            if (result.getError() == null) {
+                return new BatchLine(result.getIndex(), key.getUserName(), key.getLanguage(), result.getUsers(), null, null);
+            }
+            int status = statusOf(result.getError());
+            if (status == DEFAULT_STATUS_CODE) {
+                log.error("Search {} of batch failed", key, result.getError());
+            }
+            return new BatchLine(result.getIndex(), key.getUserName(), key.getLanguage(), null, status,
+                    String.valueOf(result.getError().getMessage()));
+        }
     }
 }
@@ -0,0 +1,43 @@
+package io.vertx.git.users;
+
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.git.users.github.SearchKey;
+import lombok.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor pointing to a page of search results. It holds the whole search key,
+ * so the client only needs to pass it back to get the next page.
+ */
+final class SearchCursor {
+
+    private static final String USER = "u";
+    private static final String LANGUAGE = "l";
+    private static final String PAGE = "p";
+    private static final String PER_PAGE = "n";
+
+    private SearchCursor() {
+    }
+
+    static String encode(@NonNull SearchKey key) {
+        JsonObject json = new JsonObject()
+                .put(USER, key.getUserName())
+                .put(LANGUAGE, key.getLanguage())
+                .put(PAGE, key.getPage())
+                .put(PER_PAGE, key.getPerPage());
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(json.encode().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static SearchKey decode(@NonNull String cursor) {
+        try {
+            JsonObject json = new JsonObject(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            return SearchKey.of(json.getString(USER), json.getString(LANGUAGE), json.getInteger(PAGE), json.getInteger(PER_PAGE));
+        } catch (IllegalArgumentException | DecodeException | ClassCastException | NullPointerException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
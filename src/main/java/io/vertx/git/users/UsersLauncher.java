@@ -0,0 +1,33 @@
+package io.vertx.git.users;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Launcher;
+import io.vertx.core.json.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Vert.x launcher deploying one {@link RestVerticle} per core unless told otherwise. All instances listen
+ * on the same port, Vert.x spreads connections among their event loops.
+ * Number of instances is taken from "instances" config key, then from -instances option, then the core count.
+ */
+@Slf4j
+public class UsersLauncher extends Launcher {
+
+    private static final String INSTANCES_CONFIG = "instances";
+
+    public static void main(String[] args) {
+        new UsersLauncher().dispatch(args);
+    }
+
+    @Override
+    public void beforeDeployingVerticle(DeploymentOptions deploymentOptions) {
+        JsonObject config = deploymentOptions.getConfig() == null ? new JsonObject() : deploymentOptions.getConfig();
+        Integer configured = config.getInteger(INSTANCES_CONFIG);
+        if (configured != null) {
+            deploymentOptions.setInstances(configured);
+        } else if (deploymentOptions.getInstances() == DeploymentOptions.DEFAULT_INSTANCES) {
+            deploymentOptions.setInstances(Runtime.getRuntime().availableProcessors());
+        }
+        log.info("Deploying {} instances", deploymentOptions.getInstances());
+    }
+}
@@ -0,0 +1,30 @@
+package io.vertx.git.users.github;
+
+import io.vertx.git.users.model.User;
+import lombok.Value;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of one search of a batch, either its users or the error it failed with
+ */
+@Value
+public class BatchResult {
+
+    /**
+     * Position of the search in the batch, results come in the order searches complete
+     */
+    private int index;
+    private SearchKey key;
+    private List<User> users;
+    private Throwable error;
+
+    static BatchResult found(int index, SearchKey key, List<User> users) {
+        return new BatchResult(index, key, users, null);
+    }
+
+    static BatchResult failed(int index, SearchKey key, Throwable error) {
+        return new BatchResult(index, key, Collections.emptyList(), error);
+    }
+}
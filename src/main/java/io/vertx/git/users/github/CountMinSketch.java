@@ -0,0 +1,83 @@
+package io.vertx.git.users.github;
+
+/**
+ * Approximate counts of keys in fixed memory: each key increments one counter per row, and its count is
+ * the smallest of them. Counts are never underestimated, collisions only overestimate them.
+ * Only the counters equal to the smallest one are incremented (conservative update), which keeps collisions low.
+ * Not thread safe.
+ */
+class CountMinSketch {
+
+    private final int width;
+    private final long[][] counters;
+
+    CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("width and depth should be positive");
+        }
+        this.width = width;
+        this.counters = new long[depth][width];
+    }
+
+    /**
+     * @return estimated count of the key including this occurrence
+     */
+    long add(Object key) {
+        int[] columns = columns(key);
+        long estimate = estimate(columns) + 1;
+        for (int row = 0; row < counters.length; row++) {
+            if (counters[row][columns[row]] < estimate) {
+                counters[row][columns[row]] = estimate;
+            }
+        }
+        return estimate;
+    }
+
+    long estimate(Object key) {
+        return estimate(columns(key));
+    }
+
+    /**
+     * Halves all counts, so keys popular long ago give way to those popular now
+     */
+    void decay() {
+        for (long[] row : counters) {
+            for (int column = 0; column < width; column++) {
+                row[column] >>>= 1;
+            }
+        }
+    }
+
+    private long estimate(int[] columns) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counters.length; row++) {
+            estimate = Math.min(estimate, counters[row][columns[row]]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Column of each row, derived from two hashes of the key (Kirsch-Mitzenmacher)
+     */
+    private int[] columns(Object key) {
+        int first = mix(key.hashCode());
+        int second = mix(first ^ 0x9e3779b9) | 1;
+        int[] columns = new int[counters.length];
+        for (int row = 0; row < columns.length; row++) {
+            columns[row] = Math.floorMod(first + row * second, width);
+        }
+        return columns;
+    }
+
+    /**
+     * Finalizer of MurmurHash3, spreads poor hash codes over all bits
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
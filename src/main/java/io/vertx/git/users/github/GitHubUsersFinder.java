@@ -1,27 +1,90 @@
 package io.vertx.git.users.github;
 
 
-import io.vertx.core.json.JsonObject;
+import io.vertx.git.users.github.http.AdaptiveConcurrencyLimiter;
+import io.vertx.git.users.github.http.CircuitOpenException;
+import io.vertx.git.users.github.http.Deadline;
+import io.vertx.git.users.github.http.RateLimitScheduler.Priority;
+import io.vertx.git.users.metrics.Metrics;
+import io.vertx.git.users.metrics.Metrics.Stage;
+import io.vertx.git.users.model.SearchItem;
 import io.vertx.git.users.model.User;
 import io.vertx.rxjava.ext.web.client.WebClient;
+import lombok.Builder;
 import lombok.NonNull;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import rx.Observable;
+import rx.Single;
+import rx.Subscription;
+import rx.observables.ConnectableObservable;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 @Slf4j
 public class GitHubUsersFinder {
 
-    private static final String PROFILE_URL_FIELD = "url";
+    private static final int DEFAULT_PROFILE_CONCURRENCY = 5;
+    private static final double LANGUAGE_SEARCH_SHARE = 0.5;
 
     private final GithubUserWebClient githubClient;
+    private final SearchCache searchCache;
+    private final AdaptiveConcurrencyLimiter profileLimiter;
+    private final int profileConcurrency;
+    private final Metrics metrics;
+    private final GithubGraphqlClient profileBatchClient;
+    private final SearchSpeculation searchSpeculation;
+    private final ProfileServiceClient profileService;
+    private final LongAdder batchFallbacks = new LongAdder();
+    private final SingleFlight<SearchKey, SearchPage> pageFlights = new SingleFlight<>();
+    private final SingleFlight<String, User> profileFlights = new SingleFlight<>();
 
     public GitHubUsersFinder(WebClient client) {
-        githubClient = new GithubUserWebClient(client);
+        this(new GithubUserWebClient(client), null, null, 0, null, null, null, null);
+    }
+
+    /**
+     * @param searchCache        cache of search results, a private one is created when null
+     * @param profileLimiter     limiter of profile fetches shared by all searches, no global limit when null
+     * @param profileConcurrency max number of concurrent profile fetches of one search, default is used when not positive
+     * @param metrics            metrics stage durations are recorded in, a private instance is created when null
+     * @param profileBatchClient client fetching profiles of a page with one GraphQL query, profiles are fetched one by one
+     *                           with REST calls when null; REST calls are also made for profiles the query did not return
+     * @param searchSpeculation  policy of starting search without language while search by language runs,
+     *                           search without language starts only after the other came back empty when null
+     * @param profileService     client of the profile service verticle, profiles are fetched by this finder when null
+     */
+    @Builder
+    private GitHubUsersFinder(@NonNull GithubUserWebClient githubClient,
+                              SearchCache searchCache,
+                              AdaptiveConcurrencyLimiter profileLimiter,
+                              int profileConcurrency,
+                              Metrics metrics,
+                              GithubGraphqlClient profileBatchClient,
+                              SearchSpeculation searchSpeculation,
+                              ProfileServiceClient profileService) {
+        this.githubClient = githubClient;
+        this.searchCache = searchCache != null ? searchCache : new SearchCache();
+        this.profileLimiter = profileLimiter;
+        this.profileConcurrency = profileConcurrency > 0 ? profileConcurrency : DEFAULT_PROFILE_CONCURRENCY;
+        this.metrics = metrics != null ? metrics : new Metrics();
+        this.profileBatchClient = profileBatchClient;
+        this.searchSpeculation = searchSpeculation;
+        this.profileService = profileService;
     }
 
     @SneakyThrows
@@ -30,39 +93,349 @@ public class GitHubUsersFinder {
             return Observable.error(new IllegalArgumentException("userName should be provided"));
         }
 
-        log.debug("Search for users with login:{} and language:{}", userName, language);
+        return findUsers(SearchKey.of(userName, language));
+    }
+
+    /**
+     * Users of a single search page
+     */
+    public Observable<User> findUsers(@NonNull SearchKey key) {
+        return findUsers(key, Deadline.none());
+    }
+
+    /**
+     * Users of a single search page found till the deadline, {@link Deadline#isPartial()} tells whether some were dropped
+     */
+    public Observable<User> findUsers(@NonNull SearchKey key, @NonNull Deadline deadline) {
+        log.debug("Search for users with login:{} and language:{}", key.getUserName(), key.getLanguage());
+        return findPage(key, deadline).flatMapObservable(page -> getUsers(page, deadline));
+    }
+
+    /**
+     * Users of all search pages starting with the given one. Next page is requested from GitHub
+     * only when all users of the previous page were consumed, so unsubscribing early saves the calls.
+     */
+    public Observable<User> findAllUsers(@NonNull SearchKey firstKey) {
+        return findAllUsers(firstKey, Deadline.none());
+    }
+
+    public Observable<User> findAllUsers(@NonNull SearchKey firstKey, @NonNull Deadline deadline) {
+        return deadline.truncate(usersFrom(firstKey, deadline));
+    }
+
+    /**
+     * Users of the first pages of many searches, in the order the searches complete. At most concurrency searches
+     * run at once, all under the same deadline, and each distinct profile URL is fetched once for the whole batch,
+     * however many searches found it. A failed search is reported in its result and does not stop the others.
+     */
+    public Observable<BatchResult> findUsersInBatch(@NonNull List<SearchKey> keys, @NonNull Deadline deadline,
+                                                    int concurrency) {
+        Map<String, Observable<User>> profiles = new HashMap<>();
+        return Observable.range(0, keys.size())
+                .flatMap(index -> findPage(keys.get(index), deadline)
+                        .flatMapObservable(page -> getUsersOnce(page.getItems(), deadline, profiles))
+                        .toList()
+                        .map(users -> BatchResult.found(index, keys.get(index), users))
+                        .onErrorReturn(error -> BatchResult.failed(index, keys.get(index), error)),
+                        Math.max(1, concurrency));
+    }
+
+    /**
+     * Search items of the page. Search of the first page by language falls back to search without language
+     * when nothing is found, key of the returned page tells which search was actually used.
+     */
+    public Single<SearchPage> findPage(@NonNull SearchKey key) {
+        return findPage(key, Deadline.none());
+    }
+
+    /**
+     * Page found till the deadline, an empty page when the search did not make it.
+     * Concurrent callers of the same page share one search, which runs under the latest deadline of the callers
+     * joined so far, so a caller with a short deadline does not cut it short for the others; each caller stops
+     * waiting at its own deadline. A search outliving its callers still fills the cache.
+     */
+    public Single<SearchPage> findPage(@NonNull SearchKey key, @NonNull Deadline deadline) {
+        Observable<SearchPage> page = pageFlights
+                .executeSingle(key, deadline,
+                        shared -> searchCache.get(key, () -> search(key, shared, Priority.HIGH)))
+                .toObservable();
+        return metrics.time(Stage.SEARCH, deadline.truncate(page)
+                .doOnNext(found -> {
+                    if (found.isPartial()) {
+                        deadline.markPartial();
+                    }
+                })
+                .onErrorResumeNext(error -> dropOnDeadline(error, deadline))
+                .defaultIfEmpty(new SearchPage(key, Collections.emptyList()))
+                .toSingle());
+    }
+
+    public Observable<User> getUsers(@NonNull SearchPage page) {
+        return getUsers(page, Deadline.none());
+    }
+
+    /**
+     * Users whose profiles were fetched till the deadline
+     */
+    public Observable<User> getUsers(@NonNull SearchPage page, @NonNull Deadline deadline) {
+        return getUsers(page, deadline, Priority.NORMAL);
+    }
+
+    /**
+     * @param priority priority of profile calls waiting for quota, LOW for background refreshes
+     */
+    public Observable<User> getUsers(@NonNull SearchPage page, @NonNull Deadline deadline, @NonNull Priority priority) {
+        return metrics.time(Stage.PROFILES, deadline.truncate(profileService != null
+                ? profileService.getUsers(page.getItems(), deadline, priority)
+                : getProfiles(page.getItems(), deadline, priority)));
+    }
+
+    /**
+     * Users whose profiles were fetched by this finder, never through the profile service;
+     * this is what the profile service runs for a request
+     */
+    public Observable<User> getProfiles(@NonNull List<SearchItem> items, @NonNull Deadline deadline) {
+        return getProfiles(items, deadline, Priority.NORMAL);
+    }
+
+    public Observable<User> getProfiles(@NonNull List<SearchItem> items, @NonNull Deadline deadline,
+                                        @NonNull Priority priority) {
+        return deadline.truncate(profileBatchClient == null
+                ? Observable.from(items).flatMap(item -> getUserFromProfile(item, deadline, priority), profileConcurrency)
+                : getUsersInBatch(items, deadline, priority));
+    }
+
+    /**
+     * @return true when the page is answered from cache, its profiles usually are then too
+     */
+    public boolean isPageCached(@NonNull SearchKey key) {
+        return searchCache.isCached(key);
+    }
+
+    /**
+     * @return true when the page is cached and expires within the time, or has expired already
+     */
+    public boolean isPageExpiring(@NonNull SearchKey key, long withinMillis) {
+        return searchCache.expiresWithin(key, withinMillis);
+    }
 
-        Observable<JsonObject> searchObservable = language != null
-                ? findWithLanguage(userName, language)
-                : findWithoutLanguage(userName);
+    /**
+     * Searches the cached page again ahead of its expiry, the cached page is replaced once found.
+     * The search waits for quota with low priority, behind searches of client requests.
+     *
+     * @return refreshed page, nothing when it is being refreshed already
+     */
+    public Observable<SearchPage> refreshPage(@NonNull SearchKey key, @NonNull Deadline deadline) {
+        return searchCache.refresh(key, () -> search(key, deadline, Priority.LOW));
+    }
 
-        return searchObservable.flatMap(this::getUserFromProfile);
+    /**
+     * @return number of calls that joined already running search or profile request
+     */
+    public long coalescedCount() {
+        return pageFlights.coalescedCount() + profileFlights.coalescedCount();
     }
 
-    private Observable<JsonObject> findWithLanguage(@NonNull String userName, String language) {
-        return githubClient.searchByNameAndLanguage(userName, language)
-                .onErrorResumeNext(this::treatTimeoutAsEmpty)
-                .switchIfEmpty(findWithoutLanguage(userName));
+    /**
+     * @return number of GraphQL queries which failed, their profiles were fetched with REST calls
+     */
+    public long batchFallbackCount() {
+        return batchFallbacks.sum();
     }
 
-    private Observable<JsonObject> treatTimeoutAsEmpty(Throwable exception) {
+    /**
+     * Profiles not requested by the batch yet are fetched together, the others are taken from the earlier fetch
+     *
+     * @param fetched users of the batch by profile URL
+     */
+    private Observable<User> getUsersOnce(List<SearchItem> items, Deadline deadline,
+                                          Map<String, Observable<User>> fetched) {
+        Map<String, SearchItem> byUrl = new LinkedHashMap<>();
+        items.stream().filter(item -> item.getUrl() != null).forEach(item -> byUrl.putIfAbsent(item.getUrl(), item));
+        List<Observable<User>> users = new ArrayList<>(byUrl.size());
+        synchronized (fetched) {
+            List<SearchItem> missing = new ArrayList<>();
+            byUrl.values().stream().filter(item -> !fetched.containsKey(item.getUrl())).forEach(missing::add);
+            if (!missing.isEmpty()) {
+                Observable<User> fetching = (profileService != null
+                        ? profileService.getUsers(missing, deadline)
+                        : getProfiles(missing, deadline)).cache();
+                missing.forEach(item -> fetched.put(item.getUrl(), fetching
+                        .filter(user -> item.getLogin() != null && item.getLogin().equalsIgnoreCase(user.getLogin()))
+                        .take(1)));
+            }
+            byUrl.keySet().forEach(url -> users.add(fetched.get(url)));
+        }
+        return Observable.merge(users);
+    }
+
+    /**
+     * Users of the page followed by users of the next pages. Pages are not prefetched, the next one is searched
+     * only once the last user of this one was emitted; concatMap passes the demand through, unlike flatMap
+     * which prefetches users.
+     */
+    private Observable<User> usersFrom(SearchKey key, Deadline deadline) {
+        return findPage(key, deadline).toObservable().concatMap(page -> (profileService != null
+                ? profileService.getUsers(page.getItems(), deadline)
+                : getProfiles(page.getItems(), deadline))
+                .concatWith(page.hasNext()
+                        ? Observable.defer(() -> usersFrom(page.getKey().next(), deadline))
+                        : Observable.empty()));
+    }
+
+    /**
+     * Profiles of the page with one GraphQL query, falling back to REST calls for the profiles it did not return
+     * and for all of them when the query failed
+     */
+    private Observable<User> getUsersInBatch(List<SearchItem> items, Deadline deadline, Priority priority) {
+        List<String> logins = new ArrayList<>(items.size());
+        items.stream().map(SearchItem::getLogin).filter(Objects::nonNull).forEach(logins::add);
+        return profileBatchClient.getUsers(logins, deadline, priority)
+                .onErrorResumeNext(error -> {
+                    log.warn("GraphQL profile query failed, fetching {} profiles one by one: {}", items.size(),
+                            error.getMessage());
+                    batchFallbacks.increment();
+                    return Single.just(Collections.emptyMap());
+                })
+                .flatMapObservable(found -> Observable.from(items).flatMap(item -> {
+                    User user = item.getLogin() == null ? null : found.get(item.getLogin().toLowerCase(Locale.ROOT));
+                    return user != null ? Observable.just(user) : getUserFromProfile(item, deadline, priority);
+                }, profileConcurrency));
+    }
+
+    private Single<SearchPage> search(SearchKey key, Deadline deadline, Priority priority) {
+        if (key.getLanguage() == null || key.getPage() != SearchKey.FIRST_PAGE) {
+            return findExactly(key, deadline, priority);
+        }
+        return searchSpeculation == null
+                ? findWithLanguage(key, deadline, priority)
+                : findWithLanguageSpeculatively(key, deadline, priority);
+    }
+
+    /**
+     * Search by language gets only part of the budget, so the fallback search still has time to run
+     */
+    private Single<SearchPage> findWithLanguage(SearchKey key, Deadline deadline, Priority priority) {
+        return searchByLanguage(key, deadline, priority)
+                .flatMap(byLanguage -> byLanguage.isEmpty()
+                        ? findWithoutLanguage(key.withoutLanguage(), deadline, priority).map(page -> partialAs(page, byLanguage))
+                        : Single.just(byLanguage));
+    }
+
+    /**
+     * Same precedence as {@link #findWithLanguage}, but search without language is started after the speculation
+     * delay when quota allows, without waiting for search by language. Its result is used only when search by language
+     * comes back empty, otherwise it is cancelled.
+     */
+    private Single<SearchPage> findWithLanguageSpeculatively(SearchKey key, Deadline deadline, Priority priority) {
+        SearchKey fallbackKey = key.withoutLanguage();
+        return Observable.defer(() -> {
+            // set by whichever comes first: the speculation timer or the empty search by language
+            AtomicBoolean claimed = new AtomicBoolean();
+            ConnectableObservable<SearchPage> speculative = Observable
+                    .timer(searchSpeculation.getDelayMillis(), TimeUnit.MILLISECONDS, searchSpeculation.getScheduler())
+                    .filter(tick -> claimed.compareAndSet(false, true) && searchSpeculation.tryStart())
+                    .flatMap(tick -> findWithoutLanguage(fallbackKey, deadline, priority).toObservable())
+                    .replay(1);
+            Subscription connection = speculative.connect();
+            return searchByLanguage(key, deadline, priority).toObservable()
+                    .flatMap(byLanguage -> {
+                        if (!byLanguage.isEmpty()) {
+                            connection.unsubscribe();
+                            return Observable.just(byLanguage);
+                        }
+                        if (claimed.compareAndSet(false, true)) {
+                            connection.unsubscribe();
+                            return findWithoutLanguage(fallbackKey, deadline, priority).toObservable()
+                                    .map(page -> partialAs(page, byLanguage));
+                        }
+                        return speculative.take(1)
+                                .doOnNext(page -> searchSpeculation.used())
+                                .switchIfEmpty(Observable.defer(() ->
+                                        findWithoutLanguage(fallbackKey, deadline, priority).toObservable()))
+                                .map(page -> partialAs(page, byLanguage));
+                    })
+                    .doOnUnsubscribe(connection::unsubscribe);
+        }).toSingle();
+    }
+
+    /**
+     * @return page found by language, a partial empty page when the search timed out
+     */
+    private Single<SearchPage> searchByLanguage(SearchKey key, Deadline deadline, Priority priority) {
+        Deadline languageDeadline = deadline.portion(LANGUAGE_SEARCH_SHARE);
+        return searchItems(key, languageDeadline, priority)
+                .toList()
+                .map(items -> new SearchPage(key, items))
+                .onErrorResumeNext(error -> treatTimeoutAsEmpty(key, error, languageDeadline))
+                .toSingle();
+    }
+
+    private Observable<SearchPage> treatTimeoutAsEmpty(SearchKey key, Throwable exception, Deadline deadline) {
         if (TimeoutException.class.isInstance(exception)) {
             log.info("Request timed out - treating it as empty");
-            return Observable.empty();
+            deadline.markPartial();
+            return Observable.just(new SearchPage(key, Collections.emptyList()).asPartial());
         }
         return Observable.error(exception);
     }
 
-    private Observable<JsonObject> findWithoutLanguage(@NonNull String userName) {
-        return githubClient.searchByNameAndLanguage(userName, null)
-                .doOnSubscribe(() -> log.debug("Search users by username only: {}", userName));
+    /**
+     * Fallback page found after search by language timed out is partial as well
+     */
+    private static SearchPage partialAs(SearchPage page, SearchPage byLanguage) {
+        return byLanguage.isPartial() ? page.asPartial() : page;
+    }
+
+    private Single<SearchPage> findWithoutLanguage(SearchKey key, Deadline deadline, Priority priority) {
+        return metrics.time(Stage.LANGUAGE_FALLBACK, findExactly(key, deadline, priority))
+                .doOnSubscribe(() -> log.debug("Search users by username only: {}", key.getUserName()));
+    }
+
+    private Single<SearchPage> findExactly(SearchKey key, Deadline deadline, Priority priority) {
+        return searchItems(key, deadline, priority)
+                .toList()
+                .toSingle()
+                .map(items -> new SearchPage(key, items));
+    }
+
+    private Observable<SearchItem> searchItems(SearchKey key, Deadline deadline, Priority priority) {
+        return githubClient.searchByNameAndLanguage(key.getUserName(), key.getLanguage(), key.getPage(), key.getPerPage(),
+                deadline, priority);
     }
 
-    private Observable<User> getUserFromProfile(JsonObject userSearchResult) {
-        return buildUrl(userSearchResult.getString(PROFILE_URL_FIELD))
+    /**
+     * Profile that could not be fetched in time or while GitHub is unavailable is left out of the result
+     * instead of failing the whole search. Like searches, concurrent fetches of the same profile are shared
+     * and run under the latest deadline of the callers; each caller cuts the result at its own deadline.
+     * Background fetches are not shared, so a client request never waits behind a low priority fetch.
+     */
+    private Observable<User> getUserFromProfile(SearchItem item, Deadline deadline, Priority priority) {
+        return buildUrl(item.getUrl())
                 .doOnNext(url -> log.debug("Requesting user information by profile URL:{}", url))
-                .flatMapSingle(githubClient::getByProfile)
-                .map(json -> json.mapTo(User.class));
+                .flatMapSingle(url -> priority == Priority.LOW
+                        ? fetchProfile(url, deadline, priority)
+                        : profileFlights.executeSingle(url.toExternalForm(), deadline,
+                                shared -> fetchProfile(url, shared, priority)))
+                .onErrorResumeNext(error -> dropUnavailable(error, deadline));
+    }
+
+    private Single<User> fetchProfile(URL url, Deadline deadline, Priority priority) {
+        Supplier<Single<User>> call = () -> githubClient.getByProfile(url, deadline, priority);
+        return profileLimiter == null ? call.get() : profileLimiter.execute(call);
+    }
+
+    private static <T> Observable<T> dropOnDeadline(Throwable error, Deadline deadline) {
+        return deadline.isExpired() ? dropUnavailable(error, deadline) : Observable.error(error);
+    }
+
+    private static <T> Observable<T> dropUnavailable(Throwable error, Deadline deadline) {
+        if (TimeoutException.class.isInstance(error) || CircuitOpenException.class.isInstance(error)) {
+            log.info("Dropping part of the result: {}", error.getMessage());
+            deadline.markPartial();
+            return Observable.empty();
+        }
+        return Observable.error(error);
     }
 
     private Observable<URL> buildUrl(String url) {
@@ -0,0 +1,135 @@
+package io.vertx.git.users.github;
+
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.git.users.github.http.CircuitBreaker;
+import io.vertx.git.users.github.http.Deadline;
+import io.vertx.git.users.github.http.RateLimitBucket;
+import io.vertx.git.users.github.http.RateLimitScheduler;
+import io.vertx.git.users.github.http.RateLimitScheduler.Priority;
+import io.vertx.git.users.github.http.SafeWebClient;
+import io.vertx.git.users.github.http.TokenPool;
+import io.vertx.git.users.metrics.Metrics;
+import io.vertx.git.users.model.User;
+import io.vertx.rxjava.core.buffer.Buffer;
+import io.vertx.rxjava.ext.web.client.WebClient;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import rx.Single;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Fetches profiles of a whole search page with one GitHub GraphQL query, one aliased user field per login.
+ * GitHub answers GraphQL only to authenticated clients.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class GithubGraphqlClient {
+
+    private static final String GRAPHQL_PATH = "/graphql";
+    private static final String FIELDS = "login name avatarUrl url followers { totalCount }";
+
+    private final WebClient client;
+    private final RateLimitScheduler scheduler;
+    private final CircuitBreaker breaker;
+    private final Metrics metrics;
+    private final URL graphqlUrl;
+    private final TokenPool tokens;
+
+    public static URL graphqlUrl(@NonNull String baseUrl) {
+        try {
+            return new URL(baseUrl.replaceAll("/+$", "") + GRAPHQL_PATH);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid GitHub base URL: " + baseUrl, e);
+        }
+    }
+
+    /**
+     * @return users found, keyed by lower case login; logins GitHub did not resolve are left out
+     */
+    public Single<Map<String, User>> getUsers(@NonNull List<String> logins, Deadline deadline) {
+        return getUsers(logins, deadline, Priority.NORMAL);
+    }
+
+    /**
+     * @param priority priority of the query waiting for quota, NORMAL for profiles of client requests
+     */
+    public Single<Map<String, User>> getUsers(@NonNull List<String> logins, Deadline deadline,
+                                              @NonNull Priority priority) {
+        if (logins.isEmpty()) {
+            return Single.just(Collections.emptyMap());
+        }
+        return SafeWebClient.builder()
+                .client(client)
+                .url(graphqlUrl)
+                .scheduler(scheduler)
+                .bucket(RateLimitBucket.GRAPHQL)
+                .priority(priority)
+                .deadline(deadline)
+                .breaker(breaker)
+                .metrics(metrics)
+                .tokens(tokens)
+                .build()
+                .postJson(query(logins))
+                .map(body -> readUsers(body, logins.size()));
+    }
+
+    static JsonObject query(List<String> logins) {
+        StringBuilder parameters = new StringBuilder();
+        StringBuilder fields = new StringBuilder();
+        JsonObject variables = new JsonObject();
+        for (int i = 0; i < logins.size(); i++) {
+            parameters.append(i == 0 ? "" : ", ").append("$l").append(i).append(": String!");
+            fields.append(" u").append(i).append(": user(login: $l").append(i).append(") { ").append(FIELDS).append(" }");
+            variables.put("l" + i, logins.get(i));
+        }
+        return new JsonObject()
+                .put("query", "query(" + parameters + ") {" + fields + " }")
+                .put("variables", variables);
+    }
+
+    static Map<String, User> readUsers(Buffer body, int requested) {
+        JsonObject response = body.toJsonObject();
+        JsonObject data = response.getJsonObject("data");
+        if (data == null) {
+            JsonArray errors = response.getJsonArray("errors", new JsonArray());
+            throw new DecodeException("GraphQL query failed: " + (errors.isEmpty() ? response.encode() : errors.encode()));
+        }
+        Map<String, User> users = new HashMap<>(requested * 2);
+        for (int i = 0; i < requested; i++) {
+            JsonObject found = data.getJsonObject("u" + i);
+            if (found != null) {
+                User user = toUser(found);
+                users.put(user.getLogin().toLowerCase(Locale.ROOT), user);
+            }
+        }
+        return users;
+    }
+
+    private static User toUser(JsonObject found) {
+        User user = new User();
+        user.setLogin(found.getString("login"));
+        user.setName(found.getString("name"));
+        user.setFollowers(found.getJsonObject("followers", new JsonObject()).getLong("totalCount", 0L));
+        user.setAvatarUrl(toUrl(found.getString("avatarUrl")));
+        user.setProfileUrl(toUrl(found.getString("url")));
+        return user;
+    }
+
+    private static URL toUrl(String value) {
+        try {
+            return value == null ? null : new URL(value);
+        } catch (MalformedURLException e) {
+            throw new DecodeException("Malformed URL " + value);
+        }
+    }
+}
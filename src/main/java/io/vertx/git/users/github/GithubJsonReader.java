@@ -0,0 +1,122 @@
+package io.vertx.git.users.github;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.netty.buffer.ByteBufInputStream;
+import io.vertx.core.json.DecodeException;
+import io.vertx.git.users.model.SearchItem;
+import io.vertx.git.users.model.User;
+import io.vertx.rxjava.core.buffer.Buffer;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads GitHub responses straight from the response buffer with a streaming parser.
+ * Only the fields the application uses are read, everything else is skipped without building a JSON tree.
+ */
+final class GithubJsonReader {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private GithubJsonReader() {
+    }
+
+    static List<SearchItem> readSearchItems(@NonNull Buffer body) {
+        try (JsonParser parser = open(body)) {
+            List<SearchItem> items = new ArrayList<>();
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("items".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        items.add(readSearchItem(parser));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return items;
+        } catch (IOException e) {
+            throw new DecodeException("Failed to decode search response: " + e.getMessage());
+        }
+    }
+
+    static User readUser(@NonNull Buffer body) {
+        try (JsonParser parser = open(body)) {
+            User user = new User();
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                if (parser.nextToken().isStructStart()) {
+                    parser.skipChildren();
+                    continue;
+                }
+                switch (field) {
+                    case "login":
+                        user.setLogin(parser.getValueAsString());
+                        break;
+                    case "name":
+                        user.setName(parser.getValueAsString());
+                        break;
+                    case "followers":
+                        user.setFollowers(parser.getValueAsLong());
+                        break;
+                    case "avatar_url":
+                        user.setAvatarUrl(toUrl(parser.getValueAsString()));
+                        break;
+                    case "html_url":
+                        user.setProfileUrl(toUrl(parser.getValueAsString()));
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return user;
+        } catch (IOException e) {
+            throw new DecodeException("Failed to decode user profile: " + e.getMessage());
+        }
+    }
+
+    private static SearchItem readSearchItem(JsonParser parser) throws IOException {
+        String login = null;
+        String url = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (parser.nextToken().isStructStart()) {
+                parser.skipChildren();
+            } else if ("login".equals(field)) {
+                login = parser.getValueAsString();
+            } else if ("url".equals(field)) {
+                url = parser.getValueAsString();
+            }
+        }
+        return new SearchItem(login, url);
+    }
+
+    private static JsonParser open(Buffer body) throws IOException {
+        InputStream bytes = new ByteBufInputStream(body.getDelegate().getByteBuf());
+        return FACTORY.createParser(bytes);
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Expected " + expected + " but got " + actual);
+        }
+    }
+
+    private static URL toUrl(String value) throws IOException {
+        try {
+            return value == null ? null : new URL(value);
+        } catch (MalformedURLException e) {
+            throw new IOException("Malformed URL " + value, e);
+        }
+    }
+}
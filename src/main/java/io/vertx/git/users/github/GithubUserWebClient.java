@@ -1,11 +1,20 @@
 package io.vertx.git.users.github;
 
-import io.vertx.core.json.JsonArray;
-import io.vertx.core.json.JsonObject;
+import io.vertx.git.users.github.http.CircuitBreaker;
+import io.vertx.git.users.github.http.Deadline;
+import io.vertx.git.users.github.http.RateLimitBucket;
+import io.vertx.git.users.github.http.RateLimitScheduler;
+import io.vertx.git.users.github.http.RateLimitScheduler.Priority;
+import io.vertx.git.users.github.http.RequestHedger;
+import io.vertx.git.users.github.http.ResponseCache;
 import io.vertx.git.users.github.http.SafeWebClient;
+import io.vertx.git.users.github.http.TokenPool;
+import io.vertx.git.users.metrics.Metrics;
+import io.vertx.git.users.model.SearchItem;
+import io.vertx.git.users.model.User;
 import io.vertx.rxjava.ext.web.client.WebClient;
+import lombok.Builder;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import rx.Observable;
@@ -14,50 +23,158 @@ import rx.Single;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLDecoder;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 
 @Slf4j
-@RequiredArgsConstructor
 public class GithubUserWebClient {
 
-    private static final String SEARCH_API_URL = "http://api.github.com/search/users";
+    public static final String DEFAULT_BASE_URL = "http://api.github.com";
+    private static final String SEARCH_PATH = "/search/users";
 
-    private static URL gitHubUrl;
+    private static final String QUERY_PARAM = "q";
+    private static final String PAGE_PARAM = "page";
+    private static final String PER_PAGE_PARAM = "per_page";
+
+    private final WebClient client;
+    private final ResponseCache profileCache;
+    private final RateLimitScheduler scheduler;
+    private final CircuitBreaker breaker;
+    private final Metrics metrics;
+    private final URL searchUrl;
+    private final TokenPool tokens;
+    private final LoginIndex loginIndex;
+    private final RequestHedger profileHedger;
+
+    public GithubUserWebClient(WebClient client) {
+        this(client, new ResponseCache(), null, null, null);
+    }
 
-    static {
+    public GithubUserWebClient(WebClient client, ResponseCache profileCache, RateLimitScheduler scheduler,
+                               CircuitBreaker breaker, Metrics metrics) {
+        this(client, profileCache, scheduler, breaker, metrics, null, null, null, null);
+    }
+
+    /**
+     * @param searchUrl     URL of user search, the one of {@link #DEFAULT_BASE_URL} when null
+     * @param tokens        tokens calls are authorized with, calls are anonymous when null
+     * @param loginIndex    index filled with logins of search and profile responses, may be null
+     * @param profileHedger hedger of slow profile calls, it sees calls made to GitHub only, not cache hits;
+     *                      no hedging when null
+     */
+    @Builder
+    private GithubUserWebClient(WebClient client, ResponseCache profileCache, RateLimitScheduler scheduler,
+                                CircuitBreaker breaker, Metrics metrics, URL searchUrl, TokenPool tokens,
+                                LoginIndex loginIndex, RequestHedger profileHedger) {
+        this.client = client;
+        this.profileCache = profileCache;
+        this.scheduler = scheduler;
+        this.breaker = breaker;
+        this.metrics = metrics;
+        this.searchUrl = searchUrl != null ? searchUrl : searchUrl(DEFAULT_BASE_URL);
+        this.tokens = tokens;
+        this.loginIndex = loginIndex;
+        this.profileHedger = profileHedger;
+    }
+
+    /**
+     * @param baseUrl GitHub API root, e.g. a local simulator; profiles are fetched from URLs returned by the search
+     */
+    public static URL searchUrl(@NonNull String baseUrl) {
         try {
-            gitHubUrl = new URL(SEARCH_API_URL);
+            return new URL(baseUrl.replaceAll("/+$", "") + SEARCH_PATH);
         } catch (MalformedURLException e) {
-            throw new RuntimeException(e);
+            throw new IllegalArgumentException("Invalid GitHub base URL: " + baseUrl, e);
         }
     }
 
-    private static final String QUERY_PARAM = "q";
+    public Observable<SearchItem> searchByNameAndLanguage(@NonNull String username, String language) {
+        return searchByNameAndLanguage(username, language, SearchKey.FIRST_PAGE, SearchKey.DEFAULT_PER_PAGE);
+    }
 
-    private final WebClient client;
+    public Observable<SearchItem> searchByNameAndLanguage(@NonNull String username, String language, int page, int perPage) {
+        return searchByNameAndLanguage(username, language, page, perPage, null);
+    }
+
+    /**
+     * @param deadline budget of the client request, no budget when null
+     */
+    public Observable<SearchItem> searchByNameAndLanguage(@NonNull String username, String language, int page, int perPage,
+                                                          Deadline deadline) {
+        return searchByNameAndLanguage(username, language, page, perPage, deadline, Priority.HIGH);
+    }
 
-    public Observable<JsonObject> searchByNameAndLanguage(@NonNull String username, String language) {
-        String query = buildQuery(username, language);
-        return new SafeWebClient(client, gitHubUrl)
-                .get(QUERY_PARAM, query)
-                .map(json -> json.getJsonArray("items"))
+    /**
+     * @param priority priority of the call waiting for quota, HIGH for searches of client requests
+     */
+    public Observable<SearchItem> searchByNameAndLanguage(@NonNull String username, String language, int page, int perPage,
+                                                          Deadline deadline, @NonNull Priority priority) {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put(QUERY_PARAM, buildQuery(username, language));
+        if (page != SearchKey.FIRST_PAGE) {
+            params.put(PAGE_PARAM, String.valueOf(page));
+        }
+        if (perPage != SearchKey.DEFAULT_PER_PAGE) {
+            params.put(PER_PAGE_PARAM, String.valueOf(perPage));
+        }
+        return SafeWebClient.builder()
+                .client(client)
+                .url(searchUrl)
+                .scheduler(scheduler)
+                .bucket(RateLimitBucket.SEARCH)
+                .priority(priority)
+                .deadline(deadline)
+                .breaker(breaker)
+                .metrics(metrics)
+                .tokens(tokens)
+                .build()
+                .getBody(params)
+                .map(GithubJsonReader::readSearchItems)
+                .doOnSuccess(items -> {
+                    if (loginIndex != null) {
+                        loginIndex.addAll(items, language);
+                    }
+                })
                 .toObservable()
-                .map(this::convertIntoJsons)
                 .flatMap(Observable::from);
     }
 
-    public Single<JsonObject> getByProfile(@NonNull URL profileUrl) {
-        return new SafeWebClient(client, profileUrl).get();
+    public Single<User> getByProfile(@NonNull URL profileUrl) {
+        return getByProfile(profileUrl, null);
     }
 
-    private List<JsonObject> convertIntoJsons(JsonArray jsonArray) {
-        ArrayList<JsonObject> result = new ArrayList<>(jsonArray.size());
-        for (int i = 0; i < jsonArray.size(); i++) {
-            result.add(jsonArray.getJsonObject(i));
-        }
-        return result;
+    /**
+     * @param deadline budget of the client request, no budget when null
+     */
+    public Single<User> getByProfile(@NonNull URL profileUrl, Deadline deadline) {
+        return getByProfile(profileUrl, deadline, Priority.NORMAL);
+    }
+
+    /**
+     * @param priority priority of the call waiting for quota, NORMAL for profiles of client requests
+     */
+    public Single<User> getByProfile(@NonNull URL profileUrl, Deadline deadline, @NonNull Priority priority) {
+        return SafeWebClient.builder()
+                .client(client)
+                .url(profileUrl)
+                .cache(profileCache)
+                .scheduler(scheduler)
+                .bucket(RateLimitBucket.CORE)
+                .priority(priority)
+                .deadline(deadline)
+                .breaker(breaker)
+                .metrics(metrics)
+                .tokens(tokens)
+                .hedger(profileHedger)
+                .build()
+                .getBody()
+                .map(GithubJsonReader::readUser)
+                .doOnSuccess(user -> {
+                    if (loginIndex != null) {
+                        loginIndex.add(user.getLogin(), null);
+                    }
+                });
     }
 
     @SneakyThrows
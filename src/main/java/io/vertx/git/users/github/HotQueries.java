@@ -0,0 +1,127 @@
+package io.vertx.git.users.github;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Most searched pages, found in fixed memory: searches are counted by a Count-Min sketch, and the keys with the highest
+ * counts are kept in a min-heap of bounded size. A key enters the heap once its count exceeds the smallest one there.
+ * Counts are halved by {@link #decay()}, so the hot set follows current traffic.
+ */
+public class HotQueries {
+
+    private final int maxSize;
+    private final long minCount;
+    private final CountMinSketch sketch;
+    private final PriorityQueue<Counter> heap = new PriorityQueue<>(Comparator.comparingLong(counter -> counter.count));
+    private final Map<SearchKey, Counter> tracked = new HashMap<>();
+    private long recorded;
+
+    /**
+     * @param maxSize  number of keys tracked
+     * @param minCount count a tracked key needs to be hot
+     * @param width    counters per row of the sketch, more of them make collisions less likely
+     * @param depth    rows of the sketch, more of them make an overestimate less likely
+     */
+    public HotQueries(int maxSize, long minCount, int width, int depth) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize should be positive");
+        }
+        this.maxSize = maxSize;
+        this.minCount = minCount;
+        this.sketch = new CountMinSketch(width, depth);
+    }
+
+    public synchronized void record(SearchKey key) {
+        recorded++;
+        long count = sketch.add(key);
+        Counter counter = tracked.get(key);
+        if (counter != null) {
+            heap.remove(counter);
+            counter.count = count;
+            heap.add(counter);
+            return;
+        }
+        if (tracked.size() >= maxSize) {
+            if (heap.peek().count >= count) {
+                return;
+            }
+            tracked.remove(heap.poll().key);
+        }
+        counter = new Counter(key, count);
+        tracked.put(key, counter);
+        heap.add(counter);
+    }
+
+    /**
+     * Halves all counts; keys whose count drops to zero are no longer tracked
+     */
+    public synchronized void decay() {
+        sketch.decay();
+        heap.forEach(counter -> counter.count >>>= 1);
+        heap.removeIf(counter -> counter.count == 0);
+        tracked.values().removeIf(counter -> counter.count == 0);
+    }
+
+    /**
+     * @return keys counted at least minCount times, the most searched first
+     */
+    public synchronized List<HotQuery> hot() {
+        List<HotQuery> hot = new ArrayList<>();
+        for (Counter counter : heap) {
+            if (counter.count >= minCount) {
+                hot.add(new HotQuery(counter.key, counter.count));
+            }
+        }
+        hot.sort(Comparator.comparingLong(HotQuery::getCount).reversed());
+        return hot;
+    }
+
+    public synchronized int size() {
+        return tracked.size();
+    }
+
+    public JsonObject stats() {
+        List<HotQuery> hot = hot();
+        JsonArray queries = new JsonArray();
+        hot.forEach(query -> queries.add(new JsonObject()
+                .put("user", query.getKey().getUserName())
+                .put("language", query.getKey().getLanguage())
+                .put("page", query.getKey().getPage())
+                .put("perPage", query.getKey().getPerPage())
+                .put("count", query.getCount())));
+        synchronized (this) {
+            return new JsonObject()
+                    .put("recorded", recorded)
+                    .put("tracked", tracked.size())
+                    .put("hot", queries);
+        }
+    }
+
+    /**
+     * Search page with its estimated count, decayed
+     */
+    @Value
+    public static class HotQuery {
+        private SearchKey key;
+        private long count;
+    }
+
+    private static class Counter {
+        private final SearchKey key;
+        private long count;
+
+        private Counter(SearchKey key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package io.vertx.git.users.github;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.git.users.github.HotQueries.HotQuery;
+import io.vertx.git.users.github.http.Deadline;
+import io.vertx.git.users.github.http.RateLimitBucket;
+import io.vertx.git.users.github.http.RateLimitScheduler;
+import io.vertx.git.users.github.http.RateLimitScheduler.Priority;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import rx.Observable;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Searches hot pages again shortly before their cache entries expire, so clients searching them
+ * never wait for GitHub nor get a stale page. Refreshes spend spare quota only: a run stops as soon as
+ * calls wait for quota or no more than the reserved share of it is left, and profiles of a refreshed page
+ * are revalidated only while their quota is spare too. Calls of a refresh wait for quota with low priority,
+ * so calls of client requests queued after them are still sent first.
+ */
+@Slf4j
+public class HotQueryRefresher {
+
+    private final HotQueries hotQueries;
+    private final GitHubUsersFinder finder;
+    private final RateLimitScheduler scheduler;
+    private final long refreshAheadMillis;
+    private final double reservedShare;
+    private final int maxRefreshesPerRun;
+    private final Supplier<Deadline> deadlines;
+
+    private final LongAdder started = new LongAdder();
+    private final LongAdder refreshed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    /**
+     * @param refreshAheadMillis time before expiry a hot page is refreshed
+     * @param reservedShare      share of quota left for live traffic
+     * @param maxRefreshesPerRun refreshes started by one {@link #run()} at most
+     * @param deadlines          budget of each refresh
+     */
+    public HotQueryRefresher(@NonNull HotQueries hotQueries, @NonNull GitHubUsersFinder finder,
+                             @NonNull RateLimitScheduler scheduler, long refreshAheadMillis, double reservedShare,
+                             int maxRefreshesPerRun, @NonNull Supplier<Deadline> deadlines) {
+        this.hotQueries = hotQueries;
+        this.finder = finder;
+        this.scheduler = scheduler;
+        this.refreshAheadMillis = refreshAheadMillis;
+        this.reservedShare = reservedShare;
+        this.maxRefreshesPerRun = maxRefreshesPerRun;
+        this.deadlines = deadlines;
+    }
+
+    /**
+     * Starts refreshes of the hottest pages about to expire
+     */
+    public void run() {
+        int startedNow = 0;
+        for (HotQuery query : hotQueries.hot()) {
+            if (startedNow >= maxRefreshesPerRun) {
+                return;
+            }
+            if (!finder.isPageExpiring(query.getKey(), refreshAheadMillis)) {
+                continue;
+            }
+            if (!hasSpareBudget(RateLimitBucket.SEARCH)) {
+                log.debug("Not enough search quota to refresh hot pages");
+                skipped.increment();
+                return;
+            }
+            startedNow++;
+            refresh(query.getKey());
+        }
+    }
+
+    public JsonObject stats() {
+        return new JsonObject()
+                .put("started", started.sum())
+                .put("refreshed", refreshed.sum())
+                .put("failed", failed.sum())
+                .put("skipped", skipped.sum());
+    }
+
+    /**
+     * @return number of hot pages refreshed so far
+     */
+    public long refreshedCount() {
+        return refreshed.sum();
+    }
+
+    private void refresh(SearchKey key) {
+        log.debug("Refreshing hot search page {}", key);
+        started.increment();
+        Deadline deadline = deadlines.get();
+        finder.refreshPage(key, deadline)
+                .doOnNext(page -> refreshed.increment())
+                .flatMap(page -> hasSpareBudget(RateLimitBucket.CORE) && hasSpareBudget(RateLimitBucket.GRAPHQL)
+                        ? finder.getUsers(page, deadline, Priority.LOW)
+                        : Observable.empty())
+                .subscribe(
+                        user -> {
+                        },
+                        error -> {
+                            failed.increment();
+                            log.debug("Refresh of hot search page {} failed", key, error);
+                        });
+    }
+
+    /**
+     * Live calls waiting for quota take precedence over any refresh
+     */
+    private boolean hasSpareBudget(RateLimitBucket bucket) {
+        return scheduler.queueSize(bucket) == 0 && scheduler.hasSpareBudget(bucket, reservedShare);
+    }
+}
@@ -0,0 +1,43 @@
+package io.vertx.git.users.github;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.MessageCodec;
+import lombok.NonNull;
+
+/**
+ * Codec passing objects between verticles of the same Vert.x instance as they are, without serialization.
+ * Objects sent with it must not be modified afterwards; they can not be sent to other nodes of a cluster.
+ */
+public class LocalCodec<T> implements MessageCodec<T, T> {
+
+    private final String name;
+
+    public LocalCodec(@NonNull Class<T> type) {
+        this.name = "local-" + type.getName();
+    }
+
+    @Override
+    public void encodeToWire(Buffer buffer, T object) {
+        throw new UnsupportedOperationException(name + " can not send messages over the network");
+    }
+
+    @Override
+    public T decodeFromWire(int pos, Buffer buffer) {
+        throw new UnsupportedOperationException(name + " can not receive messages from the network");
+    }
+
+    @Override
+    public T transform(T object) {
+        return object;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+}
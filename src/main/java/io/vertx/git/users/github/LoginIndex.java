@@ -0,0 +1,120 @@
+package io.vertx.git.users.github;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.git.users.model.SearchItem;
+import lombok.NonNull;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logins seen in GitHub responses, sorted so the logins starting with a prefix are one range of the map,
+ * together with the languages they were found by. Type-ahead queries are answered from it without GitHub calls.
+ * Once full, new logins are not added; languages of known ones still are.
+ */
+public class LoginIndex {
+
+    // sorts after any character allowed in a login, closes the range of a prefix
+    private static final char PREFIX_END = Character.MAX_VALUE;
+
+    private final int maxSize;
+    private final ConcurrentSkipListMap<String, Entry> logins = new ConcurrentSkipListMap<>();
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public LoginIndex(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param language language the login was found by, null when searched without one
+     */
+    public void add(String login, String language) {
+        if (login == null || login.isEmpty()) {
+            return;
+        }
+        String key = login.toLowerCase(Locale.ROOT);
+        String normalizedLanguage = language == null ? null : language.toLowerCase(Locale.ROOT);
+        Entry known = logins.get(key);
+        if (known == null && logins.size() >= maxSize) {
+            rejected.increment();
+            return;
+        }
+        if (known != null && (normalizedLanguage == null || known.getLanguages().contains(normalizedLanguage))) {
+            return;
+        }
+        logins.merge(key, Entry.of(login, normalizedLanguage), Entry::merge);
+    }
+
+    public void addAll(@NonNull List<SearchItem> items, String language) {
+        items.forEach(item -> add(item.getLogin(), language));
+    }
+
+    /**
+     * @param language when given, only logins found by that language are returned
+     * @return at most limit logins starting with the prefix, case insensitive, in alphabetical order
+     */
+    public List<Entry> suggest(@NonNull String prefix, String language, int limit) {
+        lookups.increment();
+        String from = prefix.toLowerCase(Locale.ROOT);
+        String normalizedLanguage = language == null ? null : language.toLowerCase(Locale.ROOT);
+        ConcurrentNavigableMap<String, Entry> range = logins.subMap(from, true, from + PREFIX_END, false);
+        List<Entry> found = new ArrayList<>(Math.min(limit, 16));
+        for (Entry entry : range.values()) {
+            if (found.size() >= limit) {
+                break;
+            }
+            if (normalizedLanguage == null || entry.getLanguages().contains(normalizedLanguage)) {
+                found.add(entry);
+            }
+        }
+        return found;
+    }
+
+    public int size() {
+        return logins.size();
+    }
+
+    public JsonObject stats() {
+        return new JsonObject()
+                .put("size", logins.size())
+                .put("maxSize", maxSize)
+                .put("lookups", lookups.sum())
+                .put("rejected", rejected.sum());
+    }
+
+    @Value
+    public static class Entry {
+        String login;
+        Set<String> languages;
+
+        static Entry of(String login, String language) {
+            return new Entry(login, language == null ? Collections.emptySet() : Collections.singleton(language));
+        }
+
+        Entry merge(Entry other) {
+            if (languages.containsAll(other.languages)) {
+                return this;
+            }
+            Set<String> merged = new TreeSet<>(languages);
+            merged.addAll(other.languages);
+            return new Entry(login, Collections.unmodifiableSet(merged));
+        }
+
+        public JsonObject toJson() {
+            return new JsonObject()
+                    .put("login", login)
+                    .put("languages", new JsonArray(new ArrayList<>(languages)));
+        }
+    }
+}
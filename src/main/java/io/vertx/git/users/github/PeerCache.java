@@ -0,0 +1,214 @@
+package io.vertx.git.users.github;
+
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.git.users.github.http.RateLimitBucket;
+import io.vertx.git.users.github.http.RateLimitScheduler;
+import io.vertx.git.users.github.http.ResponseCache;
+import io.vertx.git.users.github.http.ResponseCache.CachedResponse;
+import io.vertx.rxjava.core.Vertx;
+import io.vertx.rxjava.core.eventbus.Message;
+import io.vertx.rxjava.core.eventbus.MessageConsumer;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import rx.Observable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Makes nodes running behind a load balancer act as one towards GitHub, over the event bus,
+ * which spans all nodes when Vert.x runs clustered. Nodes announce themselves with heartbeats.
+ * A node missing a profile or a search page asks all live peers for it before calling GitHub,
+ * peers answer with fresh entries only. Quota seen in GitHub responses is published to peers,
+ * which keep the lowest remaining count of the window, and every node paces its calls to its share of it.
+ */
+@Slf4j
+public class PeerCache {
+
+    private static final String PEERS_ADDRESS = "git-users.peers";
+    private static final String QUOTA_ADDRESS = "git-users.quota";
+    private static final String LOOKUP_ADDRESS_PREFIX = "git-users.peer.";
+    private static final String NODE = "node";
+    private static final String TYPE = "type";
+    private static final String PROFILE = "profile";
+    private static final String SEARCH = "search";
+    private static final int NOT_FOUND = 404;
+    private static final int EXPIRED_HEARTBEATS = 3;
+
+    private final Vertx vertx;
+    @Getter
+    private final String nodeId;
+    private final long lookupTimeoutMillis;
+    private final long heartbeatMillis;
+    private final ResponseCache profileCache;
+    private final SearchCache searchCache;
+    private final RateLimitScheduler scheduler;
+
+    private final Map<String, Long> peers = new ConcurrentHashMap<>();
+    private final List<MessageConsumer<JsonObject>> consumers = new ArrayList<>();
+    private long heartbeatTimer = -1;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder answered = new LongAdder();
+    private final LongAdder quotaUpdates = new LongAdder();
+
+    /**
+     * @param lookupTimeoutMillis time peers have to answer a lookup, the node calls GitHub afterwards
+     * @param heartbeatMillis     interval of heartbeats, a peer silent for three of them is considered gone
+     */
+    public PeerCache(@NonNull Vertx vertx, @NonNull String nodeId, long lookupTimeoutMillis, long heartbeatMillis,
+                     @NonNull ResponseCache profileCache, @NonNull SearchCache searchCache,
+                     @NonNull RateLimitScheduler scheduler) {
+        this.vertx = vertx;
+        this.nodeId = nodeId;
+        this.lookupTimeoutMillis = lookupTimeoutMillis;
+        this.heartbeatMillis = heartbeatMillis;
+        this.profileCache = profileCache;
+        this.searchCache = searchCache;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Joins the peers: answers their lookups, takes their quota updates and asks them on cache misses
+     */
+    public synchronized void start() {
+        if (heartbeatTimer != -1) {
+            return;
+        }
+        consumers.add(vertx.eventBus().consumer(LOOKUP_ADDRESS_PREFIX + nodeId, this::answer));
+        consumers.add(vertx.eventBus().consumer(PEERS_ADDRESS, this::heartbeat));
+        consumers.add(vertx.eventBus().consumer(QUOTA_ADDRESS, this::quota));
+        profileCache.usePeers(key -> ask(new JsonObject().put(TYPE, PROFILE).put("key", key),
+                PersistentStore::profile));
+        searchCache.usePeers(key -> ask(PersistentStore.searchKeyRecord(key).put(TYPE, SEARCH),
+                record -> PersistentStore.search(key, record)));
+        scheduler.onUpdate(this::publishQuota);
+        heartbeatTimer = vertx.setPeriodic(heartbeatMillis, id -> beat());
+        beat();
+        log.info("Node {} joined peers", nodeId);
+    }
+
+    public synchronized void close() {
+        if (heartbeatTimer == -1) {
+            return;
+        }
+        vertx.cancelTimer(heartbeatTimer);
+        heartbeatTimer = -1;
+        consumers.forEach(MessageConsumer::unregister);
+        consumers.clear();
+        profileCache.usePeers(key -> Observable.empty());
+        searchCache.usePeers(key -> Observable.empty());
+        vertx.eventBus().publish(PEERS_ADDRESS, new JsonObject().put(NODE, nodeId).put("leaving", true));
+    }
+
+    /**
+     * @return number of peers heard from recently, this node excluded
+     */
+    public int peerCount() {
+        return peers.size();
+    }
+
+    public JsonObject stats() {
+        return new JsonObject()
+                .put("node", nodeId)
+                .put("peers", peers.size())
+                .put("lookups", lookups.sum())
+                .put("hits", hits.sum())
+                .put("answered", answered.sum())
+                .put("quotaUpdates", quotaUpdates.sum());
+    }
+
+    /**
+     * Asks all live peers at once, the first entry found wins; peers which do not have it, fail or do not answer
+     * in time are ignored
+     */
+    private <T> Observable<T> ask(JsonObject query, Function<JsonObject, T> reader) {
+        List<String> live = new ArrayList<>(peers.keySet());
+        if (live.isEmpty()) {
+            return Observable.empty();
+        }
+        lookups.increment();
+        DeliveryOptions options = new DeliveryOptions().setSendTimeout(lookupTimeoutMillis);
+        return Observable.from(live)
+                .flatMap(node -> vertx.eventBus().<JsonObject>rxSend(LOOKUP_ADDRESS_PREFIX + node, query, options)
+                        .toObservable()
+                        .map(reply -> reader.apply(reply.body()))
+                        .onErrorResumeNext(error -> {
+                            log.debug("Peer {} has no {}: {}", node, query.getString(TYPE), error.getMessage());
+                            return Observable.empty();
+                        }))
+                .take(1)
+                .doOnNext(found -> hits.increment());
+    }
+
+    private void answer(Message<JsonObject> message) {
+        JsonObject query = message.body();
+        JsonObject record = null;
+        if (PROFILE.equals(query.getString(TYPE))) {
+            String key = query.getString("key");
+            CachedResponse cached = profileCache.get(key);
+            if (cached != null && profileCache.isFresh(cached)) {
+                record = PersistentStore.profileRecord(key, cached);
+            }
+        } else if (SEARCH.equals(query.getString(TYPE))) {
+            SearchKey key = PersistentStore.searchKey(query);
+            SearchCache.Entry entry = searchCache.fresh(key);
+            if (entry != null) {
+                record = PersistentStore.searchRecord(key, entry);
+            }
+        }
+        if (record == null) {
+            message.fail(NOT_FOUND, "Not cached");
+        } else {
+            answered.increment();
+            message.reply(record);
+        }
+    }
+
+    private void beat() {
+        long now = System.currentTimeMillis();
+        peers.values().removeIf(seenAt -> now - seenAt > EXPIRED_HEARTBEATS * heartbeatMillis);
+        scheduler.setShares(peers.size() + 1);
+        vertx.eventBus().publish(PEERS_ADDRESS, new JsonObject().put(NODE, nodeId));
+    }
+
+    private void heartbeat(Message<JsonObject> message) {
+        String node = message.body().getString(NODE);
+        if (node == null || node.equals(nodeId)) {
+            return;
+        }
+        boolean changed = message.body().getBoolean("leaving", false)
+                ? peers.remove(node) != null
+                : peers.put(node, System.currentTimeMillis()) == null;
+        if (changed) {
+            log.info("Node {} sees {} peers", nodeId, peers.size());
+            scheduler.setShares(peers.size() + 1);
+        }
+    }
+
+    private void publishQuota(RateLimitBucket bucket, int limit, int remaining, long resetEpochSeconds) {
+        vertx.eventBus().publish(QUOTA_ADDRESS, new JsonObject()
+                .put(NODE, nodeId)
+                .put("bucket", bucket.name())
+                .put("limit", limit)
+                .put("remaining", remaining)
+                .put("reset", resetEpochSeconds));
+    }
+
+    private void quota(Message<JsonObject> message) {
+        JsonObject update = message.body();
+        if (nodeId.equals(update.getString(NODE))) {
+            return;
+        }
+        quotaUpdates.increment();
+        scheduler.updateFromPeer(RateLimitBucket.valueOf(update.getString("bucket")), update.getInteger("limit"),
+                update.getInteger("remaining"), update.getLong("reset"));
+    }
+}
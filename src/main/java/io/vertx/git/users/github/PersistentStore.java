@@ -0,0 +1,382 @@
+package io.vertx.git.users.github;
+
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.git.users.github.http.ResponseCache;
+import io.vertx.git.users.github.http.ResponseCache.CachedResponse;
+import io.vertx.git.users.model.SearchItem;
+import io.vertx.rxjava.core.Vertx;
+import io.vertx.rxjava.core.buffer.Buffer;
+import io.vertx.rxjava.core.file.AsyncFile;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import rx.Single;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Append-only JSON lines file keeping fetched profiles and search pages across restarts.
+ * Every entry stored in the caches is appended to the file; on start the file is read in background
+ * and its entries are put into the caches unless fresher ones got there first. The file is periodically,
+ * or when it grows over the size limit, rewritten with the current cache content only, which is size bounded.
+ * When the cache content alone is over the limit, the file is rewritten again only once it has doubled.
+ * File reading and rewriting run on worker threads, appends are asynchronous, so the event loop never waits for disk.
+ */
+@Slf4j
+public class PersistentStore {
+
+    private static final String TYPE = "type";
+    private static final String PROFILE = "profile";
+    private static final String SEARCH = "search";
+    private static final String STORED_AT = "storedAt";
+    private static final String PAGE_KEY = "pageKey";
+    private static final int MAX_PENDING = 10_000;
+
+    private final Vertx vertx;
+    private final Path path;
+    private final long maxBytes;
+    private final long compactIntervalMillis;
+    private final ResponseCache profileCache;
+    private final SearchCache searchCache;
+
+    private final LongAdder loaded = new LongAdder();
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+
+    private final List<Buffer> pending = new ArrayList<>();
+    private AsyncFile file;
+    private boolean started;
+    private boolean closed;
+    private boolean busy;
+    private long compactTimer = -1;
+    private long bytes;
+    private long compactedBytes;
+
+    /**
+     * @param maxBytes              size of the file triggering compaction
+     * @param compactIntervalMillis time between compactions
+     */
+    public PersistentStore(@NonNull Vertx vertx, @NonNull String path, long maxBytes, long compactIntervalMillis,
+                           @NonNull ResponseCache profileCache, @NonNull SearchCache searchCache) {
+        this.vertx = vertx;
+        this.path = Paths.get(path);
+        this.maxBytes = maxBytes;
+        this.compactIntervalMillis = compactIntervalMillis;
+        this.profileCache = profileCache;
+        this.searchCache = searchCache;
+    }
+
+    /**
+     * Loads the file in background and starts persisting cache updates. Updates made while loading are kept
+     * in memory and written once the file is open. Calling it again does nothing.
+     */
+    public synchronized void start() {
+        if (started || closed) {
+            return;
+        }
+        started = true;
+        busy = true;
+        profileCache.onStore(this::appendProfile);
+        searchCache.onStore(this::appendSearch);
+
+        vertx.<Long>rxExecuteBlocking(future -> future.complete(load()), false)
+                .flatMap(size -> openFile().doOnSuccess(opened -> log.info("Loaded {} entries ({} bytes) from {}",
+                        loaded.sum(), size, path)))
+                .subscribe(this::opened, error -> log.warn("Persistent store {} is disabled", path, error));
+        compactTimer = vertx.setPeriodic(compactIntervalMillis, id -> compact());
+    }
+
+    /**
+     * Rewrites the file with current cache content, does nothing while the file is being loaded or compacted
+     * and once the store is closed
+     */
+    public void compact() {
+        AsyncFile current;
+        synchronized (this) {
+            if (closed || busy || file == null) {
+                return;
+            }
+            busy = true;
+            current = file;
+            file = null;
+        }
+        current.rxClose()
+                .flatMap(closed -> vertx.<Long>rxExecuteBlocking(future -> future.complete(rewrite()), false))
+                .doOnSuccess(size -> {
+                    compactions.increment();
+                    log.debug("Compacted {} to {} bytes", path, size);
+                })
+                .onErrorResumeNext(error -> {
+                    log.warn("Compaction of {} failed", path, error);
+                    synchronized (this) {
+                        compactedBytes = bytes;
+                    }
+                    return Single.just(0L);
+                })
+                .flatMap(size -> openFile())
+                .subscribe(this::opened, error -> log.warn("Persistent store {} is disabled", path, error));
+    }
+
+    /**
+     * Stops persisting cache updates; a file being loaded or compacted at the time is closed once it is open
+     */
+    public void close() {
+        AsyncFile current;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            current = file;
+            file = null;
+            pending.clear();
+            if (compactTimer != -1) {
+                vertx.cancelTimer(compactTimer);
+                compactTimer = -1;
+            }
+        }
+        profileCache.onStore((key, response) -> {
+        });
+        searchCache.onStore((key, entry) -> {
+        });
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    public JsonObject stats() {
+        synchronized (this) {
+            return new JsonObject()
+                    .put("loaded", loaded.sum())
+                    .put("appended", appended.sum())
+                    .put("dropped", dropped.sum())
+                    .put("compactions", compactions.sum())
+                    .put("bytes", bytes);
+        }
+    }
+
+    private Single<AsyncFile> openFile() {
+        return vertx.fileSystem().rxOpen(path.toString(), new OpenOptions().setCreate(true).setWrite(true).setAppend(true));
+    }
+
+    private void opened(AsyncFile opened) {
+        boolean overflow;
+        synchronized (this) {
+            if (closed) {
+                opened.close();
+                return;
+            }
+            file = opened;
+            busy = false;
+            pending.forEach(this::write);
+            pending.clear();
+            overflow = isOverflowing();
+        }
+        if (overflow) {
+            compact();
+        }
+    }
+
+    private void appendProfile(String key, CachedResponse response) {
+        append(profileRecord(key, response));
+    }
+
+    private void appendSearch(SearchKey key, SearchCache.Entry entry) {
+        if (entry.getPage().isEmpty()) {
+            return;
+        }
+        append(searchRecord(key, entry));
+    }
+
+    private void append(JsonObject record) {
+        Buffer line = Buffer.buffer(record.encode()).appendString("\n");
+        boolean overflow;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (file == null) {
+                if (pending.size() < MAX_PENDING) {
+                    pending.add(line);
+                } else {
+                    dropped.increment();
+                }
+                return;
+            }
+            if (file.writeQueueFull()) {
+                dropped.increment();
+                return;
+            }
+            write(line);
+            overflow = isOverflowing();
+        }
+        if (overflow) {
+            compact();
+        }
+    }
+
+    /**
+     * @return true when the file is over the size limit and has grown since the last compaction,
+     * otherwise a cache holding more than the limit would be rewritten on every append
+     */
+    private boolean isOverflowing() {
+        return bytes > Math.max(maxBytes, 2 * compactedBytes);
+    }
+
+    private void write(Buffer line) {
+        file.write(line);
+        bytes += line.length();
+        appended.increment();
+    }
+
+    /**
+     * Reads the file, the last record of a key wins. A line cut by a crash is skipped.
+     *
+     * @return size of the file
+     */
+    @SneakyThrows(IOException.class)
+    private long load() {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        Map<String, JsonObject> profiles = new LinkedHashMap<>();
+        Map<SearchKey, JsonObject> searches = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    JsonObject record = new JsonObject(line);
+                    if (PROFILE.equals(record.getString(TYPE))) {
+                        String key = record.getString("key");
+                        profiles.remove(key);
+                        profiles.put(key, record);
+                    } else if (SEARCH.equals(record.getString(TYPE))) {
+                        SearchKey key = searchKey(record);
+                        searches.remove(key);
+                        searches.put(key, record);
+                    }
+                } catch (DecodeException | ClassCastException | NullPointerException | IllegalArgumentException e) {
+                    log.debug("Skipping invalid record in {}", path);
+                }
+            }
+        }
+        profiles.forEach((key, record) -> profileCache.restore(key, profile(record)));
+        searches.forEach((key, record) -> searchCache.restore(key, search(key, record)));
+        loaded.add(profiles.size() + searches.size());
+        long size = Files.size(path);
+        synchronized (this) {
+            bytes = size;
+        }
+        return size;
+    }
+
+    /**
+     * @return size of the new file
+     */
+    @SneakyThrows(IOException.class)
+    private long rewrite() {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, CachedResponse> entry : profileCache.snapshot().entrySet()) {
+                writer.write(profileRecord(entry.getKey(), entry.getValue()).encode());
+                writer.write('\n');
+            }
+            for (Map.Entry<SearchKey, SearchCache.Entry> entry : searchCache.snapshot().entrySet()) {
+                if (!entry.getValue().getPage().isEmpty()) {
+                    writer.write(searchRecord(entry.getKey(), entry.getValue()).encode());
+                    writer.write('\n');
+                }
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        long size = Files.size(path);
+        synchronized (this) {
+            bytes = size;
+            compactedBytes = size;
+        }
+        return size;
+    }
+
+    /**
+     * Records are also the format cache entries are exchanged in with peers, see {@link PeerCache}
+     */
+    static JsonObject profileRecord(String key, CachedResponse response) {
+        return new JsonObject()
+                .put(TYPE, PROFILE)
+                .put("key", key)
+                .put("body", response.getBody().toString())
+                .put("etag", response.getEtag())
+                .put("lastModified", response.getLastModified())
+                .put(STORED_AT, response.getStoredAtMillis());
+    }
+
+    static CachedResponse profile(JsonObject record) {
+        return new CachedResponse(
+                Buffer.buffer(record.getString("body")),
+                record.getString("etag"),
+                record.getString("lastModified"),
+                record.getLong(STORED_AT));
+    }
+
+    /**
+     * Key of the page is kept next to the cache key, they differ when the page is the fallback without language
+     */
+    static JsonObject searchRecord(SearchKey key, SearchCache.Entry entry) {
+        JsonArray items = new JsonArray();
+        entry.getPage().getItems().forEach(item -> items.add(new JsonObject()
+                .put("login", item.getLogin())
+                .put("url", item.getUrl())));
+        return searchKeyRecord(key)
+                .put(TYPE, SEARCH)
+                .put(PAGE_KEY, searchKeyRecord(entry.getPage().getKey()))
+                .put("items", items)
+                .put(STORED_AT, entry.getStoredAtMillis());
+    }
+
+    static JsonObject searchKeyRecord(SearchKey key) {
+        return new JsonObject()
+                .put("userName", key.getUserName())
+                .put("language", key.getLanguage())
+                .put("page", key.getPage())
+                .put("perPage", key.getPerPage());
+    }
+
+    static SearchKey searchKey(JsonObject record) {
+        return SearchKey.of(record.getString("userName"), record.getString("language"),
+                record.getInteger("page"), record.getInteger("perPage"));
+    }
+
+    /**
+     * @param key cache key of the record, also the key of the page in records written without one
+     */
+    static SearchCache.Entry search(SearchKey key, JsonObject record) {
+        JsonObject pageKey = record.getJsonObject(PAGE_KEY);
+        SearchPage page = new SearchPage(pageKey == null ? key : searchKey(pageKey), items(record.getJsonArray("items")));
+        return new SearchCache.Entry(page, record.getLong(STORED_AT));
+    }
+
+    private static List<SearchItem> items(JsonArray records) {
+        List<SearchItem> items = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            JsonObject record = records.getJsonObject(i);
+            items.add(new SearchItem(record.getString("login"), record.getString("url")));
+        }
+        return items;
+    }
+}
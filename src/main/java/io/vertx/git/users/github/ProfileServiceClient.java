@@ -0,0 +1,101 @@
+package io.vertx.git.users.github;
+
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.git.users.github.http.Deadline;
+import io.vertx.git.users.github.http.RateLimitScheduler.Priority;
+import io.vertx.git.users.model.SearchItem;
+import io.vertx.git.users.model.User;
+import io.vertx.rxjava.core.eventbus.EventBus;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import rx.Observable;
+
+import java.util.List;
+
+/**
+ * Fetches profiles of search items through the profile service listening on {@link #ADDRESS},
+ * one message per search page. Messages stay within the Vert.x instance and are passed without serialization,
+ * the deadline included, so the service cuts the result at the same time and reports dropped profiles to it.
+ */
+@Slf4j
+public class ProfileServiceClient {
+
+    public static final String ADDRESS = "git-users.profiles";
+
+    // time the reply may take after the deadline, the service cuts the result at the deadline itself
+    private static final long REPLY_GRACE_MILLIS = 100;
+
+    private final EventBus eventBus;
+
+    public ProfileServiceClient(@NonNull EventBus eventBus) {
+        this.eventBus = eventBus;
+        registerCodecs(eventBus);
+    }
+
+    /**
+     * Registers codecs of the messages, does nothing when they are already registered
+     */
+    public static synchronized void registerCodecs(@NonNull EventBus eventBus) {
+        try {
+            eventBus.getDelegate().registerDefaultCodec(Request.class, new LocalCodec<>(Request.class));
+            eventBus.getDelegate().registerDefaultCodec(Reply.class, new LocalCodec<>(Reply.class));
+        } catch (IllegalStateException alreadyRegistered) {
+            log.debug("Profile service codecs are already registered");
+        }
+    }
+
+    public Observable<User> getUsers(@NonNull List<SearchItem> items, @NonNull Deadline deadline) {
+        return getUsers(items, deadline, Priority.NORMAL);
+    }
+
+    /**
+     * @param priority priority of profile calls waiting for quota
+     */
+    public Observable<User> getUsers(@NonNull List<SearchItem> items, @NonNull Deadline deadline,
+                                     @NonNull Priority priority) {
+        if (items.isEmpty()) {
+            return Observable.empty();
+        }
+        DeliveryOptions options = new DeliveryOptions()
+                .setSendTimeout(deadline.timeoutMillis(DeliveryOptions.DEFAULT_TIMEOUT) + REPLY_GRACE_MILLIS);
+        return eventBus.<Reply>rxSend(ADDRESS, new Request(items, deadline, priority), options)
+                .toObservable()
+                .flatMap(message -> {
+                    Reply reply = message.body();
+                    return reply.getError() != null
+                            ? Observable.<User>error(reply.getError())
+                            : Observable.from(reply.getUsers());
+                })
+                .onErrorResumeNext(error -> {
+                    if (error instanceof ReplyException
+                            && ((ReplyException) error).failureType() == ReplyFailure.TIMEOUT) {
+                        log.info("Profile service did not answer in time, dropping {} profiles", items.size());
+                        deadline.markPartial();
+                        return Observable.empty();
+                    }
+                    return Observable.error(error);
+                });
+    }
+
+    /**
+     * Profiles of the items to fetch till the deadline
+     */
+    @Value
+    public static class Request {
+        private List<SearchItem> items;
+        private Deadline deadline;
+        private Priority priority;
+    }
+
+    /**
+     * Profiles fetched in time, or the error which failed the fetch
+     */
+    @Value
+    public static class Reply {
+        private List<User> users;
+        private Throwable error;
+    }
+}
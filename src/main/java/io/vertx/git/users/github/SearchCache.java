@@ -0,0 +1,274 @@
+package io.vertx.git.users.github;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.git.users.github.http.CircuitOpenException;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import rx.Observable;
+import rx.Single;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Cache of resolved search pages (after language fallback) with stale-while-revalidate semantics.
+ * Empty pages are cached as well, but for a shorter time.
+ */
+@Slf4j
+public class SearchCache {
+
+    private static final int DEFAULT_MAX_SIZE = 500;
+    private static final long DEFAULT_TTL_MILLIS = 60_000;
+    private static final long DEFAULT_STALE_MILLIS = 300_000;
+    private static final long DEFAULT_NEGATIVE_TTL_MILLIS = 30_000;
+
+    private final long ttlMillis;
+    private final long staleMillis;
+    private final long negativeTtlMillis;
+    private final LongSupplier clock;
+    private final Map<SearchKey, Entry> entries;
+    private final Set<SearchKey> refreshing = new HashSet<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder staleFallbacks = new LongAdder();
+
+    private volatile BiConsumer<SearchKey, Entry> storeListener = (key, entry) -> {
+    };
+    private volatile Function<SearchKey, Observable<Entry>> peers = key -> Observable.empty();
+
+    public SearchCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_TTL_MILLIS, DEFAULT_STALE_MILLIS, DEFAULT_NEGATIVE_TTL_MILLIS);
+    }
+
+    /**
+     * @param ttlMillis         time a non-empty result is served without refresh
+     * @param staleMillis       time after expiration during which stale result is served while refreshed in background
+     * @param negativeTtlMillis time an empty result is served, it is never served stale
+     */
+    public SearchCache(int maxSize, long ttlMillis, long staleMillis, long negativeTtlMillis) {
+        this(maxSize, ttlMillis, staleMillis, negativeTtlMillis, System::currentTimeMillis);
+    }
+
+    SearchCache(int maxSize, long ttlMillis, long staleMillis, long negativeTtlMillis, @NonNull LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.staleMillis = staleMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<SearchKey, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SearchKey, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public Single<SearchPage> get(@NonNull SearchKey key, @NonNull Supplier<Single<SearchPage>> loader) {
+        return Single.defer(() -> {
+            Entry entry = lookup(key);
+            long age = entry == null ? Long.MAX_VALUE : clock.getAsLong() - entry.getStoredAtMillis();
+
+            if (entry != null && entry.getPage().isEmpty() && age < negativeTtlMillis) {
+                negativeHits.increment();
+                return Single.just(entry.getPage());
+            }
+            if (entry != null && !entry.getPage().isEmpty() && age < ttlMillis) {
+                hits.increment();
+                return Single.just(entry.getPage());
+            }
+            if (entry != null && !entry.getPage().isEmpty() && age < ttlMillis + staleMillis) {
+                staleHits.increment();
+                refreshInBackground(key, loader);
+                return Single.just(entry.getPage());
+            }
+
+            misses.increment();
+            return fromPeers(key)
+                    .switchIfEmpty(Observable.defer(() -> loader.get()
+                            .doOnSuccess(page -> store(key, page))
+                            .toObservable()))
+                    .toSingle()
+                    .onErrorResumeNext(error -> fallback(key, entry, error));
+        });
+    }
+
+    /**
+     * @return true when {@link #get} would answer the key without loading it
+     */
+    public boolean isCached(@NonNull SearchKey key) {
+        Entry entry = lookup(key);
+        if (entry == null) {
+            return false;
+        }
+        long age = clock.getAsLong() - entry.getStoredAtMillis();
+        return entry.getPage().isEmpty() ? age < negativeTtlMillis : age < ttlMillis + staleMillis;
+    }
+
+    /**
+     * @return entry served without refresh, null when there is none
+     */
+    public Entry fresh(@NonNull SearchKey key) {
+        Entry entry = lookup(key);
+        return entry != null && isFresh(entry) ? entry : null;
+    }
+
+    /**
+     * @return true when a non-empty page is cached for the key and expires within the time, or has expired already
+     */
+    public boolean expiresWithin(@NonNull SearchKey key, long millis) {
+        Entry entry = lookup(key);
+        return entry != null && !entry.getPage().isEmpty()
+                && clock.getAsLong() - entry.getStoredAtMillis() >= ttlMillis - millis;
+    }
+
+    /**
+     * Loads the page again and stores it, unless it is being refreshed already
+     *
+     * @return refreshed page, nothing when another refresh of the key is in progress
+     */
+    public Observable<SearchPage> refresh(@NonNull SearchKey key, @NonNull Supplier<Single<SearchPage>> loader) {
+        return Observable.defer(() -> {
+            if (!startRefresh(key)) {
+                return Observable.empty();
+            }
+            refreshes.increment();
+            return loader.get()
+                    .doOnSuccess(page -> store(key, page))
+                    .toObservable()
+                    .doOnUnsubscribe(() -> finishRefresh(key));
+        });
+    }
+
+    private boolean isFresh(Entry entry) {
+        long age = clock.getAsLong() - entry.getStoredAtMillis();
+        return age < (entry.getPage().isEmpty() ? negativeTtlMillis : ttlMillis);
+    }
+
+    /**
+     * Entry fresh enough by own clock and TTLs found by peers, stored with its original age,
+     * so entries passed around are still refreshed from GitHub once they expire
+     */
+    private Observable<SearchPage> fromPeers(SearchKey key) {
+        return peers.apply(key)
+                .filter(this::isFresh)
+                .take(1)
+                .doOnNext(found -> put(key, found))
+                .map(Entry::getPage);
+    }
+
+    /**
+     * Last known result of any age is better than nothing while GitHub is unavailable
+     */
+    private Single<SearchPage> fallback(SearchKey key, Entry entry, Throwable error) {
+        if (entry == null || !(error instanceof CircuitOpenException)) {
+            return Single.error(error);
+        }
+        log.debug("Serving stale search result for {} while GitHub is unavailable", key);
+        staleFallbacks.increment();
+        return Single.just(entry.getPage().asStale());
+    }
+
+    private void refreshInBackground(SearchKey key, Supplier<Single<SearchPage>> loader) {
+        log.debug("Refreshing stale search result for {}", key);
+        refresh(key, loader).subscribe(
+                page -> {
+                },
+                error -> log.warn("Background refresh of {} failed", key, error));
+    }
+
+    private synchronized boolean startRefresh(SearchKey key) {
+        return refreshing.add(key);
+    }
+
+    private synchronized void finishRefresh(SearchKey key) {
+        refreshing.remove(key);
+    }
+
+    private synchronized Entry lookup(SearchKey key) {
+        return entries.get(key);
+    }
+
+    private void store(SearchKey key, SearchPage page) {
+        if (page.isPartial()) {
+            log.debug("Not caching partial search result for {}", key);
+            return;
+        }
+        put(key, new Entry(page, clock.getAsLong()));
+    }
+
+    private void put(SearchKey key, Entry entry) {
+        synchronized (this) {
+            entries.put(key, entry);
+        }
+        storeListener.accept(key, entry);
+    }
+
+    /**
+     * Listener is notified about every stored page, e.g. to persist it
+     */
+    public void onStore(@NonNull BiConsumer<SearchKey, Entry> listener) {
+        this.storeListener = listener;
+    }
+
+    /**
+     * Peers are asked for a missing page before it is loaded, they return nothing when they do not have it
+     */
+    public void usePeers(@NonNull Function<SearchKey, Observable<Entry>> peers) {
+        this.peers = peers;
+    }
+
+    /**
+     * Puts page loaded from elsewhere, e.g. from disk after restart, unless the key is already cached
+     */
+    public synchronized void restore(@NonNull SearchKey key, @NonNull Entry entry) {
+        entries.putIfAbsent(key, entry);
+    }
+
+    /**
+     * @return copy of all entries, least recently used first
+     */
+    public synchronized Map<SearchKey, Entry> snapshot() {
+        return new LinkedHashMap<>(entries);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), staleHits.sum(), negativeHits.sum(), misses.sum(), refreshes.sum(),
+                staleFallbacks.sum(), size());
+    }
+
+    @Value
+    public static class Entry {
+        private SearchPage page;
+        private long storedAtMillis;
+    }
+
+    @Value
+    public static class CacheStats {
+        private long hits;
+        private long staleHits;
+        private long negativeHits;
+        private long misses;
+        private long refreshes;
+        private long staleFallbacks;
+        private int size;
+
+        public JsonObject toJson() {
+            return JsonObject.mapFrom(this);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package io.vertx.git.users.github;
+
+import lombok.NonNull;
+import lombok.Value;
+
+import java.util.Locale;
+
+/**
+ * Identity of one page of a user search. GitHub treats logins and languages case insensitively, so the key does as well.
+ */
+@Value
+public class SearchKey {
+
+    public static final int FIRST_PAGE = 1;
+    public static final int DEFAULT_PER_PAGE = 30;
+    public static final int MAX_PER_PAGE = 100;
+
+    private String userName;
+    private String language;
+    private int page;
+    private int perPage;
+
+    public static SearchKey of(@NonNull String userName, String language) {
+        return of(userName, language, FIRST_PAGE, DEFAULT_PER_PAGE);
+    }
+
+    public static SearchKey of(@NonNull String userName, String language, int page, int perPage) {
+        if (page < FIRST_PAGE) {
+            throw new IllegalArgumentException("page should be positive");
+        }
+        if (perPage < 1 || perPage > MAX_PER_PAGE) {
+            throw new IllegalArgumentException("per page should be between 1 and " + MAX_PER_PAGE);
+        }
+        return new SearchKey(
+                userName.toLowerCase(Locale.ROOT),
+                language == null ? null : language.toLowerCase(Locale.ROOT),
+                page,
+                perPage);
+    }
+
+    public SearchKey withoutLanguage() {
+        return new SearchKey(userName, null, page, perPage);
+    }
+
+    public SearchKey next() {
+        return new SearchKey(userName, language, page + 1, perPage);
+    }
+}
@@ -0,0 +1,53 @@
+package io.vertx.git.users.github;
+
+import io.vertx.git.users.model.SearchItem;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Items of one search page. Key is the one actually used for search,
+ * i.e. without language when search by language found nothing.
+ */
+@Value
+@AllArgsConstructor
+public class SearchPage {
+
+    /**
+     * GitHub search never returns more results, no matter how many pages are requested
+     */
+    private static final int MAX_RESULTS = 1000;
+
+    private SearchKey key;
+    private List<SearchItem> items;
+    /**
+     * Page is older than the cache allows, it is served only because GitHub is unavailable
+     */
+    private boolean stale;
+    /**
+     * Search by language timed out and was taken as empty, so the page may be the fallback without language
+     * although users with the language exist; it is served, but never cached
+     */
+    private boolean partial;
+
+    public SearchPage(SearchKey key, List<SearchItem> items) {
+        this(key, items, false, false);
+    }
+
+    public SearchPage asStale() {
+        return new SearchPage(key, items, true, partial);
+    }
+
+    public SearchPage asPartial() {
+        return new SearchPage(key, items, stale, true);
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public boolean hasNext() {
+        return items.size() >= key.getPerPage() && key.getPage() * key.getPerPage() < MAX_RESULTS;
+    }
+}
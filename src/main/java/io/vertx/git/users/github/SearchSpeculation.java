@@ -0,0 +1,67 @@
+package io.vertx.git.users.github;
+
+import io.vertx.core.json.JsonObject;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import rx.Scheduler;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Decides when search without language is started before search by language came back empty.
+ * The speculative search starts after a delay, and only while the budget check allows it,
+ * so it stops when search quota runs low.
+ */
+@Slf4j
+public class SearchSpeculation {
+
+    @Getter
+    private final long delayMillis;
+    @Getter
+    private final Scheduler scheduler;
+    private final BooleanSupplier budget;
+
+    private final LongAdder started = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder used = new LongAdder();
+
+    /**
+     * @param delayMillis time search by language runs alone, 0 to start both searches together
+     * @param budget      tells whether search quota can take an extra call
+     * @param scheduler   timers of the delay
+     */
+    public SearchSpeculation(long delayMillis, @NonNull BooleanSupplier budget, @NonNull Scheduler scheduler) {
+        this.delayMillis = Math.max(0, delayMillis);
+        this.budget = budget;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @return true when the speculative search may start now
+     */
+    boolean tryStart() {
+        if (!budget.getAsBoolean()) {
+            log.debug("Not enough search quota to speculate");
+            skipped.increment();
+            return false;
+        }
+        started.increment();
+        return true;
+    }
+
+    void used() {
+        used.increment();
+    }
+
+    /**
+     * started - used is the number of search calls spent on speculation in vain
+     */
+    public JsonObject stats() {
+        return new JsonObject()
+                .put("started", started.sum())
+                .put("skipped", skipped.sum())
+                .put("used", used.sum());
+    }
+}
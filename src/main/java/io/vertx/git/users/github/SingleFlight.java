@@ -0,0 +1,88 @@
+package io.vertx.git.users.github;
+
+import io.vertx.git.users.github.http.Deadline;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import rx.Observable;
+import rx.Single;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls with the same key: while a call is in flight every other subscriber
+ * for the key gets the replay of the very same upstream call instead of starting a new one.
+ */
+@Slf4j
+public class SingleFlight<K, T> {
+
+    private final ConcurrentMap<K, Flight<T>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    public Observable<T> execute(@NonNull K key, @NonNull Supplier<Observable<T>> call) {
+        return execute(key, Deadline.none(), deadline -> call.get());
+    }
+
+    /**
+     * Call runs under a {@link Deadline#shared shared deadline}, extended by every caller joining it,
+     * so it expires with the latest of the callers instead of the first one
+     *
+     * @param deadline budget of the caller
+     */
+    public Observable<T> execute(@NonNull K key, @NonNull Deadline deadline,
+                                 @NonNull Function<Deadline, Observable<T>> call) {
+        return Observable.defer(() -> {
+            Flight<T> started = inFlight.get(key);
+            if (started == null) {
+                Flight<T> flight = share(key, call, Deadline.shared(deadline));
+                started = inFlight.putIfAbsent(key, flight);
+                if (started == null) {
+                    return flight.getResult();
+                }
+            }
+            log.debug("Joining in-flight call for {}", key);
+            coalesced.increment();
+            started.getDeadline().extendTo(deadline);
+            return started.getResult();
+        });
+    }
+
+    public Single<T> executeSingle(@NonNull K key, @NonNull Supplier<Single<T>> call) {
+        return execute(key, () -> call.get().toObservable()).toSingle();
+    }
+
+    public Single<T> executeSingle(@NonNull K key, @NonNull Deadline deadline,
+                                   @NonNull Function<Deadline, Single<T>> call) {
+        return execute(key, deadline, shared -> call.apply(shared).toObservable()).toSingle();
+    }
+
+    private Flight<T> share(K key, Function<Deadline, Observable<T>> call, Deadline deadline) {
+        // removes only its own entry, never a call registered for the key after this one
+        AtomicReference<Flight<T>> self = new AtomicReference<>();
+        Observable<T> shared = Observable.defer(() -> call.apply(deadline))
+                .doAfterTerminate(() -> inFlight.remove(key, self.get()))
+                .cache();
+        Flight<T> flight = new Flight<>(shared, deadline);
+        self.set(flight);
+        return flight;
+    }
+
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    @Value
+    private static class Flight<T> {
+        Observable<T> result;
+        Deadline deadline;
+    }
+}
@@ -0,0 +1,199 @@
+package io.vertx.git.users.github.http;
+
+import io.vertx.core.json.JsonObject;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import rx.Single;
+import rx.SingleSubscriber;
+import rx.subscriptions.Subscriptions;
+
+import javax.xml.ws.http.HTTPException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Limits number of concurrent upstream calls. The limit follows AIMD: it grows by one per full window
+ * of fast successful calls and is cut on slow calls and on responses signalling throttling (403, 429, exhausted quota,
+ * calls timing out after the full call timeout). Calls cut short by the deadline of a client request are no sign
+ * of throttling. Calls above the limit wait in FIFO order and are started on the Vert.x context they were queued on.
+ */
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+
+    private static final int FORBIDDEN = 403;
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private static final double SLOW_CALL_BACKOFF = 0.9;
+    private static final double THROTTLED_BACKOFF = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long slowCallNanos;
+    private final LongSupplier nanoClock;
+
+    private final Deque<Permit> waiting = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long slowCallMillis) {
+        this(initialLimit, minLimit, maxLimit, slowCallMillis, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long slowCallMillis,
+                               @NonNull LongSupplier nanoClock) {
+        if (minLimit < 1 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits should satisfy 1 <= min <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.nanoClock = nanoClock;
+    }
+
+    public <T> Single<T> execute(@NonNull Supplier<Single<T>> call) {
+        return Single.create(subscriber -> {
+            Permit permit = new Permit();
+            permit.task = () -> run(call, subscriber, permit);
+            subscriber.add(Subscriptions.create(() -> cancel(permit)));
+            enqueue(permit);
+        });
+    }
+
+    private <T> void run(Supplier<Single<T>> call, SingleSubscriber<? super T> subscriber, Permit permit) {
+        if (subscriber.isUnsubscribed()) {
+            return;
+        }
+        long start = nanoClock.getAsLong();
+        subscriber.add(call.get().subscribe(
+                value -> {
+                    onSuccess(permit, nanoClock.getAsLong() - start);
+                    subscriber.onSuccess(value);
+                },
+                error -> {
+                    onError(permit, error);
+                    subscriber.onError(error);
+                }));
+    }
+
+    private void enqueue(Permit permit) {
+        synchronized (this) {
+            waiting.addLast(permit);
+        }
+        dispatch();
+    }
+
+    private void cancel(Permit permit) {
+        synchronized (this) {
+            if (permit.state == State.WAITING) {
+                permit.state = State.DONE;
+                waiting.remove(permit);
+                return;
+            }
+            if (!release(permit)) {
+                return;
+            }
+        }
+        dispatch();
+    }
+
+    private void onSuccess(Permit permit, long latencyNanos) {
+        synchronized (this) {
+            if (!release(permit)) {
+                return;
+            }
+            if (latencyNanos > slowCallNanos) {
+                decrease(SLOW_CALL_BACKOFF);
+            } else if (inFlight + 1 >= (int) limit) {
+                // grow only when the limit was actually used
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        }
+        dispatch();
+    }
+
+    private void onError(Permit permit, Throwable error) {
+        synchronized (this) {
+            if (!release(permit)) {
+                return;
+            }
+            if (isThrottling(error)) {
+                decrease(THROTTLED_BACKOFF);
+                log.info("Upstream throttling detected, concurrency limit reduced to {}", (int) limit);
+            }
+        }
+        dispatch();
+    }
+
+    private boolean release(Permit permit) {
+        if (permit.state != State.RUNNING) {
+            return false;
+        }
+        permit.state = State.DONE;
+        inFlight--;
+        return true;
+    }
+
+    private void decrease(double factor) {
+        limit = Math.max(minLimit, limit * factor);
+    }
+
+    private static boolean isThrottling(Throwable error) {
+        if (error instanceof HTTPException) {
+            int status = ((HTTPException) error).getStatusCode();
+            return status == FORBIDDEN || status == TOO_MANY_REQUESTS;
+        }
+        return error instanceof ApiLimitReachedException
+                || error instanceof TimeoutException && !(error instanceof DeadlineExceededException);
+    }
+
+    private void dispatch() {
+        Permit next;
+        while ((next = acquireNext()) != null) {
+            next.context.run(next.task);
+        }
+    }
+
+    private synchronized Permit acquireNext() {
+        if (inFlight >= (int) limit || waiting.isEmpty()) {
+            return null;
+        }
+        Permit permit = waiting.pollFirst();
+        permit.state = State.RUNNING;
+        inFlight++;
+        return permit;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getWaiting() {
+        return waiting.size();
+    }
+
+    public JsonObject stats() {
+        return new JsonObject()
+                .put("limit", getLimit())
+                .put("inFlight", getInFlight())
+                .put("waiting", getWaiting());
+    }
+
+    private enum State {
+        WAITING, RUNNING, DONE
+    }
+
+    private static class Permit {
+        private final CallerContext context = CallerContext.capture();
+        private State state = State.WAITING;
+        private Runnable task;
+    }
+}
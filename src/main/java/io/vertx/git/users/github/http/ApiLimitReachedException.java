@@ -1,8 +1,23 @@
 package io.vertx.git.users.github.http;
 
+import lombok.Getter;
+
 public class ApiLimitReachedException extends RuntimeException {
 
+    private static final long UNKNOWN = -1;
+
+    /**
+     * Seconds after which the call may succeed, negative when unknown
+     */
+    @Getter
+    private final long retryAfterSeconds;
+
     public ApiLimitReachedException(String allowedLimit) {
+        this(allowedLimit, UNKNOWN);
+    }
+
+    public ApiLimitReachedException(String allowedLimit, long retryAfterSeconds) {
         super("Github API limit reached. Allowed number of calls: " + allowedLimit);
+        this.retryAfterSeconds = retryAfterSeconds;
     }
 }
@@ -0,0 +1,33 @@
+package io.vertx.git.users.github.http;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+
+/**
+ * Vert.x context of a caller, captured when its call is queued. Limiters are shared by verticles running on
+ * different event loops, and a queued call is released by whichever of them frees a slot,
+ * so the call is started back on the context of its caller.
+ */
+final class CallerContext {
+
+    private final Context context;
+
+    private CallerContext(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * @return context of the current thread, calls queued outside of Vert.x run on the releasing thread
+     */
+    static CallerContext capture() {
+        return new CallerContext(Vertx.currentContext());
+    }
+
+    void run(Runnable task) {
+        if (context == null || context == Vertx.currentContext()) {
+            task.run();
+        } else {
+            context.runOnContext(ignored -> task.run());
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package io.vertx.git.users.github.http;
+
+import io.vertx.core.json.JsonObject;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import rx.Single;
+
+import javax.xml.ws.http.HTTPException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Stops calling upstream when too many of the recent calls failed or were slow.
+ * Outcomes of the last calls are kept in a count based window; when failure or slow call rate reaches its threshold
+ * the circuit opens and calls fail right away. After a while a few probe calls are let through (half open state),
+ * they close the circuit when all succeed in time and open it again otherwise.
+ * Quota errors and 4xx responses do not count as failures, upstream is healthy then.
+ * Calls cut short by the deadline of a client request ({@link DeadlineExceededException}) are not recorded at all,
+ * a client asking for a short timeout tells nothing about upstream.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    private static final int SERVER_ERROR = 500;
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int windowSize;
+    private final int minCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallMillis;
+    private final long openMillis;
+    private final int halfOpenCalls;
+    private final LongSupplier clock;
+
+    private final List<Consumer<Transition>> listeners = new CopyOnWriteArrayList<>();
+    private final Map<State, LongAdder> transitions = new EnumMap<>(State.class);
+    private final LongAdder rejected = new LongAdder();
+
+    private final boolean[] failedCalls;
+    private final boolean[] slowCalls;
+    private int recorded;
+    private int next;
+    private int failures;
+    private int slow;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    /**
+     * @param windowSize            number of recent calls the rates are computed from
+     * @param minCalls              number of calls needed before the circuit may open
+     * @param failureRateThreshold  share of failed calls (0..1) opening the circuit
+     * @param slowCallRateThreshold share of slow calls (0..1) opening the circuit
+     * @param slowCallMillis        duration after which a call is slow
+     * @param openMillis            time the circuit stays open before probing
+     * @param halfOpenCalls         number of probe calls
+     */
+    public CircuitBreaker(int windowSize, int minCalls, double failureRateThreshold, double slowCallRateThreshold,
+                          long slowCallMillis, long openMillis, int halfOpenCalls) {
+        this(windowSize, minCalls, failureRateThreshold, slowCallRateThreshold, slowCallMillis, openMillis, halfOpenCalls,
+                System::currentTimeMillis);
+    }
+
+    CircuitBreaker(int windowSize, int minCalls, double failureRateThreshold, double slowCallRateThreshold,
+                   long slowCallMillis, long openMillis, int halfOpenCalls, @NonNull LongSupplier clock) {
+        if (windowSize < 1 || halfOpenCalls < 1) {
+            throw new IllegalArgumentException("Window size and number of half open calls should be positive");
+        }
+        this.windowSize = windowSize;
+        this.minCalls = Math.max(1, Math.min(windowSize, minCalls));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallMillis = slowCallMillis;
+        this.openMillis = openMillis;
+        this.halfOpenCalls = halfOpenCalls;
+        this.clock = clock;
+        this.failedCalls = new boolean[windowSize];
+        this.slowCalls = new boolean[windowSize];
+        for (State value : State.values()) {
+            transitions.put(value, new LongAdder());
+        }
+    }
+
+    public <T> Single<T> execute(@NonNull Supplier<Single<T>> call) {
+        return execute(call, result -> false);
+    }
+
+    /**
+     * @param failedResult tells which successful results are failures nevertheless, e.g. 5xx responses
+     */
+    public <T> Single<T> execute(@NonNull Supplier<Single<T>> call, @NonNull Predicate<? super T> failedResult) {
+        return Single.defer(() -> {
+            if (!acquirePermission()) {
+                rejected.increment();
+                return Single.error(new CircuitOpenException(retryAfterMillis()));
+            }
+            long start = clock.getAsLong();
+            AtomicBoolean finished = new AtomicBoolean();
+            return call.get()
+                    .doOnSuccess(result -> {
+                        finished.set(true);
+                        onResult(failedResult.test(result), clock.getAsLong() - start);
+                    })
+                    .doOnError(error -> {
+                        finished.set(true);
+                        if (error instanceof DeadlineExceededException) {
+                            onCancel();
+                        } else {
+                            onResult(isFailure(error), clock.getAsLong() - start);
+                        }
+                    })
+                    .doOnUnsubscribe(() -> {
+                        if (finished.compareAndSet(false, true)) {
+                            onCancel();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * @return true when calls are rejected without reaching upstream
+     */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && clock.getAsLong() - openedAt < openMillis;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Listener is notified about every state change, e.g. to raise an alert when the circuit opens
+     */
+    public void addListener(@NonNull Consumer<Transition> listener) {
+        listeners.add(listener);
+    }
+
+    public synchronized long retryAfterMillis() {
+        return state == State.OPEN ? Math.max(0, openedAt + openMillis - clock.getAsLong()) : 0;
+    }
+
+    public JsonObject stats() {
+        JsonObject opened = new JsonObject();
+        transitions.forEach((to, count) -> opened.put(to.name(), count.sum()));
+        synchronized (this) {
+            return new JsonObject()
+                    .put("state", state.name())
+                    .put("failureRate", failureRate())
+                    .put("slowCallRate", slowCallRate())
+                    .put("rejected", rejected.sum())
+                    .put("transitions", opened);
+        }
+    }
+
+    private boolean acquirePermission() {
+        Transition transition = null;
+        boolean permitted;
+        synchronized (this) {
+            if (state == State.OPEN && clock.getAsLong() - openedAt >= openMillis) {
+                transition = moveTo(State.HALF_OPEN);
+            }
+            permitted = state == State.CLOSED || state == State.HALF_OPEN && probesStarted < halfOpenCalls;
+            if (permitted && state == State.HALF_OPEN) {
+                probesStarted++;
+            }
+        }
+        publish(transition);
+        return permitted;
+    }
+
+    private void onResult(boolean failure, long durationMillis) {
+        Transition transition;
+        synchronized (this) {
+            transition = record(failure, durationMillis >= slowCallMillis);
+        }
+        publish(transition);
+    }
+
+    private synchronized void onCancel() {
+        if (state == State.HALF_OPEN && probesStarted > probesSucceeded) {
+            probesStarted--;
+        }
+    }
+
+    private Transition record(boolean failure, boolean slowCall) {
+        switch (state) {
+            case HALF_OPEN:
+                if (failure || slowCall) {
+                    return moveTo(State.OPEN);
+                }
+                probesSucceeded++;
+                return probesSucceeded >= halfOpenCalls ? moveTo(State.CLOSED) : null;
+            case CLOSED:
+                if (recorded == windowSize) {
+                    failures -= failedCalls[next] ? 1 : 0;
+                    slow -= slowCalls[next] ? 1 : 0;
+                } else {
+                    recorded++;
+                }
+                failedCalls[next] = failure;
+                slowCalls[next] = slowCall;
+                failures += failure ? 1 : 0;
+                slow += slowCall ? 1 : 0;
+                next = (next + 1) % windowSize;
+                boolean unhealthy = failureRate() >= failureRateThreshold || slowCallRate() >= slowCallRateThreshold;
+                return recorded >= minCalls && unhealthy ? moveTo(State.OPEN) : null;
+            default:
+                return null;
+        }
+    }
+
+    private Transition moveTo(State target) {
+        Transition transition = new Transition(state, target, clock.getAsLong(), failureRate(), slowCallRate());
+        state = target;
+        probesStarted = 0;
+        probesSucceeded = 0;
+        if (target == State.OPEN) {
+            openedAt = transition.getAtMillis();
+        }
+        if (target == State.CLOSED) {
+            recorded = 0;
+            next = 0;
+            failures = 0;
+            slow = 0;
+        }
+        transitions.get(target).increment();
+        return transition;
+    }
+
+    private void publish(Transition transition) {
+        if (transition == null) {
+            return;
+        }
+        if (transition.getTo() == State.OPEN) {
+            log.warn("Circuit opened: {}", transition);
+        } else {
+            log.info("Circuit state changed: {}", transition);
+        }
+        listeners.forEach(listener -> listener.accept(transition));
+    }
+
+    private double failureRate() {
+        return recorded == 0 ? 0 : (double) failures / recorded;
+    }
+
+    private double slowCallRate() {
+        return recorded == 0 ? 0 : (double) slow / recorded;
+    }
+
+    private static boolean isFailure(Throwable error) {
+        if (error instanceof ApiLimitReachedException) {
+            return false;
+        }
+        if (error instanceof HTTPException) {
+            return ((HTTPException) error).getStatusCode() >= SERVER_ERROR;
+        }
+        return true;
+    }
+
+    @Value
+    public static class Transition {
+        private State from;
+        private State to;
+        private long atMillis;
+        private double failureRate;
+        private double slowCallRate;
+
+        public JsonObject toJson() {
+            return JsonObject.mapFrom(this);
+        }
+    }
+}
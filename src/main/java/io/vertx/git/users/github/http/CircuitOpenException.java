@@ -0,0 +1,17 @@
+package io.vertx.git.users.github.http;
+
+import lombok.Getter;
+
+/**
+ * Call was not made because upstream is considered unavailable
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    @Getter
+    private final long retryAfterMillis;
+
+    public CircuitOpenException(long retryAfterMillis) {
+        super("Circuit is open, calls are not permitted for " + retryAfterMillis + "ms");
+        this.retryAfterMillis = retryAfterMillis;
+    }
+}
@@ -0,0 +1,110 @@
+package io.vertx.git.users.github.http;
+
+import lombok.NonNull;
+import rx.Observable;
+import rx.Scheduler;
+import rx.schedulers.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time budget of one client request. Every stage takes its timeout from what is left of the budget
+ * and records when part of the result had to be dropped to meet it.
+ */
+public class Deadline {
+
+    private static final long NEVER = Long.MAX_VALUE;
+
+    private volatile long expiresAtMillis;
+    private final Scheduler scheduler;
+    private final Deadline parent;
+    private final boolean shared;
+    private volatile boolean partial;
+
+    private Deadline(long expiresAtMillis, Scheduler scheduler, Deadline parent, boolean shared) {
+        this.expiresAtMillis = expiresAtMillis;
+        this.scheduler = scheduler;
+        this.parent = parent;
+        this.shared = shared;
+    }
+
+    /**
+     * @param scheduler clock of the deadline, also used for the timers cutting results
+     */
+    public static Deadline in(long millis, @NonNull Scheduler scheduler) {
+        return new Deadline(scheduler.now() + Math.max(0, millis), scheduler, null, false);
+    }
+
+    public static Deadline none() {
+        return new Deadline(NEVER, Schedulers.computation(), null, false);
+    }
+
+    /**
+     * Budget of work shared by several client requests, starting with the one of the first of them.
+     * Requests joining later extend it with {@link #extendTo}, so it expires with the latest of them.
+     * Dropped results are not reported to the requests, they learn about them from the shared result.
+     */
+    public static Deadline shared(@NonNull Deadline first) {
+        return new Deadline(first.expiresAtMillis, first.scheduler, null, true);
+    }
+
+    /**
+     * Moves the expiry of a shared deadline to the other one when that expires later. Stages starting afterwards
+     * take their timeouts from the longer budget, calls already running keep theirs.
+     */
+    public synchronized void extendTo(@NonNull Deadline other) {
+        if (!shared) {
+            throw new IllegalStateException("Only shared deadline can be extended");
+        }
+        expiresAtMillis = Math.max(expiresAtMillis, other.expiresAtMillis);
+    }
+
+    public long remainingMillis() {
+        return expiresAtMillis == NEVER ? NEVER : Math.max(0, expiresAtMillis - scheduler.now());
+    }
+
+    public boolean isExpired() {
+        return remainingMillis() == 0;
+    }
+
+    /**
+     * @return timeout of a single call, never longer than the given maximum
+     */
+    public long timeoutMillis(long maxMillis) {
+        return Math.min(maxMillis, remainingMillis());
+    }
+
+    /**
+     * Deadline expiring after the given share of the remaining time, it reports dropped results to this one.
+     * Used when a stage has to leave time for the following ones.
+     */
+    public Deadline portion(double share) {
+        if (expiresAtMillis == NEVER) {
+            return this;
+        }
+        return new Deadline(scheduler.now() + (long) (remainingMillis() * share), scheduler, this, false);
+    }
+
+    /**
+     * Completes the stream when the deadline is reached instead of waiting for the rest of items
+     */
+    public <T> Observable<T> truncate(@NonNull Observable<T> source) {
+        if (expiresAtMillis == NEVER) {
+            return source;
+        }
+        return Observable.defer(() -> source.takeUntil(
+                Observable.timer(remainingMillis(), TimeUnit.MILLISECONDS, scheduler)
+                        .doOnNext(tick -> markPartial())));
+    }
+
+    public void markPartial() {
+        partial = true;
+        if (parent != null) {
+            parent.markPartial();
+        }
+    }
+
+    public boolean isPartial() {
+        return partial;
+    }
+}
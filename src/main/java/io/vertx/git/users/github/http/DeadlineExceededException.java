@@ -0,0 +1,14 @@
+package io.vertx.git.users.github.http;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Call timed out because the client request ran out of time, not because upstream was slow:
+ * its timeout had been cut short to the deadline of the client request
+ */
+public class DeadlineExceededException extends TimeoutException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package io.vertx.git.users.github.http;
+
+/**
+ * GitHub counts search API calls, GraphQL queries and all other (core) calls against separate limits.
+ */
+public enum RateLimitBucket {
+    SEARCH,
+    CORE,
+    GRAPHQL
+}
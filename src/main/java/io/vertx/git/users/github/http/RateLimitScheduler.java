@@ -0,0 +1,348 @@
+package io.vertx.git.users.github.http;
+
+import io.vertx.core.json.JsonObject;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import rx.Scheduler;
+import rx.Single;
+import rx.subscriptions.Subscriptions;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Spends GitHub quota evenly. Every bucket is a token bucket refilled at the pace of
+ * remaining calls divided by the time left till the quota reset, as reported by the latest response.
+ * Calls which can not be sent right away wait in a priority queue for a bounded time,
+ * calls which would wait longer are rejected right away with the time they could be retried after.
+ * Queued calls are started, or rejected once they waited too long, on the Vert.x context they were queued on.
+ */
+@Slf4j
+public class RateLimitScheduler {
+
+    public enum Priority {
+        HIGH, NORMAL, LOW
+    }
+
+    private static final Comparator<Pending> QUEUE_ORDER = Comparator
+            .<Pending, Priority>comparing(p -> p.priority)
+            .thenComparingLong(p -> p.sequence);
+
+    private final Scheduler.Worker timer;
+    private final LongSupplier clock;
+    private final long maxWaitMillis;
+    private final int maxQueueSize;
+    private final Map<RateLimitBucket, Bucket> buckets = new EnumMap<>(RateLimitBucket.class);
+
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private long sequence;
+
+    private volatile QuotaListener listener = (bucket, limit, remaining, resetEpochSeconds) -> {
+    };
+
+    /**
+     * @param bursts number of calls per bucket which can be sent without pacing
+     */
+    public RateLimitScheduler(@NonNull Scheduler scheduler, long maxWaitMillis, int maxQueueSize,
+                              @NonNull Map<RateLimitBucket, Integer> bursts) {
+        this(scheduler, maxWaitMillis, maxQueueSize, bursts, System::currentTimeMillis);
+    }
+
+    RateLimitScheduler(Scheduler scheduler, long maxWaitMillis, int maxQueueSize,
+                       Map<RateLimitBucket, Integer> bursts, LongSupplier clock) {
+        this.timer = scheduler.createWorker();
+        this.clock = clock;
+        this.maxWaitMillis = maxWaitMillis;
+        this.maxQueueSize = maxQueueSize;
+        for (RateLimitBucket name : RateLimitBucket.values()) {
+            buckets.put(name, new Bucket(name, bursts.getOrDefault(name, 1)));
+        }
+    }
+
+    public <T> Single<T> schedule(@NonNull RateLimitBucket bucket, @NonNull Priority priority,
+                                  @NonNull Supplier<Single<T>> call) {
+        return schedule(bucket, priority, maxWaitMillis, call);
+    }
+
+    /**
+     * @param maxWaitMillis time the call may wait in the queue, capped by the configured maximum
+     */
+    public <T> Single<T> schedule(@NonNull RateLimitBucket bucket, @NonNull Priority priority, long maxWaitMillis,
+                                  @NonNull Supplier<Single<T>> call) {
+        return Single.create(subscriber -> {
+            Pending pending = new Pending(priority,
+                    () -> {
+                        if (!subscriber.isUnsubscribed()) {
+                            subscriber.add(call.get().subscribe(subscriber::onSuccess, subscriber::onError));
+                        }
+                    },
+                    subscriber::onError);
+            pending.maxWaitMillis = Math.min(this.maxWaitMillis, maxWaitMillis);
+            subscriber.add(Subscriptions.create(() -> cancel(bucket, pending)));
+            submit(bucket, pending);
+        });
+    }
+
+    /**
+     * Updates known quota of the bucket with values from the latest response
+     */
+    public void update(@NonNull RateLimitBucket name, int limit, int remaining, long resetEpochSeconds) {
+        update(name, limit, remaining, resetEpochSeconds, true);
+        listener.updated(name, limit, remaining, resetEpochSeconds);
+    }
+
+    /**
+     * Updates known quota with values seen by another node spending the same quota,
+     * the lower remaining count of the same window wins. Listener is not notified.
+     */
+    public void updateFromPeer(@NonNull RateLimitBucket name, int limit, int remaining, long resetEpochSeconds) {
+        update(name, limit, remaining, resetEpochSeconds, true);
+    }
+
+    /**
+     * Replaces known quota of the bucket with the sum of quotas of several tokens, which may go up
+     * within the same window when one of the tokens gets a new one
+     */
+    public void updateTotal(@NonNull RateLimitBucket name, int limit, int remaining, long resetEpochSeconds) {
+        update(name, limit, remaining, resetEpochSeconds, false);
+        listener.updated(name, limit, remaining, resetEpochSeconds);
+    }
+
+    /**
+     * Listener is notified about quota seen in responses to calls of this node, e.g. to share it with peers
+     */
+    public void onUpdate(@NonNull QuotaListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the number of nodes spending the same quota, each one paces its calls to its share of remaining calls
+     */
+    public synchronized void setShares(int shares) {
+        buckets.values().forEach(bucket -> bucket.shares = Math.max(1, shares));
+    }
+
+    private void update(RateLimitBucket name, int limit, int remaining, long resetEpochSeconds, boolean keepLowest) {
+        synchronized (this) {
+            buckets.get(name).update(limit, remaining, TimeUnit.SECONDS.toMillis(resetEpochSeconds), clock.getAsLong(),
+                    keepLowest);
+        }
+        dispatch(name);
+    }
+
+    /**
+     * @return true if quota is unknown or more than given share of it is left after serving queued calls
+     */
+    public synchronized boolean hasSpareBudget(@NonNull RateLimitBucket name, double reservedShare) {
+        Bucket bucket = buckets.get(name);
+        bucket.refill(clock.getAsLong());
+        return !bucket.known || bucket.remaining - bucket.queue.size() > bucket.limit * reservedShare;
+    }
+
+    private void submit(RateLimitBucket name, Pending pending) {
+        ApiLimitReachedException rejection = null;
+        synchronized (this) {
+            Bucket bucket = buckets.get(name);
+            long now = clock.getAsLong();
+            bucket.refill(now);
+            long waitMillis = bucket.estimateWait(now, pending.priority);
+            if (bucket.queue.size() >= maxQueueSize || waitMillis > pending.maxWaitMillis) {
+                rejection = bucket.rejection(waitMillis);
+            } else {
+                pending.sequence = sequence++;
+                pending.deadline = now + pending.maxWaitMillis;
+                bucket.queue.add(pending);
+                if (waitMillis > 0) {
+                    delayed.increment();
+                }
+            }
+        }
+        if (rejection != null) {
+            log.info("Rejecting {} call, it could be retried in {}s", name, rejection.getRetryAfterSeconds());
+            rejected.increment();
+            pending.reject.accept(rejection);
+            return;
+        }
+        dispatch(name);
+    }
+
+    private synchronized void cancel(RateLimitBucket name, Pending pending) {
+        buckets.get(name).queue.remove(pending);
+    }
+
+    private void dispatch(RateLimitBucket name) {
+        List<Pending> ready = new ArrayList<>();
+        List<Pending> expired = new ArrayList<>();
+        ApiLimitReachedException expiration;
+        synchronized (this) {
+            Bucket bucket = buckets.get(name);
+            long now = clock.getAsLong();
+            bucket.refill(now);
+            bucket.queue.removeIf(pending -> pending.deadline <= now && expired.add(pending));
+            while (!bucket.queue.isEmpty() && bucket.tryAcquire()) {
+                ready.add(bucket.queue.poll());
+            }
+            if (!bucket.queue.isEmpty()) {
+                scheduleWakeUp(bucket, now);
+            }
+            expiration = bucket.rejection(bucket.estimateWait(now, Priority.LOW));
+        }
+        rejected.add(expired.size());
+        expired.forEach(pending -> pending.context.run(() -> pending.reject.accept(expiration)));
+        ready.forEach(pending -> pending.context.run(pending.start));
+    }
+
+    private void scheduleWakeUp(Bucket bucket, long now) {
+        long wakeUpAt = bucket.nextWakeUp(now);
+        if (bucket.wakeUpAt > now && bucket.wakeUpAt <= wakeUpAt) {
+            return;
+        }
+        bucket.wakeUpAt = wakeUpAt;
+        timer.schedule(() -> dispatch(bucket.name), Math.max(1, wakeUpAt - now), TimeUnit.MILLISECONDS);
+    }
+
+    public JsonObject stats() {
+        JsonObject stats = new JsonObject()
+                .put("delayed", delayed.sum())
+                .put("rejected", rejected.sum());
+        synchronized (this) {
+            long now = clock.getAsLong();
+            buckets.values().forEach(bucket -> stats.put(bucket.name.name().toLowerCase(), bucket.toJson(now)));
+        }
+        return stats;
+    }
+
+    public synchronized int queueSize(@NonNull RateLimitBucket name) {
+        return buckets.get(name).queue.size();
+    }
+
+    /**
+     * @return last known remaining calls of the bucket or -1 when unknown
+     */
+    public synchronized int remaining(@NonNull RateLimitBucket name) {
+        Bucket bucket = buckets.get(name);
+        return bucket.known ? bucket.remaining : -1;
+    }
+
+    public interface QuotaListener {
+        void updated(RateLimitBucket bucket, int limit, int remaining, long resetEpochSeconds);
+    }
+
+    @RequiredArgsConstructor
+    private static class Pending {
+        private final Priority priority;
+        private final Runnable start;
+        private final Consumer<Throwable> reject;
+        private final CallerContext context = CallerContext.capture();
+        private long maxWaitMillis;
+        private long sequence;
+        private long deadline;
+    }
+
+    private static class Bucket {
+        private final RateLimitBucket name;
+        private final int burst;
+        private final PriorityQueue<Pending> queue = new PriorityQueue<>(QUEUE_ORDER);
+
+        private boolean known;
+        private int limit;
+        private int remaining;
+        private long resetAtMillis;
+        private double tokens;
+        private long refilledAt;
+        private long wakeUpAt;
+        private int shares = 1;
+
+        Bucket(RateLimitBucket name, int burst) {
+            this.name = name;
+            this.burst = burst;
+            this.tokens = burst;
+        }
+
+        void update(int limit, int remaining, long resetAtMillis, long now, boolean keepLowest) {
+            refill(now);
+            boolean sameWindow = keepLowest && known && resetAtMillis == this.resetAtMillis;
+            // responses of parallel calls may arrive out of order
+            this.remaining = sameWindow ? Math.min(this.remaining, remaining) : remaining;
+            this.limit = limit;
+            this.resetAtMillis = resetAtMillis;
+            this.known = true;
+        }
+
+        void refill(long now) {
+            if (known && now >= resetAtMillis) {
+                log.debug("Quota window of {} is over", name);
+                known = false;
+            }
+            if (!known) {
+                tokens = burst;
+            } else {
+                tokens = Math.min(burst, tokens + (now - refilledAt) * ratePerMilli(now));
+            }
+            refilledAt = now;
+        }
+
+        boolean tryAcquire() {
+            if (known && remaining <= 0 || tokens < 1) {
+                return false;
+            }
+            tokens--;
+            if (known) {
+                remaining--;
+            }
+            return true;
+        }
+
+        long estimateWait(long now, Priority priority) {
+            if (!known) {
+                return 0;
+            }
+            long ahead = queue.stream().filter(p -> p.priority.compareTo(priority) <= 0).count();
+            if (remaining - ahead <= 0) {
+                return resetAtMillis - now;
+            }
+            double missing = ahead + 1 - tokens;
+            return missing <= 0 ? 0 : (long) Math.ceil(missing / ratePerMilli(now));
+        }
+
+        long nextWakeUp(long now) {
+            long earliestDeadline = queue.stream().mapToLong(p -> p.deadline).min().orElse(Long.MAX_VALUE);
+            long nextToken = !known ? now
+                    : remaining <= 0 ? resetAtMillis
+                    : now + (long) Math.ceil((1 - tokens) / ratePerMilli(now));
+            return Math.min(earliestDeadline, Math.max(now + 1, nextToken));
+        }
+
+        ApiLimitReachedException rejection(long waitMillis) {
+            long retryAfterSeconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(waitMillis + 999));
+            return new ApiLimitReachedException(known ? String.valueOf(limit) : "unknown", retryAfterSeconds);
+        }
+
+        private double ratePerMilli(long now) {
+            return Math.max(remaining, 0) / (double) shares / Math.max(1, resetAtMillis - now);
+        }
+
+        JsonObject toJson(long now) {
+            JsonObject json = new JsonObject()
+                    .put("queued", queue.size())
+                    .put("tokens", tokens);
+            if (known) {
+                json.put("limit", limit)
+                        .put("remaining", remaining)
+                        .put("resetInSeconds", TimeUnit.MILLISECONDS.toSeconds(Math.max(0, resetAtMillis - now)));
+            }
+            return json;
+        }
+    }
+}
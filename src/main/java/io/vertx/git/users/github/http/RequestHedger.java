@@ -0,0 +1,154 @@
+package io.vertx.git.users.github.http;
+
+import io.vertx.core.json.JsonObject;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Single;
+import rx.functions.Action0;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Sends a duplicate of a call which takes longer than the given percentile of recent call latencies
+ * and takes whichever answer comes first. Share of duplicated calls is capped, so a slow upstream
+ * does not get twice the load.
+ */
+@Slf4j
+public class RequestHedger {
+
+    private static final int WINDOW_SIZE = 128;
+
+    private final double percentile;
+    private final int minSamples;
+    private final double maxHedgeShare;
+    private final Scheduler scheduler;
+
+    private final long[] latencies = new long[WINDOW_SIZE];
+    // the same latencies kept sorted, so the percentile is read without sorting
+    private final long[] sorted = new long[WINDOW_SIZE];
+    private int samples;
+    private int next;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    /**
+     * @param percentile    latency percentile (0..1) after which the duplicate is sent
+     * @param minSamples    number of measured calls needed before hedging starts
+     * @param maxHedgeShare max share of calls that may be duplicated
+     * @param scheduler     clock and timers of the hedger
+     */
+    public RequestHedger(double percentile, int minSamples, double maxHedgeShare, @NonNull Scheduler scheduler) {
+        if (percentile <= 0 || percentile >= 1) {
+            throw new IllegalArgumentException("percentile should be between 0 and 1");
+        }
+        this.percentile = percentile;
+        this.minSamples = Math.max(1, Math.min(WINDOW_SIZE, minSamples));
+        this.maxHedgeShare = maxHedgeShare;
+        this.scheduler = scheduler;
+    }
+
+    public <T> Single<T> execute(@NonNull Supplier<Single<T>> call) {
+        return execute(call, Supplier::get);
+    }
+
+    /**
+     * @param admit sends the duplicate once it is admitted, e.g. after it waited for quota of its own;
+     *              time spent before the call is made is not measured
+     */
+    public <T> Single<T> execute(@NonNull Supplier<Single<T>> call,
+                                 @NonNull Function<Supplier<Single<T>>, Single<T>> admit) {
+        return Single.defer(() -> {
+            calls.increment();
+            long hedgeAfter = hedgeDelayMillis();
+            Observable<T> primary = measured(call).toObservable();
+            if (hedgeAfter < 0) {
+                return primary.toSingle();
+            }
+            Observable<T> hedge = Observable.timer(hedgeAfter, TimeUnit.MILLISECONDS, scheduler)
+                    .flatMap(tick -> startHedge(hedgeAfter) ? hedged(call, admit) : Observable.<T>never());
+            return Observable.amb(primary, hedge).take(1).toSingle();
+        });
+    }
+
+    /**
+     * @return delay after which a duplicate is sent or -1 when there are not enough samples yet
+     */
+    public synchronized long hedgeDelayMillis() {
+        if (samples < minSamples) {
+            return -1;
+        }
+        return sorted[Math.min(samples - 1, (int) (samples * percentile))];
+    }
+
+    private boolean startHedge(long hedgeAfter) {
+        if (hedges.sum() >= calls.sum() * maxHedgeShare) {
+            return false;
+        }
+        log.debug("Sending hedged request after {}ms", hedgeAfter);
+        hedges.increment();
+        return true;
+    }
+
+    /**
+     * Failure of the duplicate is ignored, the primary call decides the outcome then
+     */
+    private <T> Observable<T> hedged(Supplier<Single<T>> call, Function<Supplier<Single<T>>, Single<T>> admit) {
+        return admit.apply(() -> measured(call)).toObservable()
+                .doOnNext(value -> hedgeWins.increment())
+                .onErrorResumeNext(error -> Observable.never());
+    }
+
+    /**
+     * Failed calls and calls given up, e.g. the slower one of a hedged pair, are measured till they ended,
+     * otherwise the percentile would only follow fast calls and hedging would start earlier the slower GitHub gets
+     */
+    private <T> Single<T> measured(Supplier<Single<T>> call) {
+        return Single.defer(() -> {
+            long start = scheduler.now();
+            AtomicBoolean measured = new AtomicBoolean();
+            Action0 measure = () -> {
+                if (measured.compareAndSet(false, true)) {
+                    record(scheduler.now() - start);
+                }
+            };
+            return call.get()
+                    .doOnSuccess(value -> measure.call())
+                    .doOnError(error -> measure.call())
+                    .doOnUnsubscribe(measure);
+        });
+    }
+
+    private synchronized void record(long latencyMillis) {
+        if (samples == WINDOW_SIZE) {
+            int evicted = Arrays.binarySearch(sorted, 0, samples, latencies[next]);
+            System.arraycopy(sorted, evicted + 1, sorted, evicted, samples - evicted - 1);
+            samples--;
+        }
+        latencies[next] = latencyMillis;
+        next = (next + 1) % WINDOW_SIZE;
+        int position = Arrays.binarySearch(sorted, 0, samples, latencyMillis);
+        if (position < 0) {
+            position = -position - 1;
+        }
+        System.arraycopy(sorted, position, sorted, position + 1, samples - position);
+        sorted[position] = latencyMillis;
+        samples++;
+    }
+
+    public JsonObject stats() {
+        return new JsonObject()
+                .put("calls", calls.sum())
+                .put("hedges", hedges.sum())
+                .put("hedgeWins", hedgeWins.sum())
+                .put("hedgeDelayMillis", hedgeDelayMillis());
+    }
+}
@@ -0,0 +1,180 @@
+package io.vertx.git.users.github.http;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.rxjava.core.buffer.Buffer;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import rx.Observable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Size bounded LRU cache of successful GitHub response bodies together with their validators.
+ * Entries younger than TTL are served without a network call, older ones are revalidated
+ * with a conditional request, which GitHub does not count against the rate limit when answered with 304.
+ */
+@Slf4j
+public class ResponseCache {
+
+    private static final int DEFAULT_MAX_SIZE = 1000;
+    private static final long DEFAULT_TTL_MILLIS = 60_000;
+
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<String, CachedResponse> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder staleServed = new LongAdder();
+
+    private volatile BiConsumer<String, CachedResponse> storeListener = (key, response) -> {
+    };
+    private volatile Function<String, Observable<CachedResponse>> peers = key -> Observable.empty();
+
+    public ResponseCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_TTL_MILLIS);
+    }
+
+    public ResponseCache(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, System::currentTimeMillis);
+    }
+
+    ResponseCache(int maxSize, long ttlMillis, @NonNull LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                boolean overflow = size() > maxSize;
+                if (overflow) {
+                    evictions.increment();
+                }
+                return overflow;
+            }
+        };
+    }
+
+    /**
+     * @return cached entry regardless of its age or null if nothing is cached
+     */
+    public synchronized CachedResponse get(@NonNull String key) {
+        return entries.get(key);
+    }
+
+    public boolean isFresh(@NonNull CachedResponse response) {
+        return clock.getAsLong() - response.getStoredAtMillis() < ttlMillis;
+    }
+
+    public Buffer store(@NonNull String key, @NonNull Buffer body, String etag, String lastModified) {
+        misses.increment();
+        put(key, new CachedResponse(body, etag, lastModified, clock.getAsLong()));
+        return body;
+    }
+
+    public Buffer revalidated(@NonNull String key, @NonNull CachedResponse response) {
+        revalidations.increment();
+        put(key, new CachedResponse(response.getBody(), response.getEtag(), response.getLastModified(), clock.getAsLong()));
+        return response.getBody();
+    }
+
+    public Buffer hit(@NonNull CachedResponse response) {
+        hits.increment();
+        return response.getBody();
+    }
+
+    /**
+     * Fresh entry of a key not cached here found by peers, it is stored with its original age
+     */
+    public Observable<Buffer> fromPeers(@NonNull String key) {
+        return peers.apply(key)
+                .filter(this::isFresh)
+                .take(1)
+                .doOnNext(found -> put(key, found))
+                .map(this::hit);
+    }
+
+    /**
+     * Entry served regardless of its age because GitHub is unavailable
+     */
+    public Buffer servedStale(@NonNull CachedResponse response) {
+        staleServed.increment();
+        return response.getBody();
+    }
+
+    /**
+     * Listener is notified about every stored or revalidated entry, e.g. to persist it
+     */
+    public void onStore(@NonNull BiConsumer<String, CachedResponse> listener) {
+        this.storeListener = listener;
+    }
+
+    /**
+     * Peers are asked for entries not cached here, they return nothing when they do not have them
+     */
+    public void usePeers(@NonNull Function<String, Observable<CachedResponse>> peers) {
+        this.peers = peers;
+    }
+
+    /**
+     * Puts entry loaded from elsewhere, e.g. from disk after restart, unless the key is already cached
+     */
+    public synchronized void restore(@NonNull String key, @NonNull CachedResponse response) {
+        entries.putIfAbsent(key, response);
+    }
+
+    /**
+     * @return copy of all entries, least recently used first
+     */
+    public synchronized Map<String, CachedResponse> snapshot() {
+        return new LinkedHashMap<>(entries);
+    }
+
+    private void put(String key, CachedResponse response) {
+        synchronized (this) {
+            entries.put(key, response);
+        }
+        storeListener.accept(key, response);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), revalidations.sum(), evictions.sum(), staleServed.sum(), size());
+    }
+
+    @Value
+    public static class CachedResponse {
+        private Buffer body;
+        private String etag;
+        private String lastModified;
+        private long storedAtMillis;
+
+        boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+    }
+
+    @Value
+    public static class CacheStats {
+        private long hits;
+        private long misses;
+        private long revalidations;
+        private long evictions;
+        private long staleServed;
+        private int size;
+
+        public JsonObject toJson() {
+            return JsonObject.mapFrom(this);
+        }
+    }
+}
@@ -1,75 +1,311 @@
 package io.vertx.git.users.github.http;
 
 import io.vertx.core.json.JsonObject;
+import io.vertx.git.users.github.http.RateLimitScheduler.Priority;
+import io.vertx.git.users.github.http.ResponseCache.CachedResponse;
+import io.vertx.git.users.metrics.Metrics;
 import io.vertx.rxjava.core.buffer.Buffer;
 import io.vertx.rxjava.ext.web.client.HttpRequest;
 import io.vertx.rxjava.ext.web.client.HttpResponse;
 import io.vertx.rxjava.ext.web.client.WebClient;
+import lombok.Builder;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import rx.Observable;
 import rx.Single;
 
 import javax.xml.ws.http.HTTPException;
 import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Slf4j
-@RequiredArgsConstructor
 public class SafeWebClient {
 
     private static final String RATE_REMAINING =  "X-RateLimit-Remaining";
     private static final String RATE_LIMIT =  "X-RateLimit-Limit";
+    private static final String RATE_RESET =  "X-RateLimit-Reset";
+
+    private static final String ETAG = "ETag";
+    private static final String LAST_MODIFIED = "Last-Modified";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    private static final String AUTHORIZATION = "Authorization";
+
+    private static final int OK = 200;
+    private static final int NOT_MODIFIED = 304;
+    private static final int SERVER_ERROR = 500;
 
     private static final int DEFAULT_TIMEOUT_MILLIS = 5000;
 
     private final WebClient client;
     private final URL url;
     private final long timeoutMillis;
+    private final ResponseCache cache;
+    private final RateLimitScheduler scheduler;
+    private final RateLimitBucket bucket;
+    private final Priority priority;
+    private final Deadline deadline;
+    private final CircuitBreaker breaker;
+    private final Metrics metrics;
+    private final TokenPool tokens;
+    private final RequestHedger hedger;
 
     public SafeWebClient(WebClient client, URL url) {
-        this(client, url, DEFAULT_TIMEOUT_MILLIS);
+        this(client, url, DEFAULT_TIMEOUT_MILLIS, null, null, null, null, null, null, null, null, null);
+    }
+
+    /**
+     * @param cache     cache used for conditional requests of {@link #get()}, may be null to disable caching
+     * @param scheduler scheduler pacing the calls, may be null to send calls right away
+     * @param bucket    quota the calls are counted against, CORE by default
+     * @param priority  priority of the calls in scheduler queue, NORMAL by default
+     * @param deadline  budget of the client request, it caps the timeout and the time spent in scheduler queue
+     * @param breaker   circuit breaker guarding the calls, may be null; cached responses are served while it is open
+     * @param metrics   metrics upstream response statuses are counted in, may be null
+     * @param tokens    tokens the calls are authorized with, calls are anonymous when null
+     * @param hedger    hedger duplicating slow calls, may be null; it measures and duplicates only calls sent
+     *                  to GitHub, after the cache and the scheduler queue, and every duplicate is paced and
+     *                  authorized like any other call
+     */
+    @Builder
+    private SafeWebClient(@NonNull WebClient client, @NonNull URL url, long timeoutMillis, ResponseCache cache,
+                          RateLimitScheduler scheduler, RateLimitBucket bucket, Priority priority, Deadline deadline,
+                          CircuitBreaker breaker, Metrics metrics, TokenPool tokens, RequestHedger hedger) {
+        this.client = client;
+        this.url = url;
+        this.timeoutMillis = timeoutMillis > 0 ? timeoutMillis : DEFAULT_TIMEOUT_MILLIS;
+        this.cache = cache;
+        this.scheduler = scheduler;
+        this.bucket = bucket != null ? bucket : RateLimitBucket.CORE;
+        this.priority = priority != null ? priority : Priority.NORMAL;
+        this.deadline = deadline != null ? deadline : Deadline.none();
+        this.breaker = breaker;
+        this.metrics = metrics;
+        this.tokens = tokens;
+        this.hedger = hedger;
     }
 
     public Single<JsonObject> get() {
-        return doSafeRequest(buildGetRequest());
+        return getBody().map(Buffer::toJsonObject);
     }
 
     public Single<JsonObject> get(@NonNull String paramName, @NonNull String paramValue) {
-        return doSafeRequest(buildGetRequest().addQueryParam(paramName, paramValue));
+        return doSafeRequest(buildGetRequest().addQueryParam(paramName, paramValue)).map(Buffer::toJsonObject);
+    }
+
+    public Single<JsonObject> get(@NonNull Map<String, String> queryParams) {
+        return getBody(queryParams).map(Buffer::toJsonObject);
+    }
+
+    /**
+     * Raw body of successful response, for callers decoding it on their own
+     */
+    public Single<Buffer> getBody() {
+        return cache == null
+                ? doSafeRequest(buildGetRequest())
+                : doConditionalRequest(url.toExternalForm());
+    }
+
+    public Single<Buffer> getBody(@NonNull Map<String, String> queryParams) {
+        HttpRequest<Buffer> request = buildGetRequest();
+        queryParams.forEach(request::addQueryParam);
+        return doSafeRequest(request);
+    }
+
+    /**
+     * Raw body of successful response to POST of the JSON body, responses are not cached
+     */
+    public Single<Buffer> postJson(@NonNull JsonObject body) {
+        HttpRequest<Buffer> request = url.getPort() == -1
+                ? client.post(url.getHost(), url.getPath())
+                : client.post(url.getPort(), url.getHost(), url.getPath());
+        return send(request, r -> r.rxSendJsonObject(body))
+                .flatMap(this::leaveOnlySuccess)
+                .map(HttpResponse::body);
     }
 
+    /**
+     * Port given in URL is used, client default port otherwise
+     */
     private HttpRequest<Buffer> buildGetRequest() {
-        return client.get(url.getHost(), url.getPath()).timeout(timeoutMillis);
+        return url.getPort() == -1
+                ? client.get(url.getHost(), url.getPath())
+                : client.get(url.getPort(), url.getHost(), url.getPath());
     }
 
-    private Single<JsonObject> doSafeRequest(HttpRequest<Buffer> request) {
-        return request.rxSend()
-                .doOnSuccess(this::logApiLimit)
+    private Single<Buffer> doSafeRequest(HttpRequest<Buffer> request) {
+        return send(request)
                 .flatMap(this::leaveOnlySuccess)
-                .map(HttpResponse::bodyAsJsonObject);
+                .map(HttpResponse::body);
+    }
+
+    private Single<Buffer> doConditionalRequest(String key) {
+        CachedResponse cached = cache.get(key);
+        if (cached != null && cache.isFresh(cached)) {
+            log.debug("Serving {} from cache", key);
+            return Single.just(cache.hit(cached));
+        }
+        if (cached == null) {
+            return cache.fromPeers(key)
+                    .switchIfEmpty(Observable.defer(() -> doConditionalRequest(key, null).toObservable()))
+                    .toSingle();
+        }
+        return doConditionalRequest(key, cached);
+    }
+
+    private Single<Buffer> doConditionalRequest(String key, CachedResponse cached) {
+
+        HttpRequest<Buffer> request = buildGetRequest();
+        if (cached != null && cached.hasValidators()) {
+            addValidators(request, cached);
+        }
+
+        return send(request)
+                .flatMap(resp -> {
+                    if (resp.statusCode() == NOT_MODIFIED && cached != null) {
+                        log.debug("Cached response for {} is still valid", key);
+                        return Single.just(cache.revalidated(key, cached));
+                    }
+                    return leaveOnlySuccess(resp)
+                            .map(r -> cache.store(key, r.body(), r.getHeader(ETAG), r.getHeader(LAST_MODIFIED)));
+                })
+                .onErrorResumeNext(error -> {
+                    if (cached != null && error instanceof CircuitOpenException) {
+                        log.debug("Serving stale {} while GitHub is unavailable", key);
+                        return Single.just(cache.servedStale(cached));
+                    }
+                    return Single.error(error);
+                });
     }
 
-    private void logApiLimit(HttpResponse<Buffer> r) {
+    private void addValidators(HttpRequest<Buffer> request, CachedResponse cached) {
+        if (cached.getEtag() != null) {
+            request.putHeader(IF_NONE_MATCH, cached.getEtag());
+        }
+        if (cached.getLastModified() != null) {
+            request.putHeader(IF_MODIFIED_SINCE, cached.getLastModified());
+        }
+    }
+
+    private Single<HttpResponse<Buffer>> send(HttpRequest<Buffer> request) {
+        return send(request, HttpRequest::rxSend);
+    }
+
+    private Single<HttpResponse<Buffer>> send(HttpRequest<Buffer> request,
+                                              Function<HttpRequest<Buffer>, Single<HttpResponse<Buffer>>> sender) {
+        if (deadline.isExpired()) {
+            return Single.error(new DeadlineExceededException("Deadline exceeded before calling " + url));
+        }
+        if (breaker != null && breaker.isOpen()) {
+            return Single.error(new CircuitOpenException(breaker.retryAfterMillis()));
+        }
+        // the token is picked when the call leaves the scheduler queue, so it goes by the latest known quotas
+        Supplier<Single<HttpResponse<Buffer>>> call = () -> authorizeAndSend(request, sender);
+        // a duplicate of a slow call is one more GitHub call, it waits for quota and takes a token of its own
+        Single<HttpResponse<Buffer>> response = hedger == null
+                ? scheduled(call)
+                : scheduled(() -> hedger.execute(call, this::scheduled));
+        return response
+                .doOnError(error -> {
+                    if (metrics != null) {
+                        metrics.upstreamFailure(bucket);
+                    }
+                });
+    }
+
+    private Single<HttpResponse<Buffer>> scheduled(Supplier<Single<HttpResponse<Buffer>>> call) {
+        return scheduler == null
+                ? call.get()
+                : scheduler.schedule(bucket, priority, deadline.remainingMillis(), call);
+    }
+
+    private Single<HttpResponse<Buffer>> authorizeAndSend(HttpRequest<Buffer> request,
+                                                          Function<HttpRequest<Buffer>, Single<HttpResponse<Buffer>>> sender) {
+        TokenPool.Token token = null;
+        if (tokens != null) {
+            try {
+                token = tokens.acquire(bucket);
+            } catch (ApiLimitReachedException e) {
+                log.warn("No token has {} calls left", bucket);
+                return Single.error(e);
+            }
+            request.putHeader(AUTHORIZATION, token.authorization());
+        }
+        // the timeout starts once the call leaves the scheduler queue, it is cut to what is left of the deadline
+        long callTimeoutMillis = Math.max(1, deadline.timeoutMillis(timeoutMillis));
+        request.timeout(callTimeoutMillis);
+        Supplier<Single<HttpResponse<Buffer>>> attempt = () -> sender.apply(request)
+                .onErrorResumeNext(error -> Single.error(callTimeoutMillis < timeoutMillis
+                        && error instanceof TimeoutException && !(error instanceof DeadlineExceededException)
+                        ? new DeadlineExceededException("Deadline exceeded after " + callTimeoutMillis + "ms calling " + url)
+                        : error));
+        Supplier<Single<HttpResponse<Buffer>>> guarded = breaker == null
+                ? attempt
+                : () -> breaker.execute(attempt, resp -> resp.statusCode() >= SERVER_ERROR);
+        TokenPool.Token usedToken = token;
+        return guarded.get()
+                .doOnSuccess(resp -> trackApiLimit(usedToken, resp));
+    }
+
+    private void trackApiLimit(TokenPool.Token token, HttpResponse<Buffer> r) {
+        if (metrics != null) {
+            metrics.upstreamResponse(bucket, r.statusCode());
+        }
         String rateLimit = r.getHeader(RATE_LIMIT);
         String callsRemaining = r.getHeader(RATE_REMAINING);
-        log.info("Github API: {} calls left of initial {}", callsRemaining, rateLimit);
+        log.debug("Github API: {} calls left of initial {}", callsRemaining, rateLimit);
+
+        String reset = r.getHeader(RATE_RESET);
+        if (rateLimit == null || callsRemaining == null || reset == null) {
+            return;
+        }
+        try {
+            int limit = Integer.parseInt(rateLimit);
+            int remaining = Integer.parseInt(callsRemaining);
+            long resetEpochSeconds = Long.parseLong(reset);
+            if (token != null) {
+                tokens.update(token, bucket, limit, remaining, resetEpochSeconds);
+                TokenPool.Total total = tokens.total(bucket);
+                if (scheduler != null && total != null) {
+                    scheduler.updateTotal(bucket, total.getLimit(), total.getRemaining(), total.getResetEpochSeconds());
+                }
+            } else if (scheduler != null) {
+                scheduler.update(bucket, limit, remaining, resetEpochSeconds);
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Unexpected rate limit headers: {}/{} reset at {}", callsRemaining, rateLimit, reset);
+        }
     }
 
     private Single<HttpResponse<Buffer>> leaveOnlySuccess(HttpResponse<Buffer> resp) {
-        if (resp.statusCode() == 200) {
-            log.debug("Response successful. Body: {}", resp.bodyAsString());
+        if (resp.statusCode() == OK) {
+            if (log.isDebugEnabled()) {
+                log.debug("Response successful. Body: {}", resp.bodyAsString());
+            }
             return Single.just(resp);
         }
         return buildError(resp);
     }
 
     private Single<HttpResponse<Buffer>> buildError(HttpResponse<Buffer> resp) {
-        if(resp.getHeader(RATE_REMAINING).equals("0")) {
+        if ("0".equals(resp.getHeader(RATE_REMAINING))) {
             log.warn("Github API limit exceeded");
-            return Single.error(new ApiLimitReachedException(resp.getHeader(RATE_LIMIT)));
+            return Single.error(new ApiLimitReachedException(resp.getHeader(RATE_LIMIT), secondsTillReset(resp)));
         }
         log.warn("Returning error for response with status code: {}. Body: {}", resp.statusCode(), resp.bodyAsString());
         return Single.error(new HTTPException(resp.statusCode()));
     }
 
+    private static long secondsTillReset(HttpResponse<Buffer> resp) {
+        try {
+            long resetEpochSeconds = Long.parseLong(resp.getHeader(RATE_RESET));
+            return Math.max(1, resetEpochSeconds - TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
 }
@@ -0,0 +1,196 @@
+package io.vertx.git.users.github.http;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * API tokens GitHub calls are authorized with, each having its own quota per bucket.
+ * A call goes to the token with most remaining calls of the bucket, tokens not used yet are preferred;
+ * a token with no calls left is skipped till its quota resets. Quotas are taken from X-RateLimit-* headers
+ * of responses to calls made with the token and counted down as calls are sent.
+ */
+@Slf4j
+public class TokenPool {
+
+    private final List<Token> tokens;
+    private final LongSupplier clock;
+
+    public TokenPool(@NonNull List<String> tokens) {
+        this(tokens, System::currentTimeMillis);
+    }
+
+    TokenPool(List<String> tokens, LongSupplier clock) {
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("Token pool needs at least one token");
+        }
+        List<Token> pool = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            pool.add(new Token(i, tokens.get(i)));
+        }
+        this.tokens = Collections.unmodifiableList(pool);
+        this.clock = clock;
+    }
+
+    /**
+     * Picks the token for a call counted against the bucket
+     *
+     * @throws ApiLimitReachedException when no token has calls left, with the time till the first quota reset
+     */
+    public synchronized Token acquire(@NonNull RateLimitBucket bucket) {
+        long now = clock.getAsLong();
+        Token best = null;
+        long firstResetAtMillis = Long.MAX_VALUE;
+        for (Token token : tokens) {
+            Quota quota = token.quota(bucket, now);
+            if (quota.exhausted()) {
+                firstResetAtMillis = Math.min(firstResetAtMillis, quota.resetAtMillis);
+            } else if (best == null || quota.budget() > best.quota(bucket, now).budget()) {
+                best = token;
+            }
+        }
+        if (best == null) {
+            long retryAfterSeconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(firstResetAtMillis - now + 999));
+            throw new ApiLimitReachedException(String.valueOf(limit(bucket)), retryAfterSeconds);
+        }
+        best.quota(bucket, now).remaining--;
+        return best;
+    }
+
+    /**
+     * Updates quota of the token with values from a response to a call made with it
+     */
+    public synchronized void update(@NonNull Token token, @NonNull RateLimitBucket bucket, int limit, int remaining,
+                                    long resetEpochSeconds) {
+        long resetAtMillis = TimeUnit.SECONDS.toMillis(resetEpochSeconds);
+        Quota quota = token.quota(bucket, clock.getAsLong());
+        boolean sameWindow = quota.known && quota.resetAtMillis == resetAtMillis;
+        // responses of parallel calls may arrive out of order
+        quota.remaining = sameWindow ? Math.min(quota.remaining, remaining) : remaining;
+        quota.limit = limit;
+        quota.resetAtMillis = resetAtMillis;
+        quota.known = true;
+        if (quota.remaining <= 0) {
+            log.info("Token #{} has no {} calls left till {}", token.id, bucket, resetEpochSeconds);
+        }
+    }
+
+    /**
+     * @return sum of known quotas of all tokens, the latest reset is reported so pacing does not overspend,
+     * null when no quota is known yet
+     */
+    public synchronized Total total(@NonNull RateLimitBucket bucket) {
+        long now = clock.getAsLong();
+        int limit = 0;
+        int remaining = 0;
+        long resetAtMillis = 0;
+        for (Token token : tokens) {
+            Quota quota = token.quota(bucket, now);
+            if (quota.known) {
+                limit += quota.limit;
+                remaining += Math.max(0, quota.remaining);
+                resetAtMillis = Math.max(resetAtMillis, quota.resetAtMillis);
+            }
+        }
+        return limit == 0 ? null : new Total(limit, remaining, TimeUnit.MILLISECONDS.toSeconds(resetAtMillis));
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+
+    public synchronized JsonArray stats() {
+        long now = clock.getAsLong();
+        JsonArray stats = new JsonArray();
+        for (Token token : tokens) {
+            JsonObject json = new JsonObject().put("id", token.id);
+            for (RateLimitBucket bucket : RateLimitBucket.values()) {
+                Quota quota = token.quota(bucket, now);
+                if (quota.known) {
+                    json.put(bucket.name().toLowerCase(), new JsonObject()
+                            .put("limit", quota.limit)
+                            .put("remaining", Math.max(0, quota.remaining))
+                            .put("resetInSeconds", TimeUnit.MILLISECONDS.toSeconds(Math.max(0, quota.resetAtMillis - now))));
+                }
+            }
+            stats.add(json);
+        }
+        return stats;
+    }
+
+    private int limit(RateLimitBucket bucket) {
+        long now = clock.getAsLong();
+        return tokens.stream().mapToInt(token -> token.quota(bucket, now).limit).sum();
+    }
+
+    public static class Token {
+        private final int id;
+        private final String authorization;
+        private final Map<RateLimitBucket, Quota> quotas = new EnumMap<>(RateLimitBucket.class);
+
+        private Token(int id, String value) {
+            this.id = id;
+            this.authorization = "token " + value;
+            for (RateLimitBucket bucket : RateLimitBucket.values()) {
+                quotas.put(bucket, new Quota());
+            }
+        }
+
+        /**
+         * @return value of Authorization header
+         */
+        public String authorization() {
+            return authorization;
+        }
+
+        private Quota quota(RateLimitBucket bucket, long now) {
+            Quota quota = quotas.get(bucket);
+            if (quota.known && now >= quota.resetAtMillis) {
+                quota.known = false;
+                quota.remaining = 0;
+            }
+            return quota;
+        }
+
+        @Override
+        public String toString() {
+            // never log the secret
+            return "Token #" + id;
+        }
+    }
+
+    @Value
+    public static class Total {
+        int limit;
+        int remaining;
+        long resetEpochSeconds;
+    }
+
+    private static class Quota {
+        private boolean known;
+        private int limit;
+        private int remaining;
+        private long resetAtMillis;
+
+        boolean exhausted() {
+            return known && remaining <= 0;
+        }
+
+        /**
+         * Unused quota; an unknown one counts as bigger than any known, less the calls sent since
+         */
+        long budget() {
+            return known ? remaining : Integer.MAX_VALUE + (long) remaining;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package io.vertx.git.users.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations with fixed exponential buckets (250us doubling up to ~33s).
+ * Recording only increments {@link LongAdder}s, so it does not allocate and scales with concurrent writers.
+ * Percentiles are estimated as the upper bound of the bucket they fall into.
+ */
+public class LatencyHistogram {
+
+    private static final long FIRST_BOUND_NANOS = TimeUnit.MICROSECONDS.toNanos(250);
+    private static final int BOUNDS = 18;
+    private static final long[] BOUND_NANOS = new long[BOUNDS];
+
+    static {
+        for (int i = 0; i < BOUNDS; i++) {
+            BOUND_NANOS[i] = FIRST_BOUND_NANOS << i;
+        }
+    }
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        int index = 0;
+        while (index < BOUNDS && nanos > BOUND_NANOS[index]) {
+            index++;
+        }
+        buckets[index].increment();
+        sumNanos.add(Math.max(0, nanos));
+    }
+
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @param quantile quantile between 0 and 1
+     * @return estimated duration in nanoseconds, 0 when nothing was recorded
+     */
+    public long quantileNanos(double quantile) {
+        long[] counts = snapshot();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return BOUND_NANOS[i];
+            }
+        }
+        return BOUND_NANOS[BOUNDS - 1];
+    }
+
+    /**
+     * Appends buckets, sum and count in Prometheus text format
+     *
+     * @param labels rendered labels of the series, e.g. {@code stage="search"}
+     */
+    void writeTo(StringBuilder out, String name, String labels) {
+        long[] counts = snapshot();
+        long cumulative = 0;
+        for (int i = 0; i < BOUNDS; i++) {
+            cumulative += counts[i];
+            out.append(name).append("_bucket{").append(labels).append(",le=\"")
+                    .append(seconds(BOUND_NANOS[i])).append("\"} ").append(cumulative).append('\n');
+        }
+        cumulative += counts[BOUNDS];
+        out.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append(name).append("_sum{").append(labels).append("} ").append(seconds(sumNanos.sum())).append('\n');
+        out.append(name).append("_count{").append(labels).append("} ").append(cumulative).append('\n');
+    }
+
+    private long[] snapshot() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+}
@@ -0,0 +1,225 @@
+package io.vertx.git.users.metrics;
+
+import io.vertx.git.users.github.http.RateLimitBucket;
+import io.vertx.rxjava.core.Vertx;
+import lombok.NonNull;
+import lombok.Value;
+import rx.Observable;
+import rx.Single;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Latency of search stages, upstream responses, in-flight requests and event loop lag, rendered in Prometheus text format.
+ * Recording touches only preallocated {@link LongAdder}s, state of other components is read through gauges when scraped.
+ */
+public class Metrics {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final String PREFIX = "github_users_";
+    private static final double[] QUANTILES = {0.5, 0.99};
+    private static final int MAX_STATUS = 599;
+    private static final int NO_RESPONSE = 0;
+
+    public enum Stage {
+        SEARCH, LANGUAGE_FALLBACK, PROFILES, ENCODING, TOTAL, ADMISSION_WAIT;
+
+        private final String label = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+    private final LatencyHistogram eventLoopLag = new LatencyHistogram();
+    private final LongAdder[][] upstreamResponses = new LongAdder[RateLimitBucket.values().length][MAX_STATUS + 1];
+    private final LongAdder inFlight = new LongAdder();
+    private final Map<String, GaugeFamily> gauges = new LinkedHashMap<>();
+
+    public Metrics() {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new LatencyHistogram());
+        }
+        for (LongAdder[] statuses : upstreamResponses) {
+            for (int i = 0; i < statuses.length; i++) {
+                statuses[i] = new LongAdder();
+            }
+        }
+    }
+
+    public void record(@NonNull Stage stage, long nanos) {
+        stages.get(stage).record(nanos);
+    }
+
+    public LatencyHistogram histogram(@NonNull Stage stage) {
+        return stages.get(stage);
+    }
+
+    /**
+     * Records time from subscription till success or error of the source
+     */
+    public <T> Single<T> time(@NonNull Stage stage, @NonNull Single<T> source) {
+        return Single.defer(() -> {
+            long start = System.nanoTime();
+            return source.doAfterTerminate(() -> record(stage, System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * Records time from subscription till completion or error of the source
+     */
+    public <T> Observable<T> time(@NonNull Stage stage, @NonNull Observable<T> source) {
+        return Observable.defer(() -> {
+            long start = System.nanoTime();
+            return source.doAfterTerminate(() -> record(stage, System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * @return start of the request to be passed to {@link #requestFinished(long)}
+     */
+    public long requestStarted() {
+        inFlight.increment();
+        return System.nanoTime();
+    }
+
+    public void requestFinished(long startNanos) {
+        inFlight.decrement();
+        record(Stage.TOTAL, System.nanoTime() - startNanos);
+    }
+
+    public long inFlight() {
+        return inFlight.sum();
+    }
+
+    public void upstreamResponse(@NonNull RateLimitBucket bucket, int status) {
+        upstreamResponses[bucket.ordinal()][status > 0 && status <= MAX_STATUS ? status : NO_RESPONSE].increment();
+    }
+
+    /**
+     * Upstream call which ended without a response, e.g. timed out or was rejected locally
+     */
+    public void upstreamFailure(@NonNull RateLimitBucket bucket) {
+        upstreamResponses[bucket.ordinal()][NO_RESPONSE].increment();
+    }
+
+    public long upstreamResponses(@NonNull RateLimitBucket bucket, int status) {
+        return upstreamResponses[bucket.ordinal()][status].sum();
+    }
+
+    /**
+     * @param name   metric name without the common prefix
+     * @param labels rendered labels of the series, e.g. {@code bucket="search"}, may be empty
+     */
+    public synchronized void gauge(@NonNull String name, @NonNull String help, @NonNull String labels,
+                                   @NonNull DoubleSupplier value) {
+        gauges.computeIfAbsent(name, n -> new GaugeFamily(help, new ArrayList<>()))
+                .getSeries().add(new Gauge(labels, value));
+    }
+
+    /**
+     * Removes a series registered by {@link #gauge}, e.g. of a component which is stopped, and its family
+     * once no series is left
+     */
+    public synchronized void removeGauge(@NonNull String name, @NonNull String labels) {
+        GaugeFamily family = gauges.get(name);
+        if (family == null) {
+            return;
+        }
+        family.getSeries().removeIf(gauge -> gauge.getLabels().equals(labels));
+        if (family.getSeries().isEmpty()) {
+            gauges.remove(name);
+        }
+    }
+
+    /**
+     * Measures how late a timer fires on the event loop of the calling context
+     */
+    public void monitorEventLoop(@NonNull Vertx vertx, long intervalMillis) {
+        long scheduledAt = System.nanoTime();
+        vertx.setTimer(intervalMillis, id -> {
+            long expected = scheduledAt + TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+            eventLoopLag.record(Math.max(0, System.nanoTime() - expected));
+            monitorEventLoop(vertx, intervalMillis);
+        });
+    }
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder(8192);
+
+        String stageName = PREFIX + "stage_duration_seconds";
+        header(out, stageName, "Duration of search stages", "histogram");
+        stages.forEach((stage, histogram) -> histogram.writeTo(out, stageName, stageLabel(stage)));
+
+        String quantileName = PREFIX + "stage_duration_quantile_seconds";
+        header(out, quantileName, "Estimated quantiles of search stage duration", "gauge");
+        stages.forEach((stage, histogram) -> {
+            for (double quantile : QUANTILES) {
+                out.append(quantileName).append('{').append(stageLabel(stage)).append(",quantile=\"").append(quantile)
+                        .append("\"} ").append(LatencyHistogram.seconds(histogram.quantileNanos(quantile))).append('\n');
+            }
+        });
+
+        String lagName = PREFIX + "event_loop_lag_seconds";
+        header(out, lagName, "Delay of event loop timers", "histogram");
+        eventLoopLag.writeTo(out, lagName, "loop=\"http\"");
+
+        String upstreamName = PREFIX + "upstream_responses_total";
+        header(out, upstreamName, "GitHub responses by rate limit bucket and status, status 0 is a call without response", "counter");
+        for (RateLimitBucket bucket : RateLimitBucket.values()) {
+            LongAdder[] statuses = upstreamResponses[bucket.ordinal()];
+            for (int status = 0; status < statuses.length; status++) {
+                long count = statuses[status].sum();
+                if (count > 0) {
+                    out.append(upstreamName).append("{bucket=\"").append(bucket.name().toLowerCase(Locale.ROOT))
+                            .append("\",status=\"").append(status).append("\"} ").append(count).append('\n');
+                }
+            }
+        }
+
+        String inFlightName = PREFIX + "requests_in_flight";
+        header(out, inFlightName, "Client requests being processed", "gauge");
+        out.append(inFlightName).append(' ').append(inFlight()).append('\n');
+
+        synchronized (this) {
+            gauges.forEach((name, family) -> {
+                header(out, PREFIX + name, family.getHelp(), "gauge");
+                for (Gauge gauge : family.getSeries()) {
+                    out.append(PREFIX).append(name);
+                    if (!gauge.getLabels().isEmpty()) {
+                        out.append('{').append(gauge.getLabels()).append('}');
+                    }
+                    out.append(' ').append(gauge.getValue().getAsDouble()).append('\n');
+                }
+            });
+        }
+        return out.toString();
+    }
+
+    private static String stageLabel(Stage stage) {
+        return "stage=\"" + stage.label + "\"";
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    @Value
+    private static class GaugeFamily {
+        private String help;
+        private List<Gauge> series;
+    }
+
+    @Value
+    private static class Gauge {
+        private String labels;
+        private DoubleSupplier value;
+    }
+}
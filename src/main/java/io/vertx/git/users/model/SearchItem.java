@@ -0,0 +1,13 @@
+package io.vertx.git.users.model;
+
+import lombok.Value;
+
+/**
+ * Part of GitHub search result the application needs: who was found and where to get the full profile
+ */
+@Value
+public class SearchItem {
+
+    private String login;
+    private String url;
+}
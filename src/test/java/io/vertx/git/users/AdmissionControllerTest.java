@@ -0,0 +1,77 @@
+package io.vertx.git.users;
+
+import io.vertx.git.users.AdmissionController.Permit;
+import lombok.val;
+import org.junit.Test;
+import rx.observers.AssertableSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdmissionControllerTest {
+
+    private final TestScheduler scheduler = new TestScheduler();
+    private final AdmissionController controller = new AdmissionController(1, 2, 1000, 100, 500, scheduler, null);
+
+    @Test
+    public void shouldQueueRequestsOverLimitAndRejectWhenQueueIsFull() {
+        //given
+        val first = controller.admit(false).test();
+        val second = controller.admit(false).test();
+        val third = controller.admit(false).test();
+
+        //when
+        val fourth = controller.admit(false).test();
+        val cached = controller.admit(true).test();
+
+        //then
+        first.assertValueCount(1);
+        second.assertNoTerminalEvent();
+        third.assertNoTerminalEvent();
+        fourth.assertError(OverloadedException.class);
+        cached.assertValueCount(1);
+        first.getOnNextEvents().get(0).release();
+        second.assertValueCount(1);
+        third.assertNoTerminalEvent();
+    }
+
+    @Test
+    public void shouldServeNewestFirstAndShedAfterTargetWaitWhenOverloaded() {
+        //given
+        val first = controller.admit(false).test();
+        val old = controller.admit(false).test();
+        scheduler.advanceTimeBy(600, MILLISECONDS);
+        val newest = controller.admit(false).test();
+
+        //when
+        release(first);
+        scheduler.advanceTimeBy(100, MILLISECONDS);
+
+        //then
+        newest.assertValueCount(1);
+        old.assertError(OverloadedException.class);
+        assertThat(controller.stats().getLong("shed")).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldShedAfterMaxWaitWhenNotOverloaded() {
+        //given
+        val patient = new AdmissionController(1, 2, 300, 100, 5000, scheduler, null);
+        patient.admit(false).test();
+        val waiting = patient.admit(false).test();
+
+        //when
+        scheduler.advanceTimeBy(200, MILLISECONDS);
+        waiting.assertNoTerminalEvent();
+        scheduler.advanceTimeBy(100, MILLISECONDS);
+
+        //then
+        waiting.assertError(OverloadedException.class);
+        assertThat(patient.getQueueSize()).isZero();
+    }
+
+    private static void release(AssertableSubscriber<Permit> admitted) {
+        admitted.getOnNextEvents().get(0).release();
+    }
+}
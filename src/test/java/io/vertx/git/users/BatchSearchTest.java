@@ -0,0 +1,94 @@
+package io.vertx.git.users;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.git.users.load.SimulatorFixture;
+import io.vertx.rxjava.core.Vertx;
+import io.vertx.rxjava.core.buffer.Buffer;
+import io.vertx.rxjava.ext.web.client.HttpResponse;
+import io.vertx.rxjava.ext.web.client.WebClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchSearchTest {
+
+    private final Vertx vertx = Vertx.vertx();
+    private final WebClient client = WebClient.create(vertx);
+    private int githubPort;
+    private int port;
+
+    @Before
+    public void deploy() {
+        githubPort = SimulatorFixture.deploy(vertx);
+        port = SimulatorFixture.freePort();
+        vertx.rxDeployVerticle(RestVerticle.class.getName(), new DeploymentOptions().setConfig(new JsonObject()
+                .put("port", port)
+                .put("github", new JsonObject().put("baseUrl", SimulatorFixture.baseUrl(githubPort)))
+                // every profile lookup would go to GitHub without the batch
+                .put("profileCache", new JsonObject().put("ttlSeconds", 0))
+                .put("profileFetch", new JsonObject().put("hedgeMaxShare", 0))
+                .put("batch", new JsonObject().put("concurrency", 1))))
+                .toBlocking().value();
+    }
+
+    @After
+    public void closeVertx() {
+        vertx.close();
+    }
+
+    @Test
+    public void shouldFetchProfileFoundBySeveralSearchesOnce() {
+        //given
+        JsonArray queries = new JsonArray()
+                .add(new JsonObject().put("user", "octo"))
+                .add(new JsonObject().put("user", "octo").put("language", "java"));
+
+        //when
+        HttpResponse<Buffer> response = post(queries);
+
+        //then
+        assertThat(response.statusCode()).isEqualTo(200);
+        List<JsonObject> lines = lines(response);
+        assertThat(lines).hasSize(2);
+        assertThat(lines).extracting(line -> line.getInteger("index")).containsExactlyInAnyOrder(0, 1);
+        assertThat(lines).allSatisfy(line -> assertThat(line.getJsonArray("users")).hasSize(30));
+        JsonObject stats = SimulatorFixture.stats(vertx, githubPort);
+        assertThat(stats.getJsonObject("search").getLong("calls")).isEqualTo(2);
+        assertThat(stats.getJsonObject("profile").getLong("calls")).isEqualTo(30);
+    }
+
+    @Test
+    public void shouldRejectSearchWithoutUser() {
+        //given
+        JsonArray queries = new JsonArray()
+                .add(new JsonObject().put("user", "octo"))
+                .add(new JsonObject().put("language", "java"));
+
+        //when
+        HttpResponse<Buffer> response = post(queries);
+
+        //then
+        assertThat(response.statusCode()).isEqualTo(400);
+        assertThat(response.bodyAsString()).contains("search 1");
+    }
+
+    private HttpResponse<Buffer> post(JsonArray queries) {
+        return client.post(port, "localhost", "/search/batch").rxSendBuffer(Buffer.buffer(queries.encode()))
+                .toBlocking().value();
+    }
+
+    private static List<JsonObject> lines(HttpResponse<Buffer> response) {
+        List<JsonObject> lines = new ArrayList<>();
+        for (String line : response.bodyAsString().split("\n")) {
+            lines.add(new JsonObject(line));
+        }
+        return lines;
+    }
+}
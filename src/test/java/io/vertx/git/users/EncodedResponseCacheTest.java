@@ -0,0 +1,90 @@
+package io.vertx.git.users;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.git.users.github.SearchKey;
+import io.vertx.git.users.model.User;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EncodedResponseCacheTest {
+
+    private final EncodedResponseCache cache = new EncodedResponseCache(10);
+
+    @Test
+    public void shouldReuseEncodedResponseForSameUsers() {
+        //given
+        val key = SearchKey.of("user", null);
+        val first = cache.encode(key, users("user", 1));
+
+        //when
+        val second = cache.encode(key, users("user", 1));
+
+        //then
+        assertThat(second).isSameAs(first);
+        assertThat(cache.stats().getLong("encodings")).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldEncodeAgainWhenUsersChanged() {
+        //given
+        val key = SearchKey.of("user", null);
+        val first = cache.encode(key, users("user", 1));
+
+        //when
+        val second = cache.encode(key, users("user", 2));
+
+        //then
+        assertThat(second.getEtag()).isNotEqualTo(first.getEtag());
+        assertThat(new JsonArray(second.getPlain().toString()).getJsonObject(0).getLong("followers")).isEqualTo(2);
+    }
+
+    @Test
+    @SneakyThrows
+    public void shouldCompressSameBytes() {
+        //when
+        val encoded = cache.encode(users("user", 1));
+
+        //then
+        assertThat(gunzip(encoded.getGzipped().getDelegate().getBytes())).isEqualTo(encoded.getPlain().getDelegate().getBytes());
+        assertThat(encoded.getGzipEtag()).isNotEqualTo(encoded.getEtag());
+    }
+
+    @Test
+    public void shouldMatchAnyListedEtag() {
+        //given
+        val encoded = cache.encode(users("user", 1));
+
+        //then
+        assertThat(encoded.matches("\"other\", " + encoded.getEtag())).isTrue();
+        assertThat(encoded.matches("W/" + encoded.getGzipEtag())).isTrue();
+        assertThat(encoded.matches("\"other\"")).isFalse();
+        assertThat(encoded.matches(null)).isFalse();
+    }
+
+    private static List<User> users(String login, long followers) {
+        User user = new User();
+        user.setLogin(login);
+        user.setFollowers(followers);
+        return Collections.singletonList(user);
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws Exception {
+        ByteArrayOutputStream plain = new ByteArrayOutputStream();
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            byte[] chunk = new byte[1024];
+            for (int read = gzip.read(chunk); read > 0; read = gzip.read(chunk)) {
+                plain.write(chunk, 0, read);
+            }
+        }
+        return plain.toByteArray();
+    }
+}
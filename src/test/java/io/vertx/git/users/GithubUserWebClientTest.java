@@ -3,6 +3,8 @@ package io.vertx.git.users;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.git.users.github.GithubUserWebClient;
+import io.vertx.git.users.model.SearchItem;
+import io.vertx.git.users.model.User;
 import io.vertx.rxjava.core.buffer.Buffer;
 import io.vertx.rxjava.ext.web.client.HttpRequest;
 import io.vertx.rxjava.ext.web.client.HttpResponse;
@@ -24,6 +26,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Fail.fail;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.verify;
@@ -111,6 +114,16 @@ public class GithubUserWebClientTest {
         verify(request).addQueryParam(any(), any());
     }
 
+    @Test
+    public void shouldRequestPageAndPageSize() {
+        //when
+        searchClient.searchByNameAndLanguage("any", null, 3, 100);
+
+        //then
+        verify(request).addQueryParam("page", "3");
+        verify(request).addQueryParam("per_page", "100");
+    }
+
     @Test
     @SneakyThrows
     public void shouldRetrieveUserByProfile() {
@@ -131,27 +144,63 @@ public class GithubUserWebClientTest {
     public void shouldReturnSearchItems() {
         //given
         val recordsCount = 10;
-        val expectedJsons = getJsonObjects(recordsCount);
-        val resultingJson = buildSearchResposne(expectedJsons);
+        val resultingJson = buildSearchResposne(getJsonObjects(recordsCount));
         HttpResponse<Buffer> mockedResponse = Mockito.mock(HttpResponse.class);
         when(mockedResponse.statusCode()).thenReturn(200);
-        when(mockedResponse.bodyAsJsonObject()).thenReturn(resultingJson);
+        when(mockedResponse.body()).thenReturn(Buffer.buffer(resultingJson.encode()));
         when(request.rxSend()).thenReturn(Single.just(mockedResponse));
 
         //when
-        Observable<JsonObject> result = searchClient.searchByNameAndLanguage("any", "any");
+        Observable<SearchItem> result = searchClient.searchByNameAndLanguage("any", "any");
 
         //then
-        result.test().assertValues(expectedJsons.toArray(new JsonObject[recordsCount]));
+        result.test().assertValues(getSearchItems(recordsCount).toArray(new SearchItem[recordsCount]));
+    }
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("unchecked")
+    public void shouldReadOnlyUsedProfileFields() {
+        //given
+        val profile = new JsonObject()
+                .put("login", "simpleAndrew")
+                .put("name", "Andrew")
+                .put("followers", 7)
+                .put("avatar_url", "https://avatars.githubusercontent.com/u/1")
+                .put("html_url", "https://github.com/simpleAndrew")
+                .put("plan", new JsonObject().put("name", "free"))
+                .put("bio", (String) null);
+        HttpResponse<Buffer> mockedResponse = Mockito.mock(HttpResponse.class);
+        when(mockedResponse.statusCode()).thenReturn(200);
+        when(mockedResponse.body()).thenReturn(Buffer.buffer(profile.encode()));
+        when(request.rxSend()).thenReturn(Single.just(mockedResponse));
+
+        //when
+        val result = searchClient.getByProfile(new URL("http://api.github.com/users/simpleAndrew")).toBlocking().value();
+
+        //then
+        assertThat(result).isEqualTo(profile.mapTo(User.class));
     }
 
     private List<JsonObject> getJsonObjects(int itemsCount) {
         return IntStream.range(0, itemsCount)
-                    .mapToObj(index -> new JsonObject().put("index", index))
+                    .mapToObj(index -> new JsonObject()
+                            .put("login", "user" + index)
+                            .put("url", "http://api.github.com/users/user" + index)
+                            .put("score", 1.0)
+                            .put("index", index))
+                    .collect(Collectors.toList());
+    }
+
+    private List<SearchItem> getSearchItems(int itemsCount) {
+        return IntStream.range(0, itemsCount)
+                    .mapToObj(index -> new SearchItem("user" + index, "http://api.github.com/users/user" + index))
                     .collect(Collectors.toList());
     }
 
     private JsonObject buildSearchResposne(List<JsonObject> jsons) {
-        return new JsonObject().put("items", new JsonArray(jsons));
+        return new JsonObject()
+                .put("total_count", jsons.size())
+                .put("items", new JsonArray(jsons));
     }
 }
\ No newline at end of file
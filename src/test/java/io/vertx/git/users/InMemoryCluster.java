@@ -0,0 +1,188 @@
+package io.vertx.git.users;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.core.shareddata.Counter;
+import io.vertx.core.shareddata.Lock;
+import io.vertx.core.spi.cluster.AsyncMultiMap;
+import io.vertx.core.spi.cluster.ChoosableIterable;
+import io.vertx.core.spi.cluster.ClusterManager;
+import io.vertx.core.spi.cluster.NodeListener;
+import io.vertx.rxjava.core.Vertx;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Clustered Vert.x instances in one JVM: members keep event bus subscriptions in shared in-memory maps,
+ * and messages between them go over TCP as they would between nodes of a real cluster.
+ * Asynchronous maps, locks and counters are not supported.
+ */
+class InMemoryCluster {
+
+    private final List<Member> members = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<String, Map<?, ?>> syncMaps = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, MultiMap<?, ?>> multiMaps = new ConcurrentHashMap<>();
+
+    /**
+     * @return new clustered Vert.x instance joined to the other members
+     */
+    Vertx join() throws Exception {
+        CompletableFuture<Vertx> started = new CompletableFuture<>();
+        Vertx.clusteredVertx(new VertxOptions().setClusterManager(new Member()).setClusterHost("localhost"), result -> {
+            if (result.succeeded()) {
+                started.complete(result.result());
+            } else {
+                started.completeExceptionally(result.cause());
+            }
+        });
+        return started.get(10, TimeUnit.SECONDS);
+    }
+
+    private class Member implements ClusterManager {
+
+        private final String nodeId = UUID.randomUUID().toString();
+        private final List<NodeListener> listeners = new CopyOnWriteArrayList<>();
+        private volatile boolean active;
+
+        @Override
+        public void setVertx(io.vertx.core.Vertx vertx) {
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <K, V> void getAsyncMultiMap(String name, Handler<AsyncResult<AsyncMultiMap<K, V>>> handler) {
+            handler.handle(Future.succeededFuture((MultiMap<K, V>) multiMaps.computeIfAbsent(name, n -> new MultiMap<>())));
+        }
+
+        @Override
+        public <K, V> void getAsyncMap(String name, Handler<AsyncResult<AsyncMap<K, V>>> handler) {
+            handler.handle(Future.failedFuture(new UnsupportedOperationException("Asynchronous maps are not supported")));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <K, V> Map<K, V> getSyncMap(String name) {
+            return (Map<K, V>) syncMaps.computeIfAbsent(name, n -> new ConcurrentHashMap<>());
+        }
+
+        @Override
+        public void getLockWithTimeout(String name, long timeout, Handler<AsyncResult<Lock>> handler) {
+            handler.handle(Future.failedFuture(new UnsupportedOperationException("Locks are not supported")));
+        }
+
+        @Override
+        public void getCounter(String name, Handler<AsyncResult<Counter>> handler) {
+            handler.handle(Future.failedFuture(new UnsupportedOperationException("Counters are not supported")));
+        }
+
+        @Override
+        public String getNodeID() {
+            return nodeId;
+        }
+
+        @Override
+        public List<String> getNodes() {
+            List<String> nodes = new ArrayList<>();
+            members.forEach(member -> nodes.add(member.nodeId));
+            return nodes;
+        }
+
+        @Override
+        public void nodeListener(NodeListener listener) {
+            listeners.add(listener);
+        }
+
+        @Override
+        public void join(Handler<AsyncResult<Void>> handler) {
+            members.forEach(member -> member.listeners.forEach(listener -> listener.nodeAdded(nodeId)));
+            members.add(this);
+            active = true;
+            handler.handle(Future.succeededFuture());
+        }
+
+        @Override
+        public void leave(Handler<AsyncResult<Void>> handler) {
+            active = false;
+            members.remove(this);
+            members.forEach(member -> member.listeners.forEach(listener -> listener.nodeLeft(nodeId)));
+            handler.handle(Future.succeededFuture());
+        }
+
+        @Override
+        public boolean isActive() {
+            return active;
+        }
+    }
+
+    private static class MultiMap<K, V> implements AsyncMultiMap<K, V> {
+
+        private final ConcurrentMap<K, Values<V>> entries = new ConcurrentHashMap<>();
+
+        @Override
+        public void add(K key, V value, Handler<AsyncResult<Void>> handler) {
+            entries.computeIfAbsent(key, k -> new Values<>()).values.addIfAbsent(value);
+            handler.handle(Future.succeededFuture());
+        }
+
+        @Override
+        public void get(K key, Handler<AsyncResult<ChoosableIterable<V>>> handler) {
+            handler.handle(Future.succeededFuture(entries.computeIfAbsent(key, k -> new Values<>())));
+        }
+
+        @Override
+        public void remove(K key, V value, Handler<AsyncResult<Boolean>> handler) {
+            Values<V> values = entries.get(key);
+            handler.handle(Future.succeededFuture(values != null && values.values.remove(value)));
+        }
+
+        @Override
+        public void removeAllForValue(V value, Handler<AsyncResult<Void>> handler) {
+            removeAllMatching(value::equals, handler);
+        }
+
+        @Override
+        public void removeAllMatching(Predicate<V> matcher, Handler<AsyncResult<Void>> handler) {
+            entries.values().forEach(values -> values.values.removeIf(matcher));
+            handler.handle(Future.succeededFuture());
+        }
+    }
+
+    /**
+     * Subscribers of an address, chosen round-robin like a cluster manager does
+     */
+    private static class Values<V> implements ChoosableIterable<V> {
+
+        private final CopyOnWriteArrayList<V> values = new CopyOnWriteArrayList<>();
+        private final AtomicInteger next = new AtomicInteger();
+
+        @Override
+        public boolean isEmpty() {
+            return values.isEmpty();
+        }
+
+        @Override
+        public V choose() {
+            List<V> snapshot = new ArrayList<>(values);
+            return snapshot.isEmpty() ? null : snapshot.get(Math.floorMod(next.getAndIncrement(), snapshot.size()));
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return values.iterator();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package io.vertx.git.users;
+
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.rxjava.core.http.HttpServerResponse;
+import lombok.val;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import rx.Observable;
+import rx.subjects.PublishSubject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class NdjsonResponseSubscriberTest {
+
+    @Mock
+    private HttpServerResponse response;
+
+    private final List<Throwable> earlyErrors = new ArrayList<>();
+
+    @Before
+    public void mockResponse() {
+        when(response.setChunked(anyBoolean())).thenReturn(response);
+        when(response.putHeader(anyString(), anyString())).thenReturn(response);
+    }
+
+    @Test
+    public void shouldWriteEveryItemAsLine() {
+        //when
+        Observable.just(new JsonObject().put("login", "a"), new JsonObject().put("login", "b"))
+                .subscribe(subscriber());
+
+        //then
+        verify(response).write("{\"login\":\"a\"}\n");
+        verify(response).write("{\"login\":\"b\"}\n");
+        verify(response).end();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldWaitForDrainWhenWriteQueueIsFull() {
+        //given
+        when(response.writeQueueFull()).thenReturn(true);
+        ArgumentCaptor<Handler<Void>> drainHandler = ArgumentCaptor.forClass(Handler.class);
+
+        //when
+        Observable.just(1, 2).subscribe(subscriber());
+
+        //then
+        verify(response).write("1\n");
+        verify(response, never()).write("2\n");
+
+        //when
+        verify(response).drainHandler(drainHandler.capture());
+        drainHandler.getValue().handle(null);
+
+        //then
+        verify(response).write("2\n");
+    }
+
+    @Test
+    public void shouldDelegateErrorBeforeFirstItem() {
+        //given
+        val error = new IllegalStateException();
+
+        //when
+        Observable.error(error).subscribe(subscriber());
+
+        //then
+        assertThat(earlyErrors).containsExactly(error);
+        verify(response, never()).end(anyString());
+    }
+
+    @Test
+    public void shouldEndStreamOnErrorAfterFirstItem() {
+        //given
+        PublishSubject<Integer> upstream = PublishSubject.create();
+        upstream.subscribe(subscriber());
+        upstream.onNext(1);
+        when(response.headWritten()).thenReturn(true);
+
+        //when
+        upstream.onError(new IllegalStateException("failed"));
+
+        //then
+        verify(response).end("{\"error\":\"failed\"}\n");
+        assertThat(earlyErrors).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldStopOnClientClose() {
+        //given
+        PublishSubject<Integer> upstream = PublishSubject.create();
+        ArgumentCaptor<Handler<Void>> closeHandler = ArgumentCaptor.forClass(Handler.class);
+        upstream.subscribe(subscriber());
+        verify(response).closeHandler(closeHandler.capture());
+
+        //when
+        closeHandler.getValue().handle(null);
+
+        //then
+        assertThat(upstream.hasObservers()).isFalse();
+        verify(response, never()).write(any(String.class));
+    }
+
+    private <T> NdjsonResponseSubscriber<T> subscriber() {
+        return new NdjsonResponseSubscriber<>(response, earlyErrors::add);
+    }
+}
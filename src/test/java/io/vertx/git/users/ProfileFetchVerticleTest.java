@@ -0,0 +1,97 @@
+package io.vertx.git.users;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.json.JsonObject;
+import io.vertx.git.users.github.GitHubUsersFinder;
+import io.vertx.git.users.github.SearchKey;
+import io.vertx.git.users.load.SimulatorFixture;
+import io.vertx.git.users.model.User;
+import io.vertx.rxjava.core.Vertx;
+import io.vertx.rxjava.ext.web.client.WebClient;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class ProfileFetchVerticleTest {
+
+    private final Vertx vertx = Vertx.vertx();
+
+    @After
+    public void closeVertx() {
+        vertx.close();
+    }
+
+    @Test
+    public void shouldFetchProfilesThroughService() {
+        //given
+        JsonObject config = config(SimulatorFixture.deploy(vertx));
+        vertx.rxDeployVerticle(ProfileFetchVerticle.class.getName(), new DeploymentOptions().setConfig(config))
+                .toBlocking().value();
+        GithubServices services = RestVerticle.sharedServices(vertx, config);
+
+        //when
+        List<User> users = services.createFinder(WebClient.create(vertx)).findUsers(SearchKey.of("octo", null))
+                .toList().toBlocking().single();
+
+        //then
+        assertThat(users).hasSize(30);
+        assertThat(users).extracting(User::getName).contains("User octo0", "User octo29");
+    }
+
+    @Test
+    public void shouldServeProfileRequestsOnNodeSendingThem() throws Exception {
+        //given
+        InMemoryCluster cluster = new InMemoryCluster();
+        Vertx first = cluster.join();
+        Vertx second = cluster.join();
+        try {
+            JsonObject config = config(SimulatorFixture.deploy(vertx))
+                    // nodes pace their profile calls to a share of quota, which would reject some of them
+                    .put("rateLimit", new JsonObject().put("coreBurst", 100));
+            for (Vertx node : new Vertx[]{first, second}) {
+                node.rxDeployVerticle(ProfileFetchVerticle.class.getName(), new DeploymentOptions().setConfig(config))
+                        .toBlocking().value();
+            }
+            GitHubUsersFinder finder = RestVerticle.sharedServices(first, config).createFinder(WebClient.create(first));
+
+            //when
+            List<List<User>> pages = new ArrayList<>();
+            for (String user : new String[]{"octo", "cat"}) {
+                pages.add(finder.findUsers(SearchKey.of(user, null)).toList().toBlocking().single());
+            }
+
+            //then
+            assertThat(pages).allSatisfy(users -> assertThat(users).hasSize(30));
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+
+    @Test
+    public void shouldNotFetchProfilesItselfWhenServiceIsEnabled() {
+        //given
+        GithubServices services = RestVerticle.sharedServices(vertx, config(SimulatorFixture.deploy(vertx)));
+
+        //when
+        Throwable error = catchThrowable(() -> services.createFinder(WebClient.create(vertx))
+                .findUsers(SearchKey.of("octo", null)).toList().toBlocking().single());
+
+        //then
+        assertThat(error).isInstanceOf(ReplyException.class);
+        assertThat(((ReplyException) error).failureType()).isEqualTo(ReplyFailure.NO_HANDLERS);
+    }
+
+    private static JsonObject config(int githubPort) {
+        return new JsonObject()
+                .put("github", new JsonObject().put("baseUrl", SimulatorFixture.baseUrl(githubPort)))
+                .put("profileService", new JsonObject().put("enabled", true));
+    }
+}
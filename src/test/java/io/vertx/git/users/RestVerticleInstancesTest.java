@@ -0,0 +1,59 @@
+package io.vertx.git.users;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.git.users.load.SimulatorFixture;
+import io.vertx.rxjava.core.Vertx;
+import io.vertx.rxjava.core.buffer.Buffer;
+import io.vertx.rxjava.ext.web.client.HttpResponse;
+import io.vertx.rxjava.ext.web.client.WebClient;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RestVerticleInstancesTest {
+
+    private final Vertx vertx = Vertx.vertx();
+    // new connection per request, so requests are spread over instances
+    private final WebClient client = WebClient.create(vertx, new WebClientOptions().setKeepAlive(false));
+
+    @After
+    public void closeVertx() {
+        vertx.close();
+    }
+
+    @Test
+    public void shouldShareCachesAmongInstances() {
+        //given
+        int githubPort = SimulatorFixture.deploy(vertx);
+        int port = SimulatorFixture.freePort();
+        vertx.rxDeployVerticle(RestVerticle.class.getName(), new DeploymentOptions().setInstances(2)
+                .setConfig(new JsonObject()
+                        .put("port", port)
+                        .put("github", new JsonObject().put("baseUrl", SimulatorFixture.baseUrl(githubPort)))))
+                .toBlocking().value();
+
+        //when
+        for (int i = 0; i < 2; i++) {
+            assertThat(get(port, "/search?user=octo").statusCode()).isEqualTo(200);
+        }
+        Set<Integer> instances = new HashSet<>();
+        for (int i = 0; i < 2; i++) {
+            instances.add(get(port, "/stats").bodyAsJsonObject().getJsonObject("admission").getInteger("instance"));
+        }
+
+        //then
+        assertThat(instances).containsExactlyInAnyOrder(0, 1);
+        JsonObject githubStats = SimulatorFixture.stats(vertx, githubPort);
+        assertThat(githubStats.getJsonObject("search").getLong("calls")).isEqualTo(1);
+    }
+
+    private HttpResponse<Buffer> get(int port, String uri) {
+        return client.get(port, "localhost", uri).rxSend().toBlocking().value();
+    }
+}
@@ -0,0 +1,39 @@
+package io.vertx.git.users;
+
+import io.vertx.git.users.github.SearchKey;
+import lombok.val;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SearchCursorTest {
+
+    @Test
+    public void shouldDecodeEncodedKey() {
+        //given
+        val key = SearchKey.of("user", "java", 3, 50);
+
+        //when
+        val decoded = SearchCursor.decode(SearchCursor.encode(key));
+
+        //then
+        assertThat(decoded).isEqualTo(key);
+    }
+
+    @Test
+    public void shouldKeepMissingLanguage() {
+        //given
+        val key = SearchKey.of("user", null, 2, 30);
+
+        //when
+        val decoded = SearchCursor.decode(SearchCursor.encode(key));
+
+        //then
+        assertThat(decoded.getLanguage()).isNull();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectMalformedCursor() {
+        SearchCursor.decode("not a cursor");
+    }
+}
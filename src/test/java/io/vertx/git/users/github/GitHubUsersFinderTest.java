@@ -0,0 +1,156 @@
+package io.vertx.git.users.github;
+
+import io.vertx.git.users.github.http.Deadline;
+import io.vertx.git.users.github.http.RateLimitScheduler.Priority;
+import io.vertx.git.users.model.SearchItem;
+import io.vertx.git.users.model.User;
+import lombok.val;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import rx.Observable;
+import rx.Single;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import java.util.concurrent.TimeoutException;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GitHubUsersFinderTest {
+
+    private static final SearchKey KEY = SearchKey.of("octo", null);
+    private static final SearchItem ITEM = new SearchItem("octo", "http://api.github.com/users/octo");
+
+    @Mock
+    private GithubUserWebClient githubClient;
+
+    private final TestScheduler scheduler = new TestScheduler();
+    private final PublishSubject<SearchItem> search = PublishSubject.create();
+
+    private GitHubUsersFinder finder;
+
+    @Before
+    public void createFinder() {
+        finder = GitHubUsersFinder.builder()
+                .githubClient(githubClient)
+                .build();
+    }
+
+    @Test
+    public void shouldNotCutSharedSearchAtDeadlineOfFirstCaller() {
+        //given
+        ArgumentCaptor<Deadline> searchDeadline = ArgumentCaptor.forClass(Deadline.class);
+        when(githubClient.searchByNameAndLanguage(eq("octo"), isNull(), anyInt(), anyInt(), searchDeadline.capture(), any()))
+                .thenReturn(search);
+        Deadline shortDeadline = Deadline.in(50, scheduler);
+        val impatient = finder.findPage(KEY, shortDeadline).test();
+        val patient = finder.findPage(KEY, Deadline.none()).test();
+
+        //when
+        scheduler.advanceTimeBy(50, MILLISECONDS);
+        search.onNext(ITEM);
+        search.onCompleted();
+
+        //then
+        assertThat(impatient.getOnNextEvents().get(0).getItems()).isEmpty();
+        assertThat(shortDeadline.isPartial()).isTrue();
+        assertThat(patient.getOnNextEvents().get(0).getItems()).containsExactly(ITEM);
+        assertThat(searchDeadline.getValue().isExpired()).isFalse();
+        verify(githubClient).searchByNameAndLanguage(eq("octo"), isNull(), anyInt(), anyInt(), any(), any());
+    }
+
+    @Test
+    public void shouldRunSharedSearchUnderLatestDeadlineOfCallers() {
+        //given
+        ArgumentCaptor<Deadline> languageDeadline = ArgumentCaptor.forClass(Deadline.class);
+        ArgumentCaptor<Deadline> fallbackDeadline = ArgumentCaptor.forClass(Deadline.class);
+        PublishSubject<SearchItem> byLanguage = PublishSubject.create();
+        when(githubClient.searchByNameAndLanguage(eq("octo"), eq("java"), anyInt(), anyInt(), languageDeadline.capture(),
+                any())).thenReturn(byLanguage);
+        when(githubClient.searchByNameAndLanguage(eq("octo"), isNull(), anyInt(), anyInt(), fallbackDeadline.capture(),
+                any())).thenReturn(Observable.just(ITEM));
+        finder.findPage(SearchKey.of("octo", "java"), Deadline.in(1000, scheduler)).test();
+        scheduler.advanceTimeBy(400, MILLISECONDS);
+
+        //when
+        val joined = finder.findPage(SearchKey.of("octo", "java"), Deadline.in(4000, scheduler)).test();
+        byLanguage.onCompleted();
+
+        //then
+        assertThat(joined.getOnNextEvents().get(0).getItems()).containsExactly(ITEM);
+        assertThat(languageDeadline.getValue().remainingMillis()).isEqualTo(100);
+        assertThat(fallbackDeadline.getValue().remainingMillis()).isEqualTo(4000);
+    }
+
+    @Test
+    public void shouldNotCacheFallbackPageWhenSearchByLanguageTimedOut() {
+        //given
+        when(githubClient.searchByNameAndLanguage(eq("octo"), eq("java"), anyInt(), anyInt(), any(), any()))
+                .thenReturn(Observable.error(new TimeoutException()));
+        when(githubClient.searchByNameAndLanguage(eq("octo"), isNull(), anyInt(), anyInt(), any(), any()))
+                .thenReturn(Observable.just(ITEM));
+        Deadline deadline = Deadline.none();
+
+        //when
+        val page = finder.findPage(SearchKey.of("octo", "java"), deadline).toBlocking().value();
+        finder.findPage(SearchKey.of("octo", "java")).toBlocking().value();
+
+        //then
+        assertThat(page.getKey()).isEqualTo(KEY);
+        assertThat(page.isPartial()).isTrue();
+        assertThat(deadline.isPartial()).isTrue();
+        verify(githubClient, times(2)).searchByNameAndLanguage(eq("octo"), eq("java"), anyInt(), anyInt(), any(), any());
+    }
+
+    @Test
+    public void shouldRefreshPageWithLowPriority() {
+        //given
+        when(githubClient.searchByNameAndLanguage(eq("octo"), isNull(), anyInt(), anyInt(), any(), any()))
+                .thenReturn(Observable.just(ITEM));
+        finder.findPage(KEY).toBlocking().value();
+
+        //when
+        finder.refreshPage(KEY, Deadline.none()).toBlocking().single();
+
+        //then
+        verify(githubClient).searchByNameAndLanguage(eq("octo"), isNull(), anyInt(), anyInt(), any(), eq(Priority.HIGH));
+        verify(githubClient).searchByNameAndLanguage(eq("octo"), isNull(), anyInt(), anyInt(), any(), eq(Priority.LOW));
+    }
+
+    @Test
+    public void shouldSearchNextPageOnlyWhenUsersOfPreviousOneWereConsumed() {
+        //given
+        when(githubClient.searchByNameAndLanguage(eq("octo"), isNull(), anyInt(), eq(2), any(), any()))
+                .thenReturn(Observable.just(ITEM, new SearchItem("octocat", "http://api.github.com/users/octocat")));
+        when(githubClient.getByProfile(any(), any(), any())).thenReturn(Single.just(new User()));
+        finder = GitHubUsersFinder.builder()
+                .githubClient(githubClient)
+                .profileConcurrency(1)
+                .build();
+
+        //when
+        val users = finder.findAllUsers(SearchKey.of("octo", null, SearchKey.FIRST_PAGE, 2)).test(1);
+
+        //then
+        verify(githubClient, never()).searchByNameAndLanguage(eq("octo"), isNull(), eq(2), eq(2), any(), any());
+        users.requestMore(1);
+        users.assertValueCount(2);
+        verify(githubClient).searchByNameAndLanguage(eq("octo"), isNull(), eq(1), eq(2), any(), any());
+        verify(githubClient).searchByNameAndLanguage(eq("octo"), isNull(), eq(2), eq(2), any(), any());
+        verify(githubClient, never()).searchByNameAndLanguage(eq("octo"), isNull(), eq(3), eq(2), any(), any());
+    }
+}
@@ -0,0 +1,65 @@
+package io.vertx.git.users.github;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.git.users.GithubServices;
+import io.vertx.git.users.load.SimulatorFixture;
+import io.vertx.git.users.model.User;
+import io.vertx.rxjava.core.Vertx;
+import io.vertx.rxjava.ext.web.client.WebClient;
+import lombok.val;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GithubGraphqlClientTest {
+
+    private final Vertx vertx = Vertx.vertx();
+
+    @After
+    public void closeVertx() {
+        vertx.close();
+    }
+
+    @Test
+    public void shouldFetchProfilesOfPageWithOneQuery() {
+        //given
+        int port = SimulatorFixture.deploy(vertx);
+        val finder = createFinder(port);
+
+        //when
+        List<User> users = finder.findUsers(SearchKey.of("octo", null)).toList().toBlocking().single();
+
+        //then
+        assertThat(users).hasSize(30);
+        assertThat(users).extracting(User::getName).contains("User octo0", "User octo29");
+        JsonObject stats = SimulatorFixture.stats(vertx, port);
+        assertThat(stats.getJsonObject("graphql").getLong("calls")).isEqualTo(1);
+        assertThat(stats.getJsonObject("profile").getLong("calls")).isZero();
+        assertThat(finder.batchFallbackCount()).isZero();
+    }
+
+    @Test
+    public void shouldFallBackToRestWhenQueryFails() {
+        //given
+        int port = SimulatorFixture.deploy(vertx, new JsonObject().put("graphql", new JsonObject().put("errorRate", 1.0)));
+        val finder = createFinder(port);
+
+        //when
+        List<User> users = finder.findUsers(SearchKey.of("octo", null)).toList().toBlocking().single();
+
+        //then
+        assertThat(users).hasSize(30);
+        assertThat(SimulatorFixture.stats(vertx, port).getJsonObject("profile").getLong("calls")).isEqualTo(30);
+        assertThat(finder.batchFallbackCount()).isEqualTo(1);
+    }
+
+    private GitHubUsersFinder createFinder(int port) {
+        val services = new GithubServices(vertx, new JsonObject()
+                .put("github", new JsonObject().put("baseUrl", SimulatorFixture.baseUrl(port)))
+                .put("profileFetch", new JsonObject().put("backend", "graphql").put("hedgeMaxShare", 0)));
+        return services.createFinder(WebClient.create(vertx, services.webClientOptions()));
+    }
+}
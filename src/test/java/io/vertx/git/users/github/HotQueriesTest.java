@@ -0,0 +1,62 @@
+package io.vertx.git.users.github;
+
+import lombok.val;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HotQueriesTest {
+
+    private final HotQueries hotQueries = new HotQueries(2, 3, 256, 4);
+
+    @Test
+    public void shouldReportMostSearchedPagesFirst() {
+        //given
+        record(SearchKey.of("octo", null), 3);
+        record(SearchKey.of("octo", "java"), 5);
+        record(SearchKey.of("rare", null), 1);
+
+        //when
+        val hot = hotQueries.hot();
+
+        //then
+        assertThat(hot).extracting(HotQueries.HotQuery::getKey)
+                .containsExactly(SearchKey.of("octo", "java"), SearchKey.of("octo", null));
+        assertThat(hot).extracting(HotQueries.HotQuery::getCount).containsExactly(5L, 3L);
+    }
+
+    @Test
+    public void shouldReplaceLeastSearchedPageOnceAnotherOneOutgrowsIt() {
+        //given
+        record(SearchKey.of("first", null), 4);
+        record(SearchKey.of("second", null), 3);
+
+        //when
+        record(SearchKey.of("third", null), 4);
+
+        //then
+        assertThat(hotQueries.size()).isEqualTo(2);
+        assertThat(hotQueries.hot()).extracting(HotQueries.HotQuery::getKey)
+                .containsExactlyInAnyOrder(SearchKey.of("first", null), SearchKey.of("third", null));
+    }
+
+    @Test
+    public void shouldCoolDownPagesNoLongerSearched() {
+        //given
+        record(SearchKey.of("octo", null), 4);
+
+        //when
+        hotQueries.decay();
+
+        //then
+        assertThat(hotQueries.hot()).isEmpty();
+        record(SearchKey.of("octo", null), 1);
+        assertThat(hotQueries.hot()).extracting(HotQueries.HotQuery::getCount).containsExactly(3L);
+    }
+
+    private void record(SearchKey key, int times) {
+        for (int i = 0; i < times; i++) {
+            hotQueries.record(key);
+        }
+    }
+}
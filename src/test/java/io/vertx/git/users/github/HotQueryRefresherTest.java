@@ -0,0 +1,78 @@
+package io.vertx.git.users.github;
+
+import io.vertx.git.users.github.http.Deadline;
+import io.vertx.git.users.github.http.RateLimitBucket;
+import io.vertx.git.users.github.http.RateLimitScheduler;
+import io.vertx.git.users.github.http.RateLimitScheduler.Priority;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import rx.Observable;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class HotQueryRefresherTest {
+
+    private static final SearchKey KEY = SearchKey.of("octo", null);
+    private static final long REFRESH_AHEAD_MILLIS = 10_000;
+
+    @Mock
+    private GitHubUsersFinder finder;
+
+    @Mock
+    private RateLimitScheduler scheduler;
+
+    private final HotQueries hotQueries = new HotQueries(10, 3, 256, 4);
+
+    private HotQueryRefresher refresher;
+
+    @Before
+    public void makeKeyHot() {
+        for (int i = 0; i < 3; i++) {
+            hotQueries.record(KEY);
+        }
+        refresher = new HotQueryRefresher(hotQueries, finder, scheduler, REFRESH_AHEAD_MILLIS, 0.5, 2, Deadline::none);
+        when(finder.isPageExpiring(KEY, REFRESH_AHEAD_MILLIS)).thenReturn(true);
+    }
+
+    @Test
+    public void shouldRefreshExpiringHotPageWithSpareQuota() {
+        //given
+        SearchPage page = new SearchPage(KEY, Collections.emptyList());
+        when(scheduler.queueSize(any())).thenReturn(0);
+        when(scheduler.hasSpareBudget(any(), anyDouble())).thenReturn(true);
+        when(finder.refreshPage(eq(KEY), any())).thenReturn(Observable.just(page));
+        when(finder.getUsers(eq(page), any(), eq(Priority.LOW))).thenReturn(Observable.empty());
+
+        //when
+        refresher.run();
+
+        //then
+        verify(finder).getUsers(eq(page), any(), eq(Priority.LOW));
+        assertThat(refresher.stats().getLong("refreshed")).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotRefreshWhileLiveCallsWaitForQuota() {
+        //given
+        when(scheduler.queueSize(RateLimitBucket.SEARCH)).thenReturn(1);
+
+        //when
+        refresher.run();
+
+        //then
+        verify(finder, never()).refreshPage(any(), any());
+        assertThat(refresher.stats().getLong("skipped")).isEqualTo(1);
+    }
+}
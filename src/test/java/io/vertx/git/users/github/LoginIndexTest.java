@@ -0,0 +1,61 @@
+package io.vertx.git.users.github;
+
+import io.vertx.git.users.model.SearchItem;
+import lombok.val;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoginIndexTest {
+
+    private final LoginIndex index = new LoginIndex(5);
+
+    @Test
+    public void shouldSuggestLoginsStartingWithPrefixIgnoringCase() {
+        //given
+        index.addAll(Arrays.asList(
+                new SearchItem("Octocat", null),
+                new SearchItem("octo-org", null),
+                new SearchItem("octavian", null),
+                new SearchItem("doctor", null)), null);
+
+        //when
+        val suggestions = index.suggest("OCTO", null, 10);
+
+        //then
+        assertThat(suggestions).extracting(LoginIndex.Entry::getLogin).containsExactly("octo-org", "Octocat");
+    }
+
+    @Test
+    public void shouldFilterByLanguagesLoginsWereFoundBy() {
+        //given
+        index.add("octocat", "Java");
+        index.add("octocat", "go");
+        index.add("octo-org", null);
+
+        //when
+        val suggestions = index.suggest("oct", "java", 10);
+
+        //then
+        assertThat(suggestions).hasSize(1);
+        assertThat(suggestions.get(0).getLanguages()).containsExactly("go", "java");
+    }
+
+    @Test
+    public void shouldNotGrowOverMaxSize() {
+        //given
+        for (int i = 0; i < 10; i++) {
+            index.add("user" + i, null);
+        }
+
+        //when
+        index.add("user0", "java");
+
+        //then
+        assertThat(index.size()).isEqualTo(5);
+        assertThat(index.suggest("user", "java", 10)).extracting(LoginIndex.Entry::getLogin).containsExactly("user0");
+        assertThat(index.stats().getLong("rejected")).isEqualTo(5);
+    }
+}
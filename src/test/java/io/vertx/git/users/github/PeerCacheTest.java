@@ -0,0 +1,115 @@
+package io.vertx.git.users.github;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.git.users.GithubServices;
+import io.vertx.git.users.github.http.RateLimitBucket;
+import io.vertx.git.users.load.SimulatorFixture;
+import io.vertx.git.users.model.User;
+import io.vertx.rxjava.core.Vertx;
+import io.vertx.rxjava.ext.web.client.WebClient;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Nodes share one event bus here, as they would in a cluster
+ */
+public class PeerCacheTest {
+
+    private final Vertx vertx = Vertx.vertx();
+
+    @After
+    public void closeVertx() {
+        vertx.close();
+    }
+
+    @Test
+    public void shouldAnswerMissFromPeerCache() throws Exception {
+        //given
+        int port = SimulatorFixture.deploy(vertx);
+        GithubServices first = node("first", port);
+        GithubServices second = node("second", port);
+        awaitPeers(first, second);
+        first.createFinder(WebClient.create(vertx)).findUsers(SearchKey.of("octo", null)).toList().toBlocking().single();
+
+        //when
+        List<User> users = second.createFinder(WebClient.create(vertx)).findUsers(SearchKey.of("octo", null))
+                .toList().toBlocking().single();
+
+        //then
+        assertThat(users).hasSize(30);
+        JsonObject stats = SimulatorFixture.stats(vertx, port);
+        assertThat(stats.getJsonObject("search").getLong("calls")).isEqualTo(1);
+        assertThat(stats.getJsonObject("profile").getLong("calls")).isEqualTo(30);
+        assertThat(second.getPeerCache().stats().getLong("hits")).isEqualTo(31);
+    }
+
+    @Test
+    public void shouldCallGithubWhenNoPeerHasEntry() throws Exception {
+        //given
+        int port = SimulatorFixture.deploy(vertx);
+        GithubServices first = node("first", port);
+        GithubServices second = node("second", port);
+        awaitPeers(first, second);
+
+        //when
+        List<User> users = second.createFinder(WebClient.create(vertx)).findUsers(SearchKey.of("octo", null))
+                .toList().toBlocking().single();
+
+        //then
+        assertThat(users).hasSize(30);
+        assertThat(SimulatorFixture.stats(vertx, port).getJsonObject("search").getLong("calls")).isEqualTo(1);
+        assertThat(second.getPeerCache().stats().getLong("hits")).isZero();
+    }
+
+    @Test
+    public void shouldShareQuotaWithPeers() throws Exception {
+        //given
+        int port = SimulatorFixture.deploy(vertx);
+        GithubServices first = node("first", port);
+        GithubServices second = node("second", port);
+        awaitPeers(first, second);
+        long reset = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 60;
+        second.getRateLimitScheduler().update(RateLimitBucket.SEARCH, 30, 20, reset);
+
+        //when
+        first.getRateLimitScheduler().update(RateLimitBucket.SEARCH, 30, 10, reset);
+
+        //then
+        await(() -> second.getRateLimitScheduler().remaining(RateLimitBucket.SEARCH) == 10);
+        assertThat(first.getRateLimitScheduler().remaining(RateLimitBucket.SEARCH)).isEqualTo(10);
+    }
+
+    private GithubServices node(String nodeId, int port) {
+        GithubServices services = new GithubServices(vertx, new JsonObject()
+                .put("github", new JsonObject().put("baseUrl", SimulatorFixture.baseUrl(port)))
+                // duplicated profile calls would break the counts of calls to GitHub
+                .put("profileFetch", new JsonObject().put("hedgeMaxShare", 0))
+                .put("cluster", new JsonObject()
+                        .put("enabled", true)
+                        .put("nodeId", nodeId)
+                        .put("heartbeatMillis", 50)
+                        .put("lookupTimeoutMillis", 1000)));
+        services.attach();
+        return services;
+    }
+
+    private static void awaitPeers(GithubServices... nodes) throws InterruptedException {
+        for (GithubServices node : nodes) {
+            await(() -> node.getPeerCache().peerCount() == nodes.length - 1);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -0,0 +1,161 @@
+package io.vertx.git.users.github;
+
+import io.vertx.git.users.github.http.ResponseCache;
+import io.vertx.git.users.model.SearchItem;
+import io.vertx.rxjava.core.Vertx;
+import io.vertx.rxjava.core.buffer.Buffer;
+import lombok.val;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import rx.Single;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PersistentStoreTest {
+
+    private static final String PROFILE_URL = "http://api.github.com/users/octocat";
+    private static final SearchKey KEY = SearchKey.of("octo", null);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Vertx vertx = Vertx.vertx();
+
+    @After
+    public void closeVertx() {
+        vertx.close();
+    }
+
+    @Test
+    public void shouldRestoreCachesAfterRestart() throws Exception {
+        //given
+        String path = folder.getRoot().toPath().resolve("store.jsonl").toString();
+        val profiles = new ResponseCache();
+        val searches = new SearchCache();
+        val store = new PersistentStore(vertx, path, Long.MAX_VALUE, 60_000, profiles, searches);
+        store.start();
+        profiles.store(PROFILE_URL, Buffer.buffer("{\"login\":\"octocat\"}"), "\"etag\"", null);
+        searches.get(KEY, () -> Single.just(new SearchPage(KEY,
+                Collections.singletonList(new SearchItem("octocat", PROFILE_URL))))).toBlocking().value();
+        await(() -> lines(path) == 2);
+        store.close();
+
+        //when
+        val restoredProfiles = new ResponseCache();
+        val restoredSearches = new SearchCache();
+        val restarted = new PersistentStore(vertx, path, Long.MAX_VALUE, 60_000, restoredProfiles, restoredSearches);
+        restarted.start();
+        await(() -> restarted.stats().getLong("loaded") == 2);
+
+        //then
+        assertThat(restoredProfiles.get(PROFILE_URL).getBody().toString()).isEqualTo("{\"login\":\"octocat\"}");
+        assertThat(restoredProfiles.get(PROFILE_URL).getEtag()).isEqualTo("\"etag\"");
+        SearchPage page = restoredSearches.get(KEY, () -> Single.error(new IllegalStateException())).toBlocking().value();
+        assertThat(page.getItems()).containsExactly(new SearchItem("octocat", PROFILE_URL));
+    }
+
+    @Test
+    public void shouldKeepKeyOfFallbackPageInRecord() {
+        //given
+        SearchKey byLanguage = SearchKey.of("octo", "cobol");
+        val entry = new SearchCache.Entry(new SearchPage(KEY,
+                Collections.singletonList(new SearchItem("octocat", PROFILE_URL))), 1);
+
+        //when
+        val restored = PersistentStore.search(byLanguage, PersistentStore.searchRecord(byLanguage, entry));
+
+        //then
+        assertThat(restored.getPage().getKey()).isEqualTo(KEY);
+        assertThat(restored.getPage().getItems()).containsExactly(new SearchItem("octocat", PROFILE_URL));
+    }
+
+    @Test
+    public void shouldCompactToLatestEntries() throws Exception {
+        //given
+        Path path = folder.getRoot().toPath().resolve("store.jsonl");
+        val profiles = new ResponseCache();
+        val store = new PersistentStore(vertx, path.toString(), Long.MAX_VALUE, 60_000, profiles, new SearchCache());
+        store.start();
+        for (int i = 0; i < 10; i++) {
+            profiles.store(PROFILE_URL, Buffer.buffer("{\"followers\":" + i + "}"), null, null);
+        }
+        await(() -> store.stats().getLong("appended") == 10);
+
+        //when
+        store.compact();
+        await(() -> store.stats().getLong("compactions") == 1);
+
+        //then
+        assertThat(Files.readAllLines(path)).hasSize(1).first().asString().contains("{\\\"followers\\\":9}");
+    }
+
+    @Test
+    public void shouldNotCompactAgainWhenCacheContentIsOverLimit() throws Exception {
+        //given
+        Path path = folder.getRoot().toPath().resolve("store.jsonl");
+        val profiles = new ResponseCache();
+        val store = new PersistentStore(vertx, path.toString(), 100, 60_000, profiles, new SearchCache());
+        store.start();
+
+        //when
+        for (int i = 0; i < 5; i++) {
+            profiles.store(PROFILE_URL + i, Buffer.buffer("{\"followers\":" + i + "}"), null, null);
+        }
+        await(() -> store.stats().getLong("appended") == 5);
+        Thread.sleep(200);
+        long compactions = store.stats().getLong("compactions");
+        Thread.sleep(200);
+
+        //then
+        assertThat(store.stats().getLong("compactions")).isEqualTo(compactions).isLessThanOrEqualTo(5);
+        assertThat(store.stats().getLong("bytes")).isGreaterThan(100);
+    }
+
+    @Test
+    public void shouldStayClosedWhenClosedWhileLoading() throws Exception {
+        //given
+        Path path = folder.getRoot().toPath().resolve("store.jsonl");
+        val profiles = new ResponseCache();
+        val store = new PersistentStore(vertx, path.toString(), Long.MAX_VALUE, 60_000, profiles, new SearchCache());
+        store.start();
+        profiles.store(PROFILE_URL, Buffer.buffer("{\"followers\":1}"), null, null);
+
+        //when
+        store.close();
+        await(() -> Files.exists(path));
+        // the file opened after close is closed right away
+        Thread.sleep(100);
+        profiles.store(PROFILE_URL, Buffer.buffer("{\"followers\":2}"), null, null);
+        store.compact();
+
+        //then
+        assertThat(store.stats().getLong("appended")).isZero();
+        assertThat(store.stats().getLong("compactions")).isZero();
+        assertThat(lines(path.toString())).isZero();
+    }
+
+    private static long lines(String path) {
+        try {
+            return Files.readAllLines(Paths.get(path)).size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("condition met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package io.vertx.git.users.github;
+
+import io.vertx.git.users.github.http.CircuitOpenException;
+import io.vertx.git.users.model.SearchItem;
+import lombok.val;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Single;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SearchCacheTest {
+
+    private static final long TTL = 100;
+    private static final long STALE = 1000;
+    private static final long NEGATIVE_TTL = 10;
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private SearchCache cache;
+
+    @Before
+    public void createCache() {
+        cache = new SearchCache(10, TTL, STALE, NEGATIVE_TTL, now::get);
+    }
+
+    @Test
+    public void shouldServeFreshEntryWithoutLoading() {
+        //given
+        val key = SearchKey.of("user", "java");
+        val page = page(key, new SearchItem("user", "http://api.github.com/users/user"));
+        cache.get(key, loader(page)).test().assertValue(page);
+
+        //when
+        now.addAndGet(TTL - 1);
+        val result = cache.get(key, loader(page)).test();
+
+        //then
+        result.assertValue(page);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void shouldServeStaleEntryAndRefreshInBackground() {
+        //given
+        val key = SearchKey.of("user", null);
+        val stale = page(key, new SearchItem("old", "http://api.github.com/users/old"));
+        val fresh = page(key, new SearchItem("new", "http://api.github.com/users/new"));
+        cache.get(key, loader(stale)).test().assertValue(stale);
+        now.addAndGet(TTL + 1);
+
+        //when
+        val staleResult = cache.get(key, loader(fresh)).test();
+        val refreshedResult = cache.get(key, loader(fresh)).test();
+
+        //then
+        staleResult.assertValue(stale);
+        refreshedResult.assertValue(fresh);
+        assertThat(loads).hasValue(2);
+        assertThat(cache.stats().getRefreshes()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldCacheEmptyResultForNegativeTtl() {
+        //given
+        val key = SearchKey.of("nobody", "cobol");
+        val empty = page(key);
+        cache.get(key, loader(empty)).test().assertValue(empty);
+
+        //when
+        cache.get(key, loader(empty)).test().assertValue(empty).assertCompleted();
+        now.addAndGet(NEGATIVE_TTL);
+        cache.get(key, loader(empty)).test().assertValue(empty);
+
+        //then
+        assertThat(loads).hasValue(2);
+        assertThat(cache.stats().getNegativeHits()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldIgnoreCaseOfKey() {
+        //given
+        val page = page(SearchKey.of("User", "Java"), new SearchItem("user", "http://api.github.com/users/user"));
+        cache.get(SearchKey.of("User", "Java"), loader(page)).test();
+
+        //when
+        cache.get(SearchKey.of("user", "java"), loader(page)).test().assertValue(page);
+
+        //then
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    public void shouldNotCacheErrors() {
+        //given
+        val key = SearchKey.of("user", null);
+        Supplier<Single<SearchPage>> failing = () -> {
+            loads.incrementAndGet();
+            return Single.error(new IllegalStateException());
+        };
+
+        //when
+        cache.get(key, failing).test().assertError(IllegalStateException.class);
+        cache.get(key, failing).test().assertError(IllegalStateException.class);
+
+        //then
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    public void shouldServeExpiredEntryMarkedStaleWhileCircuitIsOpen() {
+        //given
+        val key = SearchKey.of("user", null);
+        val page = page(key, new SearchItem("user", "http://api.github.com/users/user"));
+        cache.get(key, loader(page)).test();
+        now.addAndGet(TTL + STALE);
+
+        //when
+        val result = cache.get(key, () -> Single.error(new CircuitOpenException(1000))).test();
+
+        //then
+        result.assertValue(page.asStale());
+        assertThat(cache.stats().getStaleFallbacks()).isEqualTo(1);
+    }
+
+    private Supplier<Single<SearchPage>> loader(SearchPage page) {
+        return () -> {
+            loads.incrementAndGet();
+            return Single.just(page);
+        };
+    }
+
+    private static SearchPage page(SearchKey key, SearchItem... items) {
+        return new SearchPage(key, Arrays.asList(items));
+    }
+}
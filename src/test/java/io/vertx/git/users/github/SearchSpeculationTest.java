@@ -0,0 +1,104 @@
+package io.vertx.git.users.github;
+
+import io.vertx.git.users.model.SearchItem;
+import lombok.val;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SearchSpeculationTest {
+
+    private static final SearchKey KEY = SearchKey.of("octo", "java");
+    private static final SearchItem BY_LANGUAGE = new SearchItem("octo-java", "http://api.github.com/users/octo-java");
+    private static final SearchItem WITHOUT_LANGUAGE = new SearchItem("octo", "http://api.github.com/users/octo");
+
+    @Mock
+    private GithubUserWebClient githubClient;
+
+    private final TestScheduler scheduler = new TestScheduler();
+    private final PublishSubject<SearchItem> byLanguage = PublishSubject.create();
+    private final PublishSubject<SearchItem> withoutLanguage = PublishSubject.create();
+    private final AtomicBoolean spareQuota = new AtomicBoolean(true);
+    private final SearchSpeculation speculation = new SearchSpeculation(100, spareQuota::get, scheduler);
+
+    private GitHubUsersFinder finder;
+
+    @Before
+    public void createFinder() {
+        when(githubClient.searchByNameAndLanguage(eq("octo"), eq("java"), anyInt(), anyInt(), any(), any()))
+                .thenReturn(byLanguage);
+        when(githubClient.searchByNameAndLanguage(eq("octo"), isNull(), anyInt(), anyInt(), any(), any()))
+                .thenReturn(withoutLanguage);
+        finder = GitHubUsersFinder.builder()
+                .githubClient(githubClient)
+                .searchSpeculation(speculation)
+                .build();
+    }
+
+    @Test
+    public void shouldUseSpeculativeSearchWhenSearchByLanguageIsEmpty() {
+        //given
+        val page = finder.findPage(KEY).test();
+        scheduler.advanceTimeBy(100, MILLISECONDS);
+        withoutLanguage.onNext(WITHOUT_LANGUAGE);
+        withoutLanguage.onCompleted();
+
+        //when
+        byLanguage.onCompleted();
+
+        //then
+        page.assertCompleted();
+        assertThat(page.getOnNextEvents().get(0).getKey()).isEqualTo(KEY.withoutLanguage());
+        assertThat(page.getOnNextEvents().get(0).getItems()).containsExactly(WITHOUT_LANGUAGE);
+        assertThat(speculation.stats().getLong("used")).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldCancelSpeculativeSearchWhenSearchByLanguageFoundUsers() {
+        //given
+        val page = finder.findPage(KEY).test();
+        scheduler.advanceTimeBy(100, MILLISECONDS);
+
+        //when
+        byLanguage.onNext(BY_LANGUAGE);
+        byLanguage.onCompleted();
+
+        //then
+        assertThat(page.getOnNextEvents().get(0).getItems()).containsExactly(BY_LANGUAGE);
+        assertThat(withoutLanguage.hasObservers()).isFalse();
+        assertThat(speculation.stats().getLong("started")).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotSpeculateWithoutSpareQuota() {
+        //given
+        spareQuota.set(false);
+        val page = finder.findPage(KEY).test();
+        scheduler.advanceTimeBy(100, MILLISECONDS);
+        assertThat(withoutLanguage.hasObservers()).isFalse();
+
+        //when
+        byLanguage.onCompleted();
+        withoutLanguage.onNext(WITHOUT_LANGUAGE);
+        withoutLanguage.onCompleted();
+
+        //then
+        assertThat(page.getOnNextEvents().get(0).getItems()).containsExactly(WITHOUT_LANGUAGE);
+        assertThat(speculation.stats().getLong("skipped")).isEqualTo(1);
+    }
+}
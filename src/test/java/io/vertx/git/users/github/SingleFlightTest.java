@@ -0,0 +1,80 @@
+package io.vertx.git.users.github;
+
+import lombok.val;
+import org.junit.Test;
+import rx.Observable;
+import rx.subjects.PublishSubject;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    @Test
+    public void shouldShareInFlightCall() {
+        //given
+        PublishSubject<Integer> upstream = PublishSubject.create();
+        val first = singleFlight.execute("key", () -> count(upstream)).test();
+        val second = singleFlight.execute("key", () -> count(upstream)).test();
+
+        //when
+        upstream.onNext(1);
+        upstream.onCompleted();
+
+        //then
+        first.assertResult(1);
+        second.assertResult(1);
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(singleFlight.coalescedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotShareDifferentKeys() {
+        //given
+        PublishSubject<Integer> upstream = PublishSubject.create();
+
+        //when
+        singleFlight.execute("key", () -> count(upstream)).test();
+        singleFlight.execute("other", () -> count(upstream)).test();
+
+        //then
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(singleFlight.coalescedCount()).isZero();
+    }
+
+    @Test
+    public void shouldStartNewCallAfterPreviousCompleted() {
+        //when
+        singleFlight.execute("key", () -> count(Observable.just(1))).test().assertResult(1);
+        singleFlight.execute("key", () -> count(Observable.just(2))).test().assertResult(2);
+
+        //then
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    public void shouldShareErrorsAndForgetFailedCall() {
+        //given
+        PublishSubject<Integer> upstream = PublishSubject.create();
+        val first = singleFlight.execute("key", () -> count(upstream)).test();
+        val second = singleFlight.execute("key", () -> count(upstream)).test();
+
+        //when
+        upstream.onError(new IllegalStateException());
+
+        //then
+        first.assertError(IllegalStateException.class);
+        second.assertError(IllegalStateException.class);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    private Observable<Integer> count(Observable<Integer> upstream) {
+        upstreamCalls.incrementAndGet();
+        return upstream;
+    }
+}
@@ -0,0 +1,141 @@
+package io.vertx.git.users.github.http;
+
+import io.vertx.core.Vertx;
+import lombok.val;
+import org.junit.Test;
+import rx.Single;
+import rx.subjects.PublishSubject;
+
+import javax.xml.ws.http.HTTPException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicInteger started = new AtomicInteger();
+
+    @Test
+    public void shouldQueueCallsAboveLimit() {
+        //given
+        val limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 1000, nanos::get);
+        PublishSubject<String> upstream = PublishSubject.create();
+
+        //when
+        val first = limiter.execute(() -> call(upstream)).test();
+        limiter.execute(() -> call(upstream)).test();
+        limiter.execute(() -> call(upstream)).test();
+
+        //then
+        assertThat(started).hasValue(2);
+        assertThat(limiter.getWaiting()).isEqualTo(1);
+
+        //when
+        upstream.onNext("done");
+
+        //then
+        first.assertResult("done");
+        assertThat(started).hasValue(3);
+    }
+
+    @Test
+    public void shouldReleasePermitOfCancelledCall() {
+        //given
+        val limiter = new AdaptiveConcurrencyLimiter(1, 1, 10, 1000, nanos::get);
+        val running = limiter.execute(() -> call(PublishSubject.create())).test();
+        limiter.execute(() -> call(PublishSubject.create())).test();
+
+        //when
+        running.unsubscribe();
+
+        //then
+        assertThat(started).hasValue(2);
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldHalveLimitWhenThrottled() {
+        //given
+        val limiter = new AdaptiveConcurrencyLimiter(8, 1, 10, 1000, nanos::get);
+
+        //when
+        limiter.execute(() -> Single.error(new HTTPException(429))).test();
+
+        //then
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldKeepLimitWhenCallRanOutOfClientDeadline() {
+        //given
+        val limiter = new AdaptiveConcurrencyLimiter(8, 1, 10, 1000, nanos::get);
+
+        //when
+        limiter.execute(() -> Single.error(new DeadlineExceededException("deadline"))).test();
+
+        //then
+        assertThat(limiter.getLimit()).isEqualTo(8);
+    }
+
+    @Test
+    public void shouldReduceLimitOnSlowCalls() {
+        //given
+        val limiter = new AdaptiveConcurrencyLimiter(8, 1, 10, 1000, nanos::get);
+
+        //when
+        limiter.execute(() -> Single.fromCallable(() -> nanos.addAndGet(2_000_000_000L))).test();
+
+        //then
+        assertThat(limiter.getLimit()).isLessThan(8);
+    }
+
+    @Test
+    public void shouldGrowLimitWhenFullyUsed() {
+        //given
+        val limiter = new AdaptiveConcurrencyLimiter(1, 1, 10, 1000, nanos::get);
+
+        //when
+        limiter.execute(() -> Single.just(1)).test();
+
+        //then
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldStartQueuedCallOnContextOfCaller() throws Exception {
+        //given
+        val vertx = Vertx.vertx();
+        try {
+            val limiter = new AdaptiveConcurrencyLimiter(1, 1, 10, 1000, nanos::get);
+            PublishSubject<String> upstream = PublishSubject.create();
+            limiter.execute(() -> call(upstream)).test();
+            val callerThread = new CompletableFuture<Thread>();
+            val startedOn = new CompletableFuture<Thread>();
+            vertx.getOrCreateContext().runOnContext(ignored -> {
+                limiter.execute(() -> {
+                    startedOn.complete(Thread.currentThread());
+                    return Single.just("queued");
+                }).subscribe();
+                callerThread.complete(Thread.currentThread());
+            });
+            callerThread.get(5, TimeUnit.SECONDS);
+
+            //when
+            upstream.onNext("done");
+
+            //then
+            assertThat(startedOn.get(5, TimeUnit.SECONDS)).isSameAs(callerThread.get());
+        } finally {
+            vertx.close();
+        }
+    }
+
+    private Single<String> call(PublishSubject<String> upstream) {
+        started.incrementAndGet();
+        return upstream.first().toSingle();
+    }
+}
@@ -0,0 +1,140 @@
+package io.vertx.git.users.github.http;
+
+import io.vertx.git.users.github.http.CircuitBreaker.State;
+import io.vertx.git.users.github.http.CircuitBreaker.Transition;
+import lombok.val;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Observable;
+import rx.Single;
+
+import javax.xml.ws.http.HTTPException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CircuitBreakerTest {
+
+    private static final int WINDOW = 4;
+    private static final long SLOW_CALL_MILLIS = 100;
+    private static final long OPEN_MILLIS = 1000;
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final List<Transition> transitions = new ArrayList<>();
+
+    private CircuitBreaker breaker;
+
+    @Before
+    public void createBreaker() {
+        breaker = new CircuitBreaker(WINDOW, WINDOW, 0.5, 0.5, SLOW_CALL_MILLIS, OPEN_MILLIS, 2, now::get);
+        breaker.addListener(transitions::add);
+    }
+
+    @Test
+    public void shouldOpenOnFailureRateAndRejectWithoutCalling() {
+        //given
+        succeed(2);
+        fail(2, new HTTPException(502));
+
+        //when
+        val result = breaker.execute(this::call).test();
+
+        //then
+        result.assertError(CircuitOpenException.class);
+        assertThat(calls).hasValue(4);
+        assertThat(breaker.isOpen()).isTrue();
+        assertThat(transitions).extracting(Transition::getTo).containsExactly(State.OPEN);
+    }
+
+    @Test
+    public void shouldNotCountClientErrorsAsFailures() {
+        //when
+        fail(WINDOW, new HTTPException(404));
+        fail(WINDOW, new ApiLimitReachedException("60"));
+
+        //then
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    public void shouldOpenOnSlowCalls() {
+        //when
+        for (int i = 0; i < WINDOW; i++) {
+            breaker.execute(() -> {
+                now.addAndGet(SLOW_CALL_MILLIS);
+                return call();
+            }).test().assertCompleted();
+        }
+
+        //then
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    public void shouldOpenOnFailedResult() {
+        //when
+        for (int i = 0; i < WINDOW; i++) {
+            breaker.execute(this::call, value -> true).test();
+        }
+
+        //then
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    public void shouldCloseAfterSuccessfulProbes() {
+        //given
+        fail(WINDOW, new HTTPException(500));
+        now.addAndGet(OPEN_MILLIS);
+
+        //when
+        succeed(2);
+
+        //then
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+        assertThat(transitions).extracting(Transition::getTo)
+                .containsExactly(State.OPEN, State.HALF_OPEN, State.CLOSED);
+    }
+
+    @Test
+    public void shouldLimitProbesAndReopenOnFailedProbe() {
+        //given
+        fail(WINDOW, new HTTPException(500));
+        now.addAndGet(OPEN_MILLIS);
+        val pending = breaker.execute(() -> Observable.<String>never().toSingle()).test();
+        breaker.execute(() -> Observable.<String>never().toSingle()).test();
+
+        //when
+        val rejected = breaker.execute(this::call).test();
+        pending.unsubscribe();
+        fail(1, new HTTPException(503));
+
+        //then
+        rejected.assertError(CircuitOpenException.class);
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+    }
+
+    private void succeed(int times) {
+        for (int i = 0; i < times; i++) {
+            breaker.execute(this::call).test().assertCompleted();
+        }
+    }
+
+    private void fail(int times, Throwable error) {
+        for (int i = 0; i < times; i++) {
+            breaker.execute(() -> {
+                calls.incrementAndGet();
+                return Single.<String>error(error);
+            }).test().assertError(error.getClass());
+        }
+    }
+
+    private Single<String> call() {
+        calls.incrementAndGet();
+        return Single.just("ok");
+    }
+}
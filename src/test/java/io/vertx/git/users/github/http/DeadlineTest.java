@@ -0,0 +1,104 @@
+package io.vertx.git.users.github.http;
+
+import lombok.val;
+import org.junit.Test;
+import rx.Observable;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeadlineTest {
+
+    private final TestScheduler scheduler = new TestScheduler();
+
+    @Test
+    public void shouldCapTimeoutWithRemainingTime() {
+        //given
+        val deadline = Deadline.in(1000, scheduler);
+
+        //when
+        scheduler.advanceTimeBy(700, TimeUnit.MILLISECONDS);
+
+        //then
+        assertThat(deadline.timeoutMillis(5000)).isEqualTo(300);
+        assertThat(deadline.timeoutMillis(100)).isEqualTo(100);
+        assertThat(deadline.isExpired()).isFalse();
+    }
+
+    @Test
+    public void shouldCompleteTruncatedStreamAndMarkItPartial() {
+        //given
+        val deadline = Deadline.in(1000, scheduler);
+        PublishSubject<Integer> source = PublishSubject.create();
+        val result = deadline.truncate(source).test();
+
+        //when
+        source.onNext(1);
+        scheduler.advanceTimeBy(1000, TimeUnit.MILLISECONDS);
+        source.onNext(2);
+
+        //then
+        result.assertValue(1).assertCompleted();
+        assertThat(deadline.isPartial()).isTrue();
+    }
+
+    @Test
+    public void shouldNotMarkStreamFinishedInTimeAsPartial() {
+        //given
+        val deadline = Deadline.in(1000, scheduler);
+
+        //when
+        deadline.truncate(Observable.just(1, 2)).test().assertValues(1, 2);
+        scheduler.advanceTimeBy(2000, TimeUnit.MILLISECONDS);
+
+        //then
+        assertThat(deadline.isPartial()).isFalse();
+    }
+
+    @Test
+    public void shouldReportPartialResultOfPortionToParent() {
+        //given
+        val deadline = Deadline.in(1000, scheduler);
+
+        //when
+        val portion = deadline.portion(0.5);
+        portion.markPartial();
+
+        //then
+        assertThat(portion.remainingMillis()).isEqualTo(500);
+        assertThat(deadline.isPartial()).isTrue();
+    }
+
+    @Test
+    public void shouldNeverExpireWithoutDeadline() {
+        //given
+        val deadline = Deadline.none();
+
+        //then
+        assertThat(deadline.isExpired()).isFalse();
+        assertThat(deadline.timeoutMillis(5000)).isEqualTo(5000);
+    }
+
+    @Test
+    public void shouldExtendSharedDeadlineToLatestCaller() {
+        //given
+        val shared = Deadline.shared(Deadline.in(1000, scheduler));
+
+        //when
+        shared.extendTo(Deadline.in(3000, scheduler));
+        shared.extendTo(Deadline.in(2000, scheduler));
+
+        //then
+        assertThat(shared.remainingMillis()).isEqualTo(3000);
+        assertThat(shared.portion(0.5).remainingMillis()).isEqualTo(1500);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotExtendDeadlineOfSingleRequest() {
+        //when
+        Deadline.in(1000, scheduler).extendTo(Deadline.none());
+    }
+}
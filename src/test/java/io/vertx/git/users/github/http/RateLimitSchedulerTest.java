@@ -0,0 +1,174 @@
+package io.vertx.git.users.github.http;
+
+import io.vertx.core.Vertx;
+import io.vertx.git.users.github.http.RateLimitScheduler.Priority;
+import lombok.val;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Single;
+import rx.observers.AssertableSubscriber;
+import rx.schedulers.TestScheduler;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimitSchedulerTest {
+
+    private static final long MAX_WAIT_MILLIS = 2000;
+
+    private final TestScheduler testScheduler = new TestScheduler();
+    private final List<String> started = new ArrayList<>();
+
+    private RateLimitScheduler scheduler;
+
+    @Before
+    public void createScheduler() {
+        testScheduler.advanceTimeTo(1000, SECONDS);
+        Map<RateLimitBucket, Integer> bursts = new EnumMap<>(RateLimitBucket.class);
+        bursts.put(RateLimitBucket.SEARCH, 1);
+        bursts.put(RateLimitBucket.CORE, 1);
+        scheduler = new RateLimitScheduler(testScheduler, MAX_WAIT_MILLIS, 10, bursts, testScheduler::now);
+    }
+
+    @Test
+    public void shouldSendRightAwayWhenQuotaIsUnknown() {
+        //when
+        schedule("first", Priority.NORMAL).assertResult("first");
+        schedule("second", Priority.NORMAL).assertResult("second");
+
+        //then
+        assertThat(started).containsExactly("first", "second");
+    }
+
+    @Test
+    public void shouldRejectFastWhenQuotaIsExhausted() {
+        //given
+        scheduler.update(RateLimitBucket.SEARCH, 10, 0, nowSeconds() + 30);
+
+        //when
+        val result = schedule("call", Priority.HIGH);
+
+        //then
+        result.assertError(ApiLimitReachedException.class);
+        assertThat(result.getOnErrorEvents().get(0))
+                .hasFieldOrPropertyWithValue("retryAfterSeconds", 30L);
+        assertThat(started).isEmpty();
+    }
+
+    @Test
+    public void shouldPaceCallsEvenlyTillReset() {
+        //given
+        scheduler.update(RateLimitBucket.SEARCH, 10, 10, nowSeconds() + 10);
+
+        //when
+        schedule("first", Priority.NORMAL).assertResult("first");
+        val second = schedule("second", Priority.NORMAL);
+
+        //then
+        second.assertNoValues();
+        testScheduler.advanceTimeBy(1200, MILLISECONDS);
+        second.assertResult("second");
+    }
+
+    @Test
+    public void shouldServeHigherPriorityFirst() {
+        //given
+        scheduler.update(RateLimitBucket.SEARCH, 10, 10, nowSeconds() + 10);
+        schedule("first", Priority.NORMAL);
+
+        //when
+        schedule("low", Priority.LOW);
+        schedule("high", Priority.HIGH);
+        testScheduler.advanceTimeBy(1200, MILLISECONDS);
+
+        //then
+        assertThat(started).containsExactly("first", "high");
+    }
+
+    @Test
+    public void shouldServeLiveCallsBeforeBackgroundCallsQueuedEarlier() {
+        //given
+        scheduler.update(RateLimitBucket.SEARCH, 10, 10, nowSeconds() + 10);
+        schedule("first", Priority.NORMAL);
+        val refresh = schedule("refresh", Priority.LOW);
+
+        //when
+        schedule("live", Priority.NORMAL);
+        testScheduler.advanceTimeBy(1200, MILLISECONDS);
+
+        //then
+        assertThat(started).containsExactly("first", "live");
+        refresh.assertNoTerminalEvent();
+    }
+
+    @Test
+    public void shouldRejectCallWaitingTooLong() {
+        //given
+        scheduler.update(RateLimitBucket.SEARCH, 10, 10, nowSeconds() + 10);
+        schedule("first", Priority.NORMAL);
+        schedule("second", Priority.NORMAL);
+
+        //when
+        val third = schedule("third", Priority.NORMAL);
+
+        //then
+        third.assertError(ApiLimitReachedException.class);
+    }
+
+    @Test
+    public void shouldStartQueuedCallOnContextOfCaller() throws Exception {
+        //given
+        val vertx = Vertx.vertx();
+        try {
+            scheduler.update(RateLimitBucket.SEARCH, 10, 10, nowSeconds() + 10);
+            schedule("first", Priority.NORMAL);
+            val callerThread = new CompletableFuture<Thread>();
+            val startedOn = new CompletableFuture<Thread>();
+            vertx.getOrCreateContext().runOnContext(ignored -> {
+                scheduler.schedule(RateLimitBucket.SEARCH, Priority.NORMAL, () -> {
+                    startedOn.complete(Thread.currentThread());
+                    return Single.just("second");
+                }).subscribe();
+                callerThread.complete(Thread.currentThread());
+            });
+            callerThread.get(5, SECONDS);
+
+            //when
+            testScheduler.advanceTimeBy(1200, MILLISECONDS);
+
+            //then
+            assertThat(startedOn.get(5, SECONDS)).isSameAs(callerThread.get());
+        } finally {
+            vertx.close();
+        }
+    }
+
+    @Test
+    public void shouldReportSpareBudget() {
+        //when
+        scheduler.update(RateLimitBucket.CORE, 100, 30, nowSeconds() + 10);
+
+        //then
+        assertThat(scheduler.hasSpareBudget(RateLimitBucket.CORE, 0.2)).isTrue();
+        assertThat(scheduler.hasSpareBudget(RateLimitBucket.CORE, 0.5)).isFalse();
+        assertThat(scheduler.hasSpareBudget(RateLimitBucket.SEARCH, 0.5)).isTrue();
+    }
+
+    private AssertableSubscriber<String> schedule(String name, Priority priority) {
+        return scheduler.schedule(RateLimitBucket.SEARCH, priority, () -> {
+            started.add(name);
+            return Single.just(name);
+        }).test();
+    }
+
+    private long nowSeconds() {
+        return testScheduler.now() / 1000;
+    }
+}
@@ -0,0 +1,146 @@
+package io.vertx.git.users.github.http;
+
+import lombok.val;
+import org.junit.Before;
+import org.junit.Test;
+import rx.Observable;
+import rx.Single;
+import rx.schedulers.TestScheduler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RequestHedgerTest {
+
+    private static final int MIN_SAMPLES = 10;
+
+    private final TestScheduler scheduler = new TestScheduler();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private RequestHedger hedger;
+
+    @Before
+    public void createHedger() {
+        hedger = new RequestHedger(0.9, MIN_SAMPLES, 0.5, scheduler);
+    }
+
+    @Test
+    public void shouldNotHedgeBeforeEnoughSamples() {
+        //when
+        val result = hedger.execute(() -> delayed("slow", 1000)).test();
+        scheduler.advanceTimeBy(1000, TimeUnit.MILLISECONDS);
+
+        //then
+        result.assertValue("slow");
+        assertThat(calls).hasValue(1);
+        assertThat(hedger.hedgeDelayMillis()).isEqualTo(-1);
+    }
+
+    @Test
+    public void shouldHedgeCallSlowerThanPercentile() {
+        //given
+        warmUp(100);
+        AtomicInteger attempt = new AtomicInteger();
+
+        //when
+        val result = hedger.execute(() -> attempt.getAndIncrement() == 0
+                ? delayed("primary", 5000)
+                : delayed("hedge", 100)).test();
+        scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+
+        //then
+        result.assertValue("hedge");
+        assertThat(attempt).hasValue(2);
+        assertThat(hedger.stats().getLong("hedgeWins")).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldKeepPrimaryWhenHedgeFails() {
+        //given
+        warmUp(100);
+        AtomicInteger attempt = new AtomicInteger();
+
+        //when
+        val result = hedger.execute(() -> attempt.getAndIncrement() == 0
+                ? delayed("primary", 500)
+                : Single.error(new IllegalStateException())).test();
+        scheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+
+        //then
+        result.assertValue("primary");
+    }
+
+    @Test
+    public void shouldNotHedgeFastCall() {
+        //given
+        warmUp(100);
+        calls.set(0);
+
+        //when
+        val result = hedger.execute(() -> delayed("fast", 50)).test();
+        scheduler.advanceTimeBy(1000, TimeUnit.MILLISECONDS);
+
+        //then
+        result.assertValue("fast");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    public void shouldTakePercentileOfRecentCallsOnly() {
+        //given
+        for (int i = 0; i < 128; i++) {
+            warmUp(1000);
+        }
+
+        //when
+        for (int i = 0; i < 13; i++) {
+            warmUp(10);
+        }
+
+        //then
+        assertThat(hedger.hedgeDelayMillis()).isEqualTo(10);
+    }
+
+    @Test
+    public void shouldMeasureFailedAndCancelledCalls() {
+        //given
+        hedger = new RequestHedger(0.9, MIN_SAMPLES, 0, scheduler);
+        warmUp(100);
+
+        //when
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            hedger.execute(() -> Observable.timer(1000, TimeUnit.MILLISECONDS, scheduler)
+                    .flatMap(tick -> Observable.<String>error(new TimeoutException()))
+                    .toSingle()).test();
+            scheduler.advanceTimeBy(1000, TimeUnit.MILLISECONDS);
+        }
+
+        //then
+        assertThat(hedger.hedgeDelayMillis()).isEqualTo(1000);
+
+        //when
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            val cancelled = hedger.execute(() -> Observable.<String>never().toSingle()).test();
+            scheduler.advanceTimeBy(2000, TimeUnit.MILLISECONDS);
+            cancelled.unsubscribe();
+        }
+
+        //then
+        assertThat(hedger.hedgeDelayMillis()).isEqualTo(2000);
+    }
+
+    private void warmUp(long latencyMillis) {
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            hedger.execute(() -> delayed("warm up", latencyMillis)).test();
+            scheduler.advanceTimeBy(latencyMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private Single<String> delayed(String value, long millis) {
+        calls.incrementAndGet();
+        return Single.just(value).delay(millis, TimeUnit.MILLISECONDS, scheduler);
+    }
+}
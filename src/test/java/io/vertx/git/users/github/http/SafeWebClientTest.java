@@ -13,13 +13,21 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
+import rx.Observable;
 import rx.Single;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
 
 import javax.xml.ws.http.HTTPException;
 import java.net.URL;
+import java.util.Collections;
+import java.util.concurrent.TimeoutException;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Fail.fail;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -37,6 +45,7 @@ public class SafeWebClientTest {
         when(client.get(any(), any())).thenReturn(request);
         when(request.addQueryParam(anyString(), anyString())).thenReturn(request);
         when(request.timeout(anyLong())).thenReturn(request);
+        when(request.putHeader(anyString(), anyString())).thenReturn(request);
 
         when(request.rxSend()).thenReturn(Single.error(new NullPointerException()));
     }
@@ -117,7 +126,7 @@ public class SafeWebClientTest {
 
         HttpResponse<Buffer> mockedResponse = Mockito.mock(HttpResponse.class);
         when(mockedResponse.statusCode()).thenReturn(200);
-        when(mockedResponse.bodyAsJsonObject()).thenReturn(expectedJson);
+        when(mockedResponse.body()).thenReturn(Buffer.buffer(expectedJson.encode()));
         when(request.rxSend()).thenReturn(Single.just(mockedResponse));
 
         //when
@@ -127,6 +136,185 @@ public class SafeWebClientTest {
         result.test().assertResult(expectedJson);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldStoreValidatorsOfCachedResponse() {
+        //given
+        val cache = new ResponseCache(10, 0);
+        val expectedJson = new JsonObject().put("login", "any");
+        HttpResponse<Buffer> mockedResponse = Mockito.mock(HttpResponse.class);
+        when(mockedResponse.statusCode()).thenReturn(200);
+        when(mockedResponse.body()).thenReturn(Buffer.buffer(expectedJson.encode()));
+        when(mockedResponse.getHeader("ETag")).thenReturn("\"tag\"");
+        when(request.rxSend()).thenReturn(Single.just(mockedResponse));
+
+        //when
+        buildClient(cache).get().test().assertResult(expectedJson);
+        buildClient(cache).get().test().assertResult(expectedJson);
+
+        //then
+        verify(request).putHeader(eq("If-None-Match"), eq("\"tag\""));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldTreatNotModifiedAsCacheHit() {
+        //given
+        val cache = new ResponseCache(10, 0);
+        val expectedJson = new JsonObject().put("login", "any");
+        cache.store(getUrl("http://github.com").toExternalForm(), Buffer.buffer(expectedJson.encode()), "\"tag\"", null);
+
+        HttpResponse<Buffer> notModified = Mockito.mock(HttpResponse.class);
+        when(notModified.statusCode()).thenReturn(304);
+        when(request.rxSend()).thenReturn(Single.just(notModified));
+
+        //when
+        Single<JsonObject> result = buildClient(cache).get();
+
+        //then
+        result.test().assertResult(expectedJson);
+        assertThat(cache.stats().getRevalidations()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotCallApiForFreshEntry() {
+        //given
+        val cache = new ResponseCache(10, 60_000);
+        val expectedJson = new JsonObject();
+        cache.store(getUrl("http://github.com").toExternalForm(), Buffer.buffer(expectedJson.encode()), null, null);
+
+        //when
+        Single<JsonObject> result = buildClient(cache).get();
+
+        //then
+        result.test().assertResult(expectedJson);
+        verify(client, never()).get(any(), any());
+        assertThat(cache.stats().getHits()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotHedgeResponsesServedFromCache() {
+        //given
+        val cache = new ResponseCache(10, 60_000);
+        cache.store(getUrl("http://github.com").toExternalForm(), Buffer.buffer(new JsonObject().encode()), null, null);
+        val hedger = new RequestHedger(0.9, 1, 0.5, Schedulers.computation());
+
+        //when
+        SafeWebClient.builder()
+                .client(client)
+                .url(getUrl("http://github.com"))
+                .cache(cache)
+                .hedger(hedger)
+                .build()
+                .get().test().assertValueCount(1);
+
+        //then
+        assertThat(hedger.stats().getLong("calls")).isZero();
+    }
+
+    @Test
+    public void shouldChargeHedgedCallToQuota() {
+        //given
+        val testScheduler = new TestScheduler();
+        long resetEpochSeconds = 3600;
+        val tokens = new TokenPool(Collections.singletonList("secret"), testScheduler::now);
+        tokens.update(tokens.acquire(RateLimitBucket.CORE), RateLimitBucket.CORE, 100, 100, resetEpochSeconds);
+        val rateLimits = new RateLimitScheduler(testScheduler, 1000, 10,
+                Collections.singletonMap(RateLimitBucket.CORE, 10), testScheduler::now);
+        rateLimits.update(RateLimitBucket.CORE, 100, 100, resetEpochSeconds);
+        val hedger = new RequestHedger(0.5, 1, 1.0, testScheduler);
+        hedger.execute(() -> Single.just(1)).test();
+        when(request.rxSend()).thenReturn(Observable.<HttpResponse<Buffer>>never().toSingle());
+
+        //when
+        SafeWebClient.builder()
+                .client(client)
+                .url(getUrl("http://github.com"))
+                .scheduler(rateLimits)
+                .tokens(tokens)
+                .hedger(hedger)
+                .build()
+                .get().test();
+        testScheduler.triggerActions();
+
+        //then
+        verify(request, times(2)).rxSend();
+        assertThat(rateLimits.remaining(RateLimitBucket.CORE)).isEqualTo(98);
+        assertThat(tokens.total(RateLimitBucket.CORE).getRemaining()).isEqualTo(98);
+    }
+
+    @Test
+    public void shouldServeCachedResponseWithoutCallingApiWhileCircuitIsOpen() {
+        //given
+        val cache = new ResponseCache(10, 0);
+        val expectedJson = new JsonObject().put("login", "any");
+        cache.store(getUrl("http://github.com").toExternalForm(), Buffer.buffer(expectedJson.encode()), "\"tag\"", null);
+        val breaker = new CircuitBreaker(1, 1, 0.5, 1, 1000, 60_000, 1);
+        breaker.execute(() -> Single.error(new HTTPException(500))).test();
+
+        //when
+        Single<JsonObject> result = SafeWebClient.builder()
+                .client(client)
+                .url(getUrl("http://github.com"))
+                .cache(cache)
+                .breaker(breaker)
+                .build()
+                .get();
+
+        //then
+        result.test().assertResult(expectedJson);
+        verify(request, never()).rxSend();
+        assertThat(cache.stats().getStaleServed()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotOpenCircuitOnTimeoutsCutShortByClientDeadline() {
+        //given
+        when(request.rxSend()).thenReturn(Single.error(new TimeoutException()));
+        val breaker = new CircuitBreaker(2, 2, 0.5, 1, 1000, 60_000, 1);
+
+        //when
+        for (int i = 0; i < 4; i++) {
+            buildClient(breaker, Deadline.in(50, Schedulers.computation())).get().test()
+                    .assertError(DeadlineExceededException.class);
+        }
+
+        //then
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void shouldOpenCircuitOnTimeoutsOfFullCalls() {
+        //given
+        when(request.rxSend()).thenReturn(Single.error(new TimeoutException()));
+        val breaker = new CircuitBreaker(2, 2, 0.5, 1, 1000, 60_000, 1);
+
+        //when
+        for (int i = 0; i < 2; i++) {
+            buildClient(breaker, Deadline.none()).get().test().assertError(TimeoutException.class);
+        }
+
+        //then
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    private SafeWebClient buildClient(CircuitBreaker breaker, Deadline deadline) {
+        return SafeWebClient.builder()
+                .client(client)
+                .url(getUrl("http://github.com"))
+                .breaker(breaker)
+                .deadline(deadline)
+                .build();
+    }
+
+    private SafeWebClient buildClient(ResponseCache cache) {
+        return SafeWebClient.builder()
+                .client(client)
+                .url(getUrl("http://github.com"))
+                .cache(cache)
+                .build();
+    }
+
     private SafeWebClient buildClient() {
         return buildClient(getUrl("http://github.com"));
     }
@@ -0,0 +1,68 @@
+package io.vertx.git.users.github.http;
+
+import lombok.val;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class TokenPoolTest {
+
+    private static final long NOW_SECONDS = 1000;
+
+    private final AtomicLong clock = new AtomicLong(NOW_SECONDS * 1000);
+    private final TokenPool pool = new TokenPool(Arrays.asList("a", "b"), clock::get);
+
+    @Test
+    public void shouldSpreadCallsOverUnusedTokens() {
+        //when
+        val first = pool.acquire(RateLimitBucket.SEARCH);
+        val second = pool.acquire(RateLimitBucket.SEARCH);
+
+        //then
+        assertThat(first.authorization()).isEqualTo("token a");
+        assertThat(second.authorization()).isEqualTo("token b");
+    }
+
+    @Test
+    public void shouldPickTokenWithMostRemainingCallsOfBucket() {
+        //given
+        val a = pool.acquire(RateLimitBucket.SEARCH);
+        val b = pool.acquire(RateLimitBucket.SEARCH);
+        pool.update(a, RateLimitBucket.SEARCH, 30, 5, NOW_SECONDS + 60);
+        pool.update(b, RateLimitBucket.SEARCH, 30, 20, NOW_SECONDS + 60);
+        pool.update(b, RateLimitBucket.CORE, 5000, 1, NOW_SECONDS + 3600);
+
+        //when
+        val search = pool.acquire(RateLimitBucket.SEARCH);
+        val core = pool.acquire(RateLimitBucket.CORE);
+
+        //then
+        assertThat(search).isSameAs(b);
+        assertThat(core).isSameAs(a);
+        assertThat(pool.total(RateLimitBucket.SEARCH))
+                .isEqualTo(new TokenPool.Total(60, 24, NOW_SECONDS + 60));
+    }
+
+    @Test
+    public void shouldSkipExhaustedTokensTillReset() {
+        //given
+        val a = pool.acquire(RateLimitBucket.SEARCH);
+        val b = pool.acquire(RateLimitBucket.SEARCH);
+        pool.update(a, RateLimitBucket.SEARCH, 30, 0, NOW_SECONDS + 10);
+        pool.update(b, RateLimitBucket.SEARCH, 30, 0, NOW_SECONDS + 40);
+
+        //when
+        Throwable exhausted = catchThrowable(() -> pool.acquire(RateLimitBucket.SEARCH));
+        clock.addAndGet(10_000);
+        val afterReset = pool.acquire(RateLimitBucket.SEARCH);
+
+        //then
+        assertThat(exhausted).isInstanceOf(ApiLimitReachedException.class)
+                .hasFieldOrPropertyWithValue("retryAfterSeconds", 10L);
+        assertThat(afterReset).isSameAs(a);
+    }
+}
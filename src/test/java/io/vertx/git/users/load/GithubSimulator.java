@@ -0,0 +1,291 @@
+package io.vertx.git.users.load;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.rxjava.core.AbstractVerticle;
+import io.vertx.rxjava.core.Vertx;
+import io.vertx.rxjava.core.http.HttpServerRequest;
+import io.vertx.rxjava.core.http.HttpServerResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Offline stand-in for GitHub user search, profile and GraphQL endpoints.
+ * Every endpoint answers after a log-normally distributed delay (given by median and p99), fails with a configurable
+ * share of 5xx responses and counts calls against its own rate limit window, sending X-RateLimit-* headers
+ * and 403 once the window is used up. Search results are generated from the query and paginated,
+ * profiles have ETags and are answered with 304 to matching If-None-Match.
+ * <p>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.vertx.git.users.load.GithubSimulator
+ * -Dexec.args=config.json
+ */
+@Slf4j
+public class GithubSimulator extends AbstractVerticle {
+
+    public static final int DEFAULT_PORT = 9090;
+    public static final String STATS_PATH = "/_stats";
+
+    private static final String SEARCH_PATH = "/search/users";
+    private static final String USERS_PATH = "/users/";
+    private static final String GRAPHQL_PATH = "/graphql";
+    private static final int DEFAULT_TOTAL_COUNT = 100;
+    private static final int MAX_RESULTS = 1000;
+    private static final int DEFAULT_PER_PAGE = 30;
+    private static final int MAX_PER_PAGE = 100;
+    private static final double P99_Z_SCORE = 2.326;
+
+    private Endpoint search;
+    private Endpoint profile;
+    private Endpoint graphql;
+    private int totalCount;
+    private Set<String> unknownLanguages;
+    private String baseUrl;
+
+    private final LongAdder notModified = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        JsonObject config = args.length > 0
+                ? new JsonObject(new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.UTF_8))
+                : new JsonObject();
+        Vertx.vertx().deployVerticle(GithubSimulator.class.getName(), new DeploymentOptions().setConfig(config), result -> {
+            if (result.failed()) {
+                log.error("Simulator failed to start", result.cause());
+                System.exit(1);
+            }
+        });
+    }
+
+    @Override
+    public void start(Future<Void> startFuture) {
+        JsonObject config = config();
+        int port = config.getInteger("port", DEFAULT_PORT);
+        baseUrl = "http://localhost:" + port;
+        totalCount = Math.min(MAX_RESULTS, config.getInteger("totalCount", DEFAULT_TOTAL_COUNT));
+        unknownLanguages = config.getJsonArray("unknownLanguages", new JsonArray()).stream()
+                .map(String.class::cast)
+                .collect(Collectors.toSet());
+        search = new Endpoint(config.getJsonObject("search", new JsonObject()), 200, 1500, 30, 60);
+        profile = new Endpoint(config.getJsonObject("profile", new JsonObject()), 50, 400, 5000, 3600);
+        graphql = new Endpoint(config.getJsonObject("graphql", new JsonObject()), 100, 800, 5000, 3600);
+
+        vertx.createHttpServer()
+                .requestHandler(this::handle)
+                .rxListen(port)
+                .subscribe(server -> {
+                    log.info("GitHub simulator listening on {}", baseUrl);
+                    startFuture.complete();
+                }, startFuture::fail);
+    }
+
+    private void handle(HttpServerRequest request) {
+        String path = request.path();
+        if (path.equals(STATS_PATH)) {
+            request.response().putHeader("Content-Type", "application/json").end(stats().encode());
+        } else if (path.equals(SEARCH_PATH)) {
+            search.answer(request, () -> searchResult(request));
+        } else if (path.equals(GRAPHQL_PATH)) {
+            request.bodyHandler(body -> graphql.answer(request, () -> graphqlResult(request, body.toJsonObject())));
+        } else if (path.startsWith(USERS_PATH)) {
+            profile.answer(request, () -> profile(request, path.substring(USERS_PATH.length())));
+        } else {
+            request.response().setStatusCode(404).end();
+        }
+    }
+
+    private void searchResult(HttpServerRequest request) {
+        String query = request.getParam("q") == null ? "" : request.getParam("q");
+        String userName = "";
+        String language = null;
+        for (String token : query.split("[ +]")) {
+            if (token.startsWith("language:")) {
+                language = token.substring("language:".length());
+            } else if (userName.isEmpty() && !token.contains(":")) {
+                userName = token;
+            }
+        }
+        int page = intParam(request, "page", 1);
+        int perPage = Math.min(MAX_PER_PAGE, intParam(request, "per_page", DEFAULT_PER_PAGE));
+        int found = language != null && unknownLanguages.contains(language) ? 0 : totalCount;
+
+        JsonArray items = new JsonArray();
+        for (int i = (page - 1) * perPage; i < Math.min(found, page * perPage); i++) {
+            String login = userName + i;
+            items.add(new JsonObject()
+                    .put("login", login)
+                    .put("id", i)
+                    .put("url", baseUrl + USERS_PATH + login)
+                    .put("html_url", "https://github.com/" + login)
+                    .put("type", "User")
+                    .put("score", 1.0));
+        }
+        HttpServerResponse response = request.response();
+        if (page * perPage < found) {
+            response.putHeader("Link", "<" + baseUrl + SEARCH_PATH + "?q=" + encode(query) + "&page=" + (page + 1)
+                    + "&per_page=" + perPage + ">; rel=\"next\"");
+        }
+        response.putHeader("Content-Type", "application/json")
+                .end(new JsonObject()
+                        .put("total_count", found)
+                        .put("incomplete_results", false)
+                        .put("items", items)
+                        .encode());
+    }
+
+    /**
+     * Answers queries made of aliased user(login: $variable) fields, as sent for a page of profiles
+     */
+    private void graphqlResult(HttpServerRequest request, JsonObject query) {
+        JsonObject variables = query.getJsonObject("variables", new JsonObject());
+        JsonObject data = new JsonObject();
+        for (int i = 0; variables.containsKey("l" + i); i++) {
+            String login = variables.getString("l" + i);
+            data.put("u" + i, new JsonObject()
+                    .put("login", login)
+                    .put("name", name(login))
+                    .put("avatarUrl", avatarUrl(login))
+                    .put("url", htmlUrl(login))
+                    .put("followers", new JsonObject().put("totalCount", followers(login))));
+        }
+        request.response().putHeader("Content-Type", "application/json").end(new JsonObject().put("data", data).encode());
+    }
+
+    private void profile(HttpServerRequest request, String login) {
+        String body = new JsonObject()
+                .put("login", login)
+                .put("name", name(login))
+                .put("followers", followers(login))
+                .put("avatar_url", avatarUrl(login))
+                .put("html_url", htmlUrl(login))
+                .put("url", baseUrl + USERS_PATH + login)
+                .encode();
+        String etag = "\"" + Integer.toHexString(body.hashCode()) + "\"";
+        HttpServerResponse response = request.response().putHeader("ETag", etag);
+        if (etag.equals(request.getHeader("If-None-Match"))) {
+            notModified.increment();
+            response.setStatusCode(304).end();
+        } else {
+            response.putHeader("Content-Type", "application/json").end(body);
+        }
+    }
+
+    private JsonObject stats() {
+        return new JsonObject()
+                .put("search", search.stats())
+                .put("profile", profile.stats().put("notModified", notModified.sum()))
+                .put("graphql", graphql.stats())
+                .put("calls", search.calls.sum() + profile.calls.sum() + graphql.calls.sum());
+    }
+
+    private static String name(String login) {
+        return "User " + login;
+    }
+
+    private static int followers(String login) {
+        return Math.abs(login.hashCode() % 1000);
+    }
+
+    private static String avatarUrl(String login) {
+        return "https://avatars.githubusercontent.com/" + login;
+    }
+
+    private static String htmlUrl(String login) {
+        return "https://github.com/" + login;
+    }
+
+    private static int intParam(HttpServerRequest request, String name, int defaultValue) {
+        String value = request.getParam(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Latency, errors and rate limit of one endpoint, used from the event loop of the simulator only
+     */
+    private class Endpoint {
+        private final double mu;
+        private final double sigma;
+        private final double errorRate;
+        private final int errorStatus;
+        private final int rateLimit;
+        private final long windowMillis;
+
+        private long resetAtMillis;
+        private int used;
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rateLimited = new LongAdder();
+
+        Endpoint(JsonObject config, long medianMillis, long p99Millis, int rateLimit, long windowSeconds) {
+            double median = Math.max(0.1, config.getLong("medianMillis", medianMillis));
+            double p99 = Math.max(median, config.getLong("p99Millis", p99Millis));
+            this.mu = Math.log(median);
+            this.sigma = (Math.log(p99) - mu) / P99_Z_SCORE;
+            this.errorRate = config.getDouble("errorRate", 0.0);
+            this.errorStatus = config.getInteger("errorStatus", 502);
+            this.rateLimit = config.getInteger("rateLimit", rateLimit);
+            this.windowMillis = TimeUnit.SECONDS.toMillis(config.getLong("windowSeconds", windowSeconds));
+        }
+
+        void answer(HttpServerRequest request, Runnable success) {
+            calls.increment();
+            long delay = Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+            if (delay < 1) {
+                respond(request, success);
+            } else {
+                vertx.setTimer(delay, id -> respond(request, success));
+            }
+        }
+
+        private void respond(HttpServerRequest request, Runnable success) {
+            long now = System.currentTimeMillis();
+            if (now >= resetAtMillis) {
+                resetAtMillis = now + windowMillis;
+                used = 0;
+            }
+            int remaining = Math.max(0, rateLimit - used - 1);
+            request.response()
+                    .putHeader("X-RateLimit-Limit", String.valueOf(rateLimit))
+                    .putHeader("X-RateLimit-Remaining", String.valueOf(used < rateLimit ? remaining : 0))
+                    .putHeader("X-RateLimit-Reset", String.valueOf(TimeUnit.MILLISECONDS.toSeconds(resetAtMillis)));
+            if (used >= rateLimit) {
+                rateLimited.increment();
+                request.response().setStatusCode(403).end("{\"message\":\"API rate limit exceeded\"}");
+                return;
+            }
+            used++;
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errors.increment();
+                request.response().setStatusCode(errorStatus).end();
+                return;
+            }
+            success.run();
+        }
+
+        JsonObject stats() {
+            return new JsonObject()
+                    .put("calls", calls.sum())
+                    .put("errors", errors.sum())
+                    .put("rateLimited", rateLimited.sum());
+        }
+    }
+}
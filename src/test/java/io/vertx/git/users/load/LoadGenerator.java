@@ -0,0 +1,171 @@
+package io.vertx.git.users.load;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.rxjava.core.Vertx;
+import io.vertx.rxjava.core.buffer.Buffer;
+import io.vertx.rxjava.ext.web.client.HttpRequest;
+import io.vertx.rxjava.ext.web.client.HttpResponse;
+import io.vertx.rxjava.ext.web.client.WebClient;
+import lombok.extern.slf4j.Slf4j;
+import rx.Single;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Open loop load of /search: requests are sent at a constant arrival rate whether or not earlier ones completed,
+ * and latency is measured from the time a request was due, so a stalled server is not hidden by a stalled client.
+ * Reports throughput, latency percentiles and upstream calls per request taken from {@link GithubSimulator} stats.
+ * <p>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.vertx.git.users.load.LoadGenerator
+ * -Dtarget=http://localhost:8080 -Drate=50 -Dduration=30 -Dusers=50 -Dupstream=http://localhost:9090
+ */
+@Slf4j
+public class LoadGenerator {
+
+    private static final long TICK_MILLIS = 1;
+    private static final long DRAIN_TIMEOUT_SECONDS = 30;
+    private static final int MAX_CONNECTIONS = 1000;
+    private static final int CONNECTION_ERROR = -1;
+
+    private final Vertx vertx;
+    private final URL target;
+    private final URL upstream;
+    private final int rate;
+    private final int durationSeconds;
+    private final int distinctUsers;
+    private final String language;
+
+    public LoadGenerator(Vertx vertx, URL target, URL upstream, int rate, int durationSeconds, int distinctUsers,
+                         String language) {
+        this.vertx = vertx;
+        this.target = target;
+        this.upstream = upstream;
+        this.rate = rate;
+        this.durationSeconds = durationSeconds;
+        this.distinctUsers = Math.max(1, distinctUsers);
+        this.language = language;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Vertx vertx = Vertx.vertx();
+        String upstream = System.getProperty("upstream");
+        LoadGenerator generator = new LoadGenerator(vertx,
+                new URL(System.getProperty("target", "http://localhost:8080")),
+                upstream == null ? null : new URL(upstream),
+                Integer.getInteger("rate", 50),
+                Integer.getInteger("duration", 30),
+                Integer.getInteger("users", 50),
+                System.getProperty("language"));
+        System.out.println(generator.run().encodePrettily());
+        vertx.close();
+    }
+
+    /**
+     * Runs the load and blocks till all requests completed or the drain timeout passed
+     */
+    public JsonObject run() throws InterruptedException {
+        WebClient client = WebClient.create(vertx, new WebClientOptions()
+                .setDefaultHost(target.getHost())
+                .setDefaultPort(target.getPort() == -1 ? target.getDefaultPort() : target.getPort())
+                .setMaxPoolSize(MAX_CONNECTIONS)
+                .setKeepAlive(true));
+        long upstreamBefore = upstreamCalls(client);
+
+        int total = rate * durationSeconds;
+        long[] latencies = new long[total];
+        int[] statuses = new int[total];
+        AtomicInteger sent = new AtomicInteger();
+        CountDownLatch completed = new CountDownLatch(total);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+
+        vertx.setPeriodic(TICK_MILLIS, timer -> {
+            long now = System.nanoTime();
+            while (sent.get() < total && start + sent.get() * intervalNanos <= now) {
+                int index = sent.getAndIncrement();
+                long dueAt = start + index * intervalNanos;
+                HttpRequest<Buffer> request = client.get(target.getPath().isEmpty() ? "/search" : target.getPath())
+                        .addQueryParam("user", "user" + index % distinctUsers);
+                if (language != null) {
+                    request.addQueryParam("language", language);
+                }
+                request.rxSend()
+                        .subscribe(response -> {
+                            latencies[index] = System.nanoTime() - dueAt;
+                            statuses[index] = response.statusCode();
+                            completed.countDown();
+                        }, error -> {
+                            latencies[index] = System.nanoTime() - dueAt;
+                            statuses[index] = CONNECTION_ERROR;
+                            completed.countDown();
+                        });
+            }
+            if (sent.get() >= total) {
+                vertx.cancelTimer(timer);
+            }
+        });
+
+        boolean drained = completed.await(durationSeconds + DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        long upstreamCalls = upstreamCalls(client) - upstreamBefore;
+        client.close();
+        return report(latencies, statuses, drained, elapsedSeconds, upstreamCalls);
+    }
+
+    private JsonObject report(long[] latencies, int[] statuses, boolean drained, double elapsedSeconds,
+                              long upstreamCalls) {
+        long[] done = new long[latencies.length];
+        Map<String, Integer> byStatus = new TreeMap<>();
+        int count = 0;
+        for (int i = 0; i < statuses.length; i++) {
+            if (statuses[i] != 0) {
+                done[count++] = latencies[i];
+                byStatus.merge(statuses[i] == CONNECTION_ERROR ? "error" : String.valueOf(statuses[i]), 1, Integer::sum);
+            }
+        }
+        Arrays.sort(done, 0, count);
+        JsonObject statusCounts = new JsonObject();
+        byStatus.forEach(statusCounts::put);
+        return new JsonObject()
+                .put("targetRate", rate)
+                .put("sent", statuses.length)
+                .put("completed", count)
+                .put("drained", drained)
+                .put("throughput", count / elapsedSeconds)
+                .put("statuses", statusCounts)
+                .put("latencyMillis", new JsonObject()
+                        .put("p50", percentile(done, count, 0.5))
+                        .put("p99", percentile(done, count, 0.99))
+                        .put("p999", percentile(done, count, 0.999))
+                        .put("max", percentile(done, count, 1.0)))
+                .put("upstreamCalls", upstreamCalls)
+                .put("amplification", count == 0 || upstreamCalls < 0 ? null : (double) upstreamCalls / count);
+    }
+
+    private static double percentile(long[] sorted, int count, double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        int index = Math.min(count - 1, (int) Math.ceil(quantile * count) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * @return calls made to the simulator so far, -1 when no simulator is known
+     */
+    private long upstreamCalls(WebClient client) {
+        if (upstream == null) {
+            return -1;
+        }
+        Single<HttpResponse<Buffer>> stats = client.get(upstream.getPort(), upstream.getHost(), GithubSimulator.STATS_PATH)
+                .rxSend();
+        return stats.toBlocking().value().bodyAsJsonObject().getLong("calls");
+    }
+}
@@ -0,0 +1,56 @@
+package io.vertx.git.users.load;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.git.users.RestVerticle;
+import io.vertx.rxjava.core.Vertx;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Runs {@link GithubSimulator}, {@link RestVerticle} pointed at it and {@link LoadGenerator} in one JVM, fully offline.
+ * Simulator config is read from -Dsimulator=file.json, application config from -Dconfig=file.json,
+ * load is set up with the system properties of {@link LoadGenerator}.
+ * <p>
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=io.vertx.git.users.load.LoadTest
+ * -Drate=100 -Dduration=20
+ */
+public class LoadTest {
+
+    private static final int APP_PORT = 8081;
+
+    public static void main(String[] args) throws Exception {
+        Vertx vertx = Vertx.vertx();
+        JsonObject simulatorConfig = read(System.getProperty("simulator"));
+        int simulatorPort = simulatorConfig.getInteger("port", GithubSimulator.DEFAULT_PORT);
+        String simulatorUrl = "http://localhost:" + simulatorPort;
+
+        JsonObject appConfig = read(System.getProperty("config"))
+                .put("port", APP_PORT)
+                .put("github", new JsonObject().put("baseUrl", simulatorUrl));
+
+        vertx.rxDeployVerticle(GithubSimulator.class.getName(), new DeploymentOptions().setConfig(simulatorConfig))
+                .flatMap(id -> vertx.rxDeployVerticle(RestVerticle.class.getName(), new DeploymentOptions().setConfig(appConfig)))
+                .toBlocking()
+                .value();
+
+        LoadGenerator generator = new LoadGenerator(vertx,
+                new URL("http://localhost:" + APP_PORT + "/search"),
+                new URL(simulatorUrl),
+                Integer.getInteger("rate", 50),
+                Integer.getInteger("duration", 30),
+                Integer.getInteger("users", 50),
+                System.getProperty("language"));
+        System.out.println(generator.run().encodePrettily());
+        vertx.close();
+    }
+
+    private static JsonObject read(String path) throws Exception {
+        return path == null
+                ? new JsonObject()
+                : new JsonObject(new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8));
+    }
+}
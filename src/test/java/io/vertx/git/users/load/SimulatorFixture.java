@@ -0,0 +1,57 @@
+package io.vertx.git.users.load;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.rxjava.core.Vertx;
+import io.vertx.rxjava.ext.web.client.WebClient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+
+/**
+ * {@link GithubSimulator} deployed for tests on a free port, with search and profile answering right away
+ */
+public final class SimulatorFixture {
+
+    private SimulatorFixture() {
+    }
+
+    /**
+     * @return port the simulator listens on
+     */
+    public static int deploy(Vertx vertx) {
+        return deploy(vertx, new JsonObject());
+    }
+
+    /**
+     * @param config simulator config, its port and search and profile latencies are overridden
+     * @return port the simulator listens on
+     */
+    public static int deploy(Vertx vertx, JsonObject config) {
+        int port = freePort();
+        vertx.rxDeployVerticle(GithubSimulator.class.getName(), new DeploymentOptions().setConfig(config.copy()
+                .put("port", port)
+                .put("search", new JsonObject().put("medianMillis", 1).put("p99Millis", 1))
+                .put("profile", new JsonObject().put("medianMillis", 1).put("p99Millis", 1))))
+                .toBlocking().value();
+        return port;
+    }
+
+    public static String baseUrl(int port) {
+        return "http://localhost:" + port;
+    }
+
+    public static JsonObject stats(Vertx vertx, int port) {
+        return WebClient.create(vertx).get(port, "localhost", GithubSimulator.STATS_PATH).rxSend()
+                .toBlocking().value().bodyAsJsonObject();
+    }
+
+    public static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
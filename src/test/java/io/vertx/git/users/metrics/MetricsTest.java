@@ -0,0 +1,93 @@
+package io.vertx.git.users.metrics;
+
+import io.vertx.git.users.github.http.RateLimitBucket;
+import io.vertx.git.users.metrics.Metrics.Stage;
+import lombok.val;
+import org.junit.Test;
+import rx.Observable;
+import rx.Single;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetricsTest {
+
+    @Test
+    public void shouldEstimateQuantilesFromBuckets() {
+        //given
+        val histogram = new LatencyHistogram();
+
+        //when
+        for (int i = 0; i < 98; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(900));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(900));
+
+        //then
+        assertThat(histogram.count()).isEqualTo(100);
+        assertThat(histogram.quantileNanos(0.5)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(4));
+        assertThat(histogram.quantileNanos(0.99)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(1024));
+        assertThat(new LatencyHistogram().quantileNanos(0.99)).isZero();
+    }
+
+    @Test
+    public void shouldRenderPrometheusText() {
+        //given
+        val metrics = new Metrics();
+        metrics.gauge("rate_limit_remaining", "Remaining calls", "bucket=\"search\"", () -> 7);
+
+        //when
+        metrics.record(Stage.SEARCH, TimeUnit.MILLISECONDS.toNanos(20));
+        metrics.upstreamResponse(RateLimitBucket.CORE, 502);
+        metrics.upstreamFailure(RateLimitBucket.SEARCH);
+        metrics.requestStarted();
+        String text = metrics.scrape();
+
+        //then
+        assertThat(text)
+                .contains("# TYPE github_users_stage_duration_seconds histogram")
+                .contains("github_users_stage_duration_seconds_bucket{stage=\"search\",le=\"0.032\"} 1")
+                .contains("github_users_stage_duration_seconds_count{stage=\"search\"} 1")
+                .contains("github_users_stage_duration_quantile_seconds{stage=\"search\",quantile=\"0.99\"} 0.032")
+                .contains("github_users_upstream_responses_total{bucket=\"core\",status=\"502\"} 1")
+                .contains("github_users_upstream_responses_total{bucket=\"search\",status=\"0\"} 1")
+                .contains("github_users_requests_in_flight 1")
+                .contains("github_users_rate_limit_remaining{bucket=\"search\"} 7.0");
+    }
+
+    @Test
+    public void shouldRemoveGaugeSeries() {
+        //given
+        val metrics = new Metrics();
+        metrics.gauge("admission_queue_size", "Queued requests", "instance=\"0\"", () -> 1);
+        metrics.gauge("admission_queue_size", "Queued requests", "instance=\"1\"", () -> 2);
+
+        //when
+        metrics.removeGauge("admission_queue_size", "instance=\"0\"");
+        String oneLeft = metrics.scrape();
+        metrics.removeGauge("admission_queue_size", "instance=\"1\"");
+        String noneLeft = metrics.scrape();
+
+        //then
+        assertThat(oneLeft)
+                .doesNotContain("github_users_admission_queue_size{instance=\"0\"}")
+                .contains("github_users_admission_queue_size{instance=\"1\"} 2.0");
+        assertThat(noneLeft).doesNotContain("admission_queue_size");
+    }
+
+    @Test
+    public void shouldTimeStageTillTermination() {
+        //given
+        val metrics = new Metrics();
+
+        //when
+        metrics.time(Stage.PROFILES, Observable.just(1, 2)).test().assertCompleted();
+        metrics.time(Stage.PROFILES, Single.error(new IllegalStateException())).test().assertError(IllegalStateException.class);
+
+        //then
+        assertThat(metrics.histogram(Stage.PROFILES).count()).isEqualTo(2);
+        assertThat(metrics.histogram(Stage.SEARCH).count()).isZero();
+    }
+}